@@ -23,14 +23,85 @@ package org.drasyl.channel.tun;
 
 import io.netty.channel.ChannelOption;
 import io.netty.channel.DefaultChannelConfig;
+import org.drasyl.channel.tun.jna.linux.CpuAffinity;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+
+import static java.util.Objects.requireNonNull;
+import static org.drasyl.channel.tun.TunChannelOption.TUN_ADDRESSES;
+import static org.drasyl.channel.tun.TunChannelOption.TUN_AUTO_FEATURES;
+import static org.drasyl.channel.tun.TunChannelOption.TUN_BUSY_POLL_MICROS;
+import static org.drasyl.channel.tun.TunChannelOption.TUN_CSUM_OFFLOAD;
+import static org.drasyl.channel.tun.TunChannelOption.TUN_DEVICE_POOL;
+import static org.drasyl.channel.tun.TunChannelOption.TUN_EPOLL;
+import static org.drasyl.channel.tun.TunChannelOption.TUN_FDS;
+import static org.drasyl.channel.tun.TunChannelOption.TUN_FILTER;
+import static org.drasyl.channel.tun.TunChannelOption.TUN_INBOUND_BYTES;
+import static org.drasyl.channel.tun.TunChannelOption.TUN_INBOUND_OVERFLOW;
+import static org.drasyl.channel.tun.TunChannelOption.TUN_INBOUND_PACKETS;
+import static org.drasyl.channel.tun.TunChannelOption.TUN_IO_URING;
 import static org.drasyl.channel.tun.TunChannelOption.TUN_MTU;
+import static org.drasyl.channel.tun.TunChannelOption.TUN_NAPI;
+import static org.drasyl.channel.tun.TunChannelOption.TUN_PROVISIONING_EXECUTOR;
+import static org.drasyl.channel.tun.TunChannelOption.TUN_QUEUES;
+import static org.drasyl.channel.tun.TunChannelOption.TUN_QUEUES_MIN;
+import static org.drasyl.channel.tun.TunChannelOption.TUN_QUEUE_SCALE_DOWN_THRESHOLD;
+import static org.drasyl.channel.tun.TunChannelOption.TUN_QUEUE_SCALE_INTERVAL_MILLIS;
+import static org.drasyl.channel.tun.TunChannelOption.TUN_QUEUE_SCALE_UP_THRESHOLD;
+import static org.drasyl.channel.tun.TunChannelOption.TUN_READER_CPUS;
+import static org.drasyl.channel.tun.TunChannelOption.TUN_READER_EXECUTOR;
+import static org.drasyl.channel.tun.TunChannelOption.TUN_READER_GROUP;
+import static org.drasyl.channel.tun.TunChannelOption.TUN_READER_THREAD_FACTORY;
+import static org.drasyl.channel.tun.TunChannelOption.TUN_ROUTES;
+import static org.drasyl.channel.tun.TunChannelOption.TUN_SNDBUF;
+import static org.drasyl.channel.tun.TunChannelOption.TUN_TCP_COALESCE;
+import static org.drasyl.channel.tun.TunChannelOption.TUN_TSO;
+import static org.drasyl.channel.tun.TunChannelOption.TUN_USO;
+import static org.drasyl.channel.tun.TunChannelOption.TUN_VIRTUAL_THREADS;
+import static org.drasyl.channel.tun.TunChannelOption.TUN_VNET_HDR;
 
 /**
  * The default {@link TunChannelConfig} implementation.
  */
 public class DefaultTunChannelConfig extends DefaultChannelConfig implements TunChannelConfig {
     private int mtu;
+    private boolean epoll;
+    // null if not set explicitly, so that TUN_AUTO_FEATURES may choose
+    private Integer queues;
+    private int minQueues;
+    private int queueScaleUpThreshold = 50_000;
+    private int queueScaleDownThreshold = 10_000;
+    private int queueScaleIntervalMillis = 1_000;
+    private Boolean vnetHdr;
+    private boolean tso;
+    private Boolean csumOffload;
+    private boolean uso;
+    private Boolean tcpCoalesce;
+    private Boolean napi;
+    private int ioUring;
+    private volatile TunFilter filter;
+    private int busyPollMicros;
+    private ThreadFactory readerThreadFactory;
+    private Executor readerExecutor;
+    private List<Integer> readerCpus;
+    private TunReaderGroup readerGroup;
+    private boolean virtualThreads;
+    private int sndbuf;
+    private int inboundPackets = 1024;
+    private int inboundBytes;
+    private TunOverflowPolicy inboundOverflow = TunOverflowPolicy.STOP_READING;
+    private boolean autoFeatures;
+    private TunDevicePool devicePool;
+    private List<String> addresses;
+    private List<InetPrefix> addressPrefixes;
+    private List<String> routes;
+    private List<InetPrefix> routePrefixes;
+    private Executor provisioningExecutor;
+    private int[] fds;
 
     public DefaultTunChannelConfig(final TunChannel channel) {
         super(channel);
@@ -42,6 +113,96 @@ public class DefaultTunChannelConfig extends DefaultChannelConfig implements Tun
         if (option == TUN_MTU) {
             return (T) Integer.valueOf(getMtu());
         }
+        if (option == TUN_EPOLL) {
+            return (T) Boolean.valueOf(isEpoll());
+        }
+        if (option == TUN_QUEUES) {
+            return (T) Integer.valueOf(getQueues());
+        }
+        if (option == TUN_QUEUES_MIN) {
+            return (T) Integer.valueOf(getMinQueues());
+        }
+        if (option == TUN_QUEUE_SCALE_UP_THRESHOLD) {
+            return (T) Integer.valueOf(getQueueScaleUpThreshold());
+        }
+        if (option == TUN_QUEUE_SCALE_DOWN_THRESHOLD) {
+            return (T) Integer.valueOf(getQueueScaleDownThreshold());
+        }
+        if (option == TUN_QUEUE_SCALE_INTERVAL_MILLIS) {
+            return (T) Integer.valueOf(getQueueScaleIntervalMillis());
+        }
+        if (option == TUN_VNET_HDR) {
+            return (T) Boolean.valueOf(isVnetHdr());
+        }
+        if (option == TUN_TSO) {
+            return (T) Boolean.valueOf(isTso());
+        }
+        if (option == TUN_CSUM_OFFLOAD) {
+            return (T) Boolean.valueOf(isCsumOffload());
+        }
+        if (option == TUN_USO) {
+            return (T) Boolean.valueOf(isUso());
+        }
+        if (option == TUN_TCP_COALESCE) {
+            return (T) Boolean.valueOf(isTcpCoalesce());
+        }
+        if (option == TUN_NAPI) {
+            return (T) Boolean.valueOf(isNapi());
+        }
+        if (option == TUN_IO_URING) {
+            return (T) Integer.valueOf(getIoUring());
+        }
+        if (option == TUN_FILTER) {
+            return (T) getFilter();
+        }
+        if (option == TUN_BUSY_POLL_MICROS) {
+            return (T) Integer.valueOf(getBusyPollMicros());
+        }
+        if (option == TUN_READER_THREAD_FACTORY) {
+            return (T) getReaderThreadFactory();
+        }
+        if (option == TUN_READER_EXECUTOR) {
+            return (T) getReaderExecutor();
+        }
+        if (option == TUN_READER_CPUS) {
+            return (T) getReaderCpus();
+        }
+        if (option == TUN_READER_GROUP) {
+            return (T) getReaderGroup();
+        }
+        if (option == TUN_VIRTUAL_THREADS) {
+            return (T) Boolean.valueOf(isVirtualThreads());
+        }
+        if (option == TUN_SNDBUF) {
+            return (T) Integer.valueOf(getSndbuf());
+        }
+        if (option == TUN_INBOUND_PACKETS) {
+            return (T) Integer.valueOf(getInboundPackets());
+        }
+        if (option == TUN_INBOUND_BYTES) {
+            return (T) Integer.valueOf(getInboundBytes());
+        }
+        if (option == TUN_INBOUND_OVERFLOW) {
+            return (T) getInboundOverflow();
+        }
+        if (option == TUN_AUTO_FEATURES) {
+            return (T) Boolean.valueOf(isAutoFeatures());
+        }
+        if (option == TUN_DEVICE_POOL) {
+            return (T) getDevicePool();
+        }
+        if (option == TUN_ADDRESSES) {
+            return (T) getAddresses();
+        }
+        if (option == TUN_ROUTES) {
+            return (T) getRoutes();
+        }
+        if (option == TUN_FDS) {
+            return (T) getFds();
+        }
+        if (option == TUN_PROVISIONING_EXECUTOR) {
+            return (T) getProvisioningExecutor();
+        }
         return super.getOption(option);
     }
 
@@ -51,6 +212,96 @@ public class DefaultTunChannelConfig extends DefaultChannelConfig implements Tun
             if (option == TUN_MTU) {
                 setMtu((Integer) value);
             }
+            else if (option == TUN_EPOLL) {
+                setEpoll((Boolean) value);
+            }
+            else if (option == TUN_QUEUES) {
+                setQueues((Integer) value);
+            }
+            else if (option == TUN_QUEUES_MIN) {
+                setMinQueues((Integer) value);
+            }
+            else if (option == TUN_QUEUE_SCALE_UP_THRESHOLD) {
+                setQueueScaleUpThreshold((Integer) value);
+            }
+            else if (option == TUN_QUEUE_SCALE_DOWN_THRESHOLD) {
+                setQueueScaleDownThreshold((Integer) value);
+            }
+            else if (option == TUN_QUEUE_SCALE_INTERVAL_MILLIS) {
+                setQueueScaleIntervalMillis((Integer) value);
+            }
+            else if (option == TUN_VNET_HDR) {
+                setVnetHdr((Boolean) value);
+            }
+            else if (option == TUN_TSO) {
+                setTso((Boolean) value);
+            }
+            else if (option == TUN_CSUM_OFFLOAD) {
+                setCsumOffload((Boolean) value);
+            }
+            else if (option == TUN_USO) {
+                setUso((Boolean) value);
+            }
+            else if (option == TUN_TCP_COALESCE) {
+                setTcpCoalesce((Boolean) value);
+            }
+            else if (option == TUN_NAPI) {
+                setNapi((Boolean) value);
+            }
+            else if (option == TUN_IO_URING) {
+                setIoUring((Integer) value);
+            }
+            else if (option == TUN_FILTER) {
+                setFilter((TunFilter) value);
+            }
+            else if (option == TUN_BUSY_POLL_MICROS) {
+                setBusyPollMicros((Integer) value);
+            }
+            else if (option == TUN_READER_THREAD_FACTORY) {
+                setReaderThreadFactory((ThreadFactory) value);
+            }
+            else if (option == TUN_READER_EXECUTOR) {
+                setReaderExecutor((Executor) value);
+            }
+            else if (option == TUN_READER_CPUS) {
+                setReaderCpus(listOf(value, Integer.class));
+            }
+            else if (option == TUN_READER_GROUP) {
+                setReaderGroup((TunReaderGroup) value);
+            }
+            else if (option == TUN_VIRTUAL_THREADS) {
+                setVirtualThreads((Boolean) value);
+            }
+            else if (option == TUN_SNDBUF) {
+                setSndbuf((Integer) value);
+            }
+            else if (option == TUN_INBOUND_PACKETS) {
+                setInboundPackets((Integer) value);
+            }
+            else if (option == TUN_INBOUND_BYTES) {
+                setInboundBytes((Integer) value);
+            }
+            else if (option == TUN_INBOUND_OVERFLOW) {
+                setInboundOverflow((TunOverflowPolicy) value);
+            }
+            else if (option == TUN_AUTO_FEATURES) {
+                setAutoFeatures((Boolean) value);
+            }
+            else if (option == TUN_DEVICE_POOL) {
+                setDevicePool((TunDevicePool) value);
+            }
+            else if (option == TUN_ADDRESSES) {
+                setAddresses(listOf(value, String.class));
+            }
+            else if (option == TUN_ROUTES) {
+                setRoutes(listOf(value, String.class));
+            }
+            else if (option == TUN_FDS) {
+                setFds((int[]) value);
+            }
+            else if (option == TUN_PROVISIONING_EXECUTOR) {
+                setProvisioningExecutor((Executor) value);
+            }
             else {
                 return false;
             }
@@ -72,4 +323,464 @@ public class DefaultTunChannelConfig extends DefaultChannelConfig implements Tun
         this.mtu = mtu;
         return null;
     }
+
+    @Override
+    public boolean isEpoll() {
+        return epoll;
+    }
+
+    @Override
+    public TunChannelConfig setEpoll(final boolean epoll) {
+        this.epoll = epoll;
+        return this;
+    }
+
+    @Override
+    public int getQueues() {
+        return queues != null ? queues : 1;
+    }
+
+    @Override
+    public TunChannelConfig setQueues(final int queues) {
+        if (queues < 1) {
+            throw new IllegalArgumentException("queues must be positive.");
+        }
+        this.queues = queues;
+        return this;
+    }
+
+    @Override
+    public int getMinQueues() {
+        return minQueues;
+    }
+
+    @Override
+    public TunChannelConfig setMinQueues(final int minQueues) {
+        if (minQueues < 0) {
+            throw new IllegalArgumentException("minQueues must be non-negative.");
+        }
+        this.minQueues = minQueues;
+        return this;
+    }
+
+    @Override
+    public int getQueueScaleUpThreshold() {
+        return queueScaleUpThreshold;
+    }
+
+    @Override
+    public TunChannelConfig setQueueScaleUpThreshold(final int queueScaleUpThreshold) {
+        if (queueScaleUpThreshold < 0) {
+            throw new IllegalArgumentException("queueScaleUpThreshold must be non-negative.");
+        }
+        this.queueScaleUpThreshold = queueScaleUpThreshold;
+        return this;
+    }
+
+    @Override
+    public int getQueueScaleDownThreshold() {
+        return queueScaleDownThreshold;
+    }
+
+    @Override
+    public TunChannelConfig setQueueScaleDownThreshold(final int queueScaleDownThreshold) {
+        if (queueScaleDownThreshold < 0) {
+            throw new IllegalArgumentException("queueScaleDownThreshold must be non-negative.");
+        }
+        this.queueScaleDownThreshold = queueScaleDownThreshold;
+        return this;
+    }
+
+    @Override
+    public int getQueueScaleIntervalMillis() {
+        return queueScaleIntervalMillis;
+    }
+
+    @Override
+    public TunChannelConfig setQueueScaleIntervalMillis(final int queueScaleIntervalMillis) {
+        if (queueScaleIntervalMillis <= 0) {
+            throw new IllegalArgumentException("queueScaleIntervalMillis must be positive.");
+        }
+        this.queueScaleIntervalMillis = queueScaleIntervalMillis;
+        return this;
+    }
+
+    @Override
+    public boolean isVnetHdr() {
+        return vnetHdr != null && vnetHdr;
+    }
+
+    @Override
+    public TunChannelConfig setVnetHdr(final boolean vnetHdr) {
+        this.vnetHdr = vnetHdr;
+        return this;
+    }
+
+    @Override
+    public boolean isTso() {
+        return tso;
+    }
+
+    @Override
+    public TunChannelConfig setTso(final boolean tso) {
+        this.tso = tso;
+        return this;
+    }
+
+    @Override
+    public boolean isCsumOffload() {
+        return csumOffload != null && csumOffload;
+    }
+
+    @Override
+    public TunChannelConfig setCsumOffload(final boolean csumOffload) {
+        this.csumOffload = csumOffload;
+        return this;
+    }
+
+    @Override
+    public boolean isUso() {
+        return uso;
+    }
+
+    @Override
+    public TunChannelConfig setUso(final boolean uso) {
+        this.uso = uso;
+        return this;
+    }
+
+    @Override
+    public boolean isTcpCoalesce() {
+        return tcpCoalesce != null && tcpCoalesce;
+    }
+
+    @Override
+    public TunChannelConfig setTcpCoalesce(final boolean tcpCoalesce) {
+        this.tcpCoalesce = tcpCoalesce;
+        return this;
+    }
+
+    @Override
+    public boolean isNapi() {
+        return napi != null && napi;
+    }
+
+    @Override
+    public TunChannelConfig setNapi(final boolean napi) {
+        this.napi = napi;
+        return this;
+    }
+
+    @Override
+    public int getIoUring() {
+        return ioUring;
+    }
+
+    @Override
+    public TunChannelConfig setIoUring(final int ioUring) {
+        if (ioUring < 0) {
+            throw new IllegalArgumentException("ioUring must be non-negative.");
+        }
+        this.ioUring = ioUring;
+        return this;
+    }
+
+    @Override
+    public TunFilter getFilter() {
+        return filter;
+    }
+
+    @Override
+    public TunChannelConfig setFilter(final TunFilter filter) {
+        this.filter = filter;
+        ((TunChannel) channel).applyFilter(filter);
+        return this;
+    }
+
+    @Override
+    public int getBusyPollMicros() {
+        return busyPollMicros;
+    }
+
+    @Override
+    public TunChannelConfig setBusyPollMicros(final int busyPollMicros) {
+        if (busyPollMicros < 0) {
+            throw new IllegalArgumentException("busyPollMicros must be non-negative.");
+        }
+        this.busyPollMicros = busyPollMicros;
+        return this;
+    }
+
+    @Override
+    public ThreadFactory getReaderThreadFactory() {
+        return readerThreadFactory;
+    }
+
+    @Override
+    public TunChannelConfig setReaderThreadFactory(final ThreadFactory readerThreadFactory) {
+        this.readerThreadFactory = readerThreadFactory;
+        return this;
+    }
+
+    @Override
+    public Executor getReaderExecutor() {
+        return readerExecutor;
+    }
+
+    @Override
+    public TunChannelConfig setReaderExecutor(final Executor readerExecutor) {
+        this.readerExecutor = readerExecutor;
+        return this;
+    }
+
+    @Override
+    public List<Integer> getReaderCpus() {
+        return readerCpus;
+    }
+
+    @Override
+    public TunChannelConfig setReaderCpus(final List<Integer> readerCpus) {
+        if (readerCpus != null) {
+            if (readerCpus.isEmpty()) {
+                throw new IllegalArgumentException("readerCpus must not be empty.");
+            }
+            final int possibleCpus = CpuAffinity.possibleCpus();
+            for (final Integer cpu : readerCpus) {
+                if (cpu == null || cpu < 0) {
+                    throw new IllegalArgumentException("readerCpus must be non-negative.");
+                }
+                if (possibleCpus != -1 && cpu >= possibleCpus) {
+                    throw new IllegalArgumentException("readerCpus must be less than the number of cpus (" + possibleCpus + ").");
+                }
+            }
+        }
+        this.readerCpus = readerCpus == null ? null : Collections.unmodifiableList(new ArrayList<>(readerCpus));
+        return this;
+    }
+
+    @Override
+    public TunReaderGroup getReaderGroup() {
+        return readerGroup;
+    }
+
+    @Override
+    public TunChannelConfig setReaderGroup(final TunReaderGroup readerGroup) {
+        this.readerGroup = readerGroup;
+        return this;
+    }
+
+    @Override
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    @Override
+    public TunChannelConfig setVirtualThreads(final boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+        return this;
+    }
+
+    @Override
+    public int getSndbuf() {
+        return sndbuf;
+    }
+
+    @Override
+    public TunChannelConfig setSndbuf(final int sndbuf) {
+        if (sndbuf < 0) {
+            throw new IllegalArgumentException("sndbuf must be non-negative.");
+        }
+        this.sndbuf = sndbuf;
+        return this;
+    }
+
+    @Override
+    public int getInboundPackets() {
+        return inboundPackets;
+    }
+
+    @Override
+    public TunChannelConfig setInboundPackets(final int inboundPackets) {
+        if (inboundPackets < 1) {
+            throw new IllegalArgumentException("inboundPackets must be positive.");
+        }
+        this.inboundPackets = inboundPackets;
+        return this;
+    }
+
+    @Override
+    public int getInboundBytes() {
+        return inboundBytes;
+    }
+
+    @Override
+    public TunChannelConfig setInboundBytes(final int inboundBytes) {
+        if (inboundBytes < 0) {
+            throw new IllegalArgumentException("inboundBytes must be non-negative.");
+        }
+        this.inboundBytes = inboundBytes;
+        return this;
+    }
+
+    @Override
+    public TunOverflowPolicy getInboundOverflow() {
+        return inboundOverflow;
+    }
+
+    @Override
+    public TunChannelConfig setInboundOverflow(final TunOverflowPolicy inboundOverflow) {
+        this.inboundOverflow = requireNonNull(inboundOverflow);
+        return this;
+    }
+
+    @Override
+    public boolean isAutoFeatures() {
+        return autoFeatures;
+    }
+
+    @Override
+    public TunChannelConfig setAutoFeatures(final boolean autoFeatures) {
+        this.autoFeatures = autoFeatures;
+        return this;
+    }
+
+    @Override
+    public TunDevicePool getDevicePool() {
+        return devicePool;
+    }
+
+    @Override
+    public TunChannelConfig setDevicePool(final TunDevicePool devicePool) {
+        this.devicePool = devicePool;
+        return this;
+    }
+
+    @Override
+    public List<String> getAddresses() {
+        return addresses;
+    }
+
+    @Override
+    public TunChannelConfig setAddresses(final List<String> addresses) {
+        this.addressPrefixes = prefixes(addresses);
+        this.addresses = copy(addresses);
+        return this;
+    }
+
+    @Override
+    public List<String> getRoutes() {
+        return routes;
+    }
+
+    @Override
+    public TunChannelConfig setRoutes(final List<String> routes) {
+        this.routePrefixes = prefixes(routes);
+        this.routes = copy(routes);
+        return this;
+    }
+
+    @Override
+    public int[] getFds() {
+        return fds == null ? null : fds.clone();
+    }
+
+    @Override
+    public TunChannelConfig setFds(final int[] fds) {
+        if (fds != null) {
+            if (fds.length == 0) {
+                throw new IllegalArgumentException("fds must not be empty.");
+            }
+            for (final int fd : fds) {
+                if (fd < 0) {
+                    throw new IllegalArgumentException("fds must be non-negative.");
+                }
+            }
+        }
+        this.fds = fds == null ? null : fds.clone();
+        return this;
+    }
+
+    @Override
+    public Executor getProvisioningExecutor() {
+        return provisioningExecutor;
+    }
+
+    @Override
+    public TunChannelConfig setProvisioningExecutor(final Executor provisioningExecutor) {
+        this.provisioningExecutor = provisioningExecutor;
+        return this;
+    }
+
+    /**
+     * Returns {@code true} if the given option, which {@link TunChannelOption#TUN_AUTO_FEATURES}
+     * may choose otherwise, has been set explicitly.
+     */
+    boolean isSet(final ChannelOption<?> option) {
+        if (option == TUN_QUEUES) {
+            return queues != null;
+        }
+        if (option == TUN_VNET_HDR) {
+            return vnetHdr != null;
+        }
+        if (option == TUN_CSUM_OFFLOAD) {
+            return csumOffload != null;
+        }
+        if (option == TUN_TCP_COALESCE) {
+            return tcpCoalesce != null;
+        }
+        if (option == TUN_NAPI) {
+            return napi != null;
+        }
+        throw new IllegalArgumentException("Unsupported option: " + option);
+    }
+
+    /**
+     * Returns the parsed {@link TunChannelOption#TUN_ADDRESSES} or {@code null}.
+     */
+    List<InetPrefix> addressPrefixes() {
+        return addressPrefixes;
+    }
+
+    /**
+     * Returns the parsed {@link TunChannelOption#TUN_ROUTES} or {@code null}.
+     */
+    List<InetPrefix> routePrefixes() {
+        return routePrefixes;
+    }
+
+    /**
+     * Parses the given prefixes in CIDR notation.
+     */
+    private static List<InetPrefix> prefixes(final List<String> prefixes) {
+        if (prefixes == null) {
+            return null;
+        }
+        final List<InetPrefix> parsed = new ArrayList<>(prefixes.size());
+        for (final String prefix : prefixes) {
+            parsed.add(InetPrefix.parse(prefix));
+        }
+        return Collections.unmodifiableList(parsed);
+    }
+
+    /**
+     * Returns an immutable copy of the given list or {@code null}.
+     */
+    private static <E> List<E> copy(final List<E> list) {
+        return list == null ? null : Collections.unmodifiableList(new ArrayList<>(list));
+    }
+
+    /**
+     * Returns the given option value as list, after checking the type of each element.
+     */
+    private static <E> List<E> listOf(final Object value, final Class<E> elementType) {
+        if (value == null) {
+            return null;
+        }
+        final List<?> list = (List<?>) value;
+        final List<E> checked = new ArrayList<>(list.size());
+        for (final Object element : list) {
+            checked.add(elementType.cast(element));
+        }
+        return checked;
+    }
 }
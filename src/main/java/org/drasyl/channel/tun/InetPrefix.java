@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2021-2022 Heiko Bornholdt and Kevin Röbert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.drasyl.channel.tun;
+
+import io.netty.util.NetUtil;
+
+import java.net.InetAddress;
+import java.util.Objects;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * An IP address with a prefix length, as given in CIDR notation (e.g. {@code 10.10.10.10/24}).
+ */
+final class InetPrefix {
+    private final InetAddress address;
+    private final int prefixLength;
+
+    InetPrefix(final InetAddress address, final int prefixLength) {
+        this.address = requireNonNull(address);
+        if (prefixLength < 0 || prefixLength > address.getAddress().length * 8) {
+            throw new IllegalArgumentException("Invalid prefix length: " + prefixLength);
+        }
+        this.prefixLength = prefixLength;
+    }
+
+    /**
+     * Parses the given prefix in CIDR notation. Without prefix length, the prefix contains only the
+     * given address. Only IP literals are accepted, host names are never resolved.
+     *
+     * @param cidr prefix in CIDR notation
+     * @return the parsed prefix
+     * @throws IllegalArgumentException if {@code cidr} is not a valid prefix
+     */
+    static InetPrefix parse(final String cidr) {
+        final int slash = requireNonNull(cidr).indexOf('/');
+        final String host = slash == -1 ? cidr : cidr.substring(0, slash);
+        final InetAddress address = NetUtil.createInetAddressFromIpAddressString(host);
+        if (address == null) {
+            throw new IllegalArgumentException("Invalid prefix: " + cidr);
+        }
+        try {
+            final int prefixLength = slash == -1 ? address.getAddress().length * 8 : Integer.parseInt(cidr.substring(slash + 1));
+            return new InetPrefix(address, prefixLength);
+        }
+        catch (final NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid prefix: " + cidr, e);
+        }
+    }
+
+    InetAddress address() {
+        return address;
+    }
+
+    int prefixLength() {
+        return prefixLength;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        final InetPrefix that = (InetPrefix) o;
+        return prefixLength == that.prefixLength && address.equals(that.address);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(address, prefixLength);
+    }
+
+    @Override
+    public String toString() {
+        return address.getHostAddress() + "/" + prefixLength;
+    }
+}
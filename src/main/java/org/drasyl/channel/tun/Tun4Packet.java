@@ -63,13 +63,17 @@ public class Tun4Packet extends TunPacket {
     private InetAddress sourceAddress;
     private InetAddress destinationAddress;
 
-    public Tun4Packet(final ByteBuf data) {
-        super(data);
+    public Tun4Packet(final ByteBuf data, final VirtioNetHeader virtioNetHeader) {
+        super(data, virtioNetHeader);
         if (data.readableBytes() < INET4_HEADER_LENGTH) {
             throw new IllegalArgumentException("data has only " + data.readableBytes() + " readable bytes. But an IPv4 packet must be at least " + INET4_HEADER_LENGTH + " bytes long.");
         }
     }
 
+    public Tun4Packet(final ByteBuf data) {
+        this(data, VirtioNetHeader.NONE);
+    }
+
     @Override
     public int version() {
         return content().getUnsignedByte(INET4_VERSION_AND_INTERNET_HEADER_LENGTH) >> 4;
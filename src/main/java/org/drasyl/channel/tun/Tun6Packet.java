@@ -45,8 +45,12 @@ public class Tun6Packet extends TunPacket {
     private InetAddress sourceAddress;
     private InetAddress destinationAddress;
 
+    public Tun6Packet(final ByteBuf data, final VirtioNetHeader virtioNetHeader) {
+        super(data, virtioNetHeader);
+    }
+
     public Tun6Packet(final ByteBuf data) {
-        super(data);
+        this(data, VirtioNetHeader.NONE);
     }
 
     @SuppressWarnings("java:S109")
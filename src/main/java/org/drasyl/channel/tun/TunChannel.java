@@ -21,28 +21,67 @@
  */
 package org.drasyl.channel.tun;
 
+import io.netty.buffer.ByteBufHolder;
 import io.netty.channel.AbstractChannel;
 import io.netty.channel.ChannelConfig;
+import io.netty.channel.ChannelException;
+import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelMetadata;
 import io.netty.channel.ChannelOutboundBuffer;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.ChannelPromise;
-import io.netty.channel.DefaultEventLoop;
+import io.netty.channel.DefaultEventLoopGroup;
 import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
 import io.netty.channel.RecvByteBufAllocator;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.EventExecutor;
 import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.StringUtil;
 import org.drasyl.channel.tun.jna.TunDevice;
 import org.drasyl.channel.tun.jna.darwin.DarwinTunDevice;
+import org.drasyl.channel.tun.jna.linux.CpuAffinity;
+import org.drasyl.channel.tun.jna.linux.EpollPoller;
 import org.drasyl.channel.tun.jna.linux.LinuxTunDevice;
+import org.drasyl.channel.tun.jna.linux.LinuxTunDeviceOptions;
+import org.drasyl.channel.tun.jna.linux.RtnetlinkClient;
+import org.drasyl.channel.tun.jna.linux.TunHandoff;
 import org.drasyl.channel.tun.jna.windows.WindowsTunDevice;
 
 import java.io.IOException;
 import java.net.SocketAddress;
 import java.nio.channels.AlreadyConnectedException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.drasyl.channel.tun.TunChannelOption.TUN_CSUM_OFFLOAD;
+import static org.drasyl.channel.tun.TunChannelOption.TUN_NAPI;
+import static org.drasyl.channel.tun.TunChannelOption.TUN_QUEUES;
+import static org.drasyl.channel.tun.TunChannelOption.TUN_TCP_COALESCE;
+import static org.drasyl.channel.tun.TunChannelOption.TUN_VNET_HDR;
+import static org.drasyl.channel.tun.TunOverflowPolicy.DROP_HEAD;
+import static org.drasyl.channel.tun.TunOverflowPolicy.STOP_READING;
+import static org.drasyl.channel.tun.jna.linux.IfTun.TUN_F_CSUM;
+import static org.drasyl.channel.tun.jna.linux.IfTun.TUN_F_TSO4;
+import static org.drasyl.channel.tun.jna.linux.IfTun.TUN_F_TSO6;
+import static org.drasyl.channel.tun.jna.linux.IfTun.TUN_F_USO4;
+import static org.drasyl.channel.tun.jna.linux.IfTun.TUN_F_USO6;
 
 /**
  * A {@link io.netty.channel.Channel} implementation that can be used to send or receive packets
@@ -57,17 +96,63 @@ import java.util.List;
  * When the host's network stack sends packets out via the device, the packets are delivered to the
  * channel causing a {@link io.netty.channel.ChannelInboundHandler#channelRead(ChannelHandlerContext,
  * Object)} invocation.
+ * <p>
+ * By default, packets are read by a dedicated thread that blocks until the device has received a
+ * packet. On Linux, {@link TunChannelOption#TUN_EPOLL} can be used to open the device in
+ * non-blocking mode instead. The dedicated thread then only waits for the device to become
+ * readable, while the packets are read on the channel's event loop until the device is drained.
+ * With {@link TunChannelOption#TUN_READER_GROUP}, this thread is shared with other channels.
+ * {@link TunChannelOption#TUN_VIRTUAL_THREADS} reads the packets on virtual threads instead.
+ * <p>
+ * Packets read by a thread other than the event loop are queued until the event loop processes
+ * them. {@link TunChannelOption#TUN_INBOUND_PACKETS} and {@link
+ * TunChannelOption#TUN_INBOUND_BYTES} limit this queue, {@link
+ * TunChannelOption#TUN_INBOUND_OVERFLOW} decides whether reading stops or packets are dropped once
+ * a limit has been reached. {@link #inboundDrops()} counts the dropped packets.
+ * <p>
+ * With {@link TunChannelOption#TUN_BUSY_POLL_MICROS}, a reader whose queue has been drained keeps
+ * polling the queue for the given time before it waits for the next packet. {@link
+ * #busyPollHits()} and {@link #busyPollMisses()} tell how often this has paid off.
+ * <p>
+ * On Linux, {@link TunChannelOption#TUN_QUEUES} creates a multi-queue device. Each queue is then
+ * served by its own reader. With {@link TunChannelOption#TUN_QUEUES_MIN}, only the given number of
+ * queues is attached initially, and further queues are attached or detached depending on the
+ * observed load.
+ * <p>
+ * Opening and configuring the device happens on the event loop when the channel is bound. With
+ * {@link TunChannelOption#TUN_PROVISIONING_EXECUTOR}, it happens on the given executor instead, so
+ * that the event loop is not blocked and multiple devices are provisioned in parallel.
  */
 public class TunChannel extends AbstractChannel {
     private static final ChannelMetadata METADATA = new ChannelMetadata(false);
+    // maximum number of packets passed from a reader thread to the pipeline by a single task
+    private static final int MAX_DRAIN = 1024;
     private static final String EXPECTED_TYPES =
             " (expected: " + StringUtil.simpleClassName(TunPacket.class) + ')';
-    final Runnable readTask = this::doRead;
-    private final TunChannelConfig config = new DefaultTunChannelConfig(this);
-    private final List<Object> readBuf = new ArrayList<>();
-    private boolean readPending;
-    private final EventLoop readLoop = new DefaultEventLoop();
+    private final DefaultTunChannelConfig config = new DefaultTunChannelConfig(this);
+    private final LongAdder busyPollHits = new LongAdder();
+    private final LongAdder busyPollMisses = new LongAdder();
+    private final LongAdder inboundDrops = new LongAdder();
+    // packets (and their bytes) read by reader threads but not yet processed by the event loop
+    private final AtomicInteger inboundPackets = new AtomicInteger();
+    private final AtomicLong inboundBytes = new AtomicLong();
+    private final Runnable flushTask = () -> ((TunChannelUnsafe) unsafe()).forceFlush();
+    private EventLoopGroup readLoopGroup;
+    private QueueReader[] readers;
     private TunDevice device;
+    // opened on the provisioning executor, taken over by doBind
+    private OpenedDevice provisionedDevice;
+    private EpollPoller poller;
+    private boolean sharedPoller;
+    // poller belongs to the group shared by all channels reading on virtual threads
+    private boolean sharedReaderGroup;
+    // pool the device has been taken from
+    private TunDevicePool devicePool;
+    private ScheduledFuture<?> queueScaleFuture;
+    private long queueScaleNanos;
+    private long busyPollNanos;
+    // a non-blocking queue was not writable, flushing waits until it becomes writable again
+    private boolean writeBlocked;
     private boolean closed;
 
     public TunChannel() {
@@ -109,16 +194,465 @@ public class TunChannel extends AbstractChannel {
         return null;
     }
 
+    /**
+     * Binds this channel, see {@link #bind(SocketAddress, ChannelPromise)}.
+     */
+    @Override
+    public ChannelFuture bind(final SocketAddress localAddress) {
+        return bind(localAddress, newPromise());
+    }
+
+    /**
+     * Binds this channel. With {@link TunChannelOption#TUN_PROVISIONING_EXECUTOR}, the device is
+     * opened on the provisioning executor first, and the bind operation is passed through the
+     * pipeline once the device is ready.
+     */
+    @Override
+    public ChannelFuture bind(final SocketAddress localAddress, final ChannelPromise promise) {
+        final Executor provisioningExecutor = config.getProvisioningExecutor();
+        if (provisioningExecutor == null) {
+            return super.bind(localAddress, promise);
+        }
+
+        try {
+            // do not provision a device that doBind would reject
+            checkReaderOptions();
+        }
+        catch (final IllegalArgumentException e) {
+            promise.tryFailure(e);
+            return promise;
+        }
+        try {
+            provisioningExecutor.execute(() -> {
+                final OpenedDevice provisioned;
+                try {
+                    provisioned = openDevice(localAddress);
+                }
+                catch (final IOException | RuntimeException e) {
+                    promise.tryFailure(e);
+                    return;
+                }
+                try {
+                    eventLoop().execute(() -> provisioned(localAddress, provisioned, promise));
+                }
+                catch (final RejectedExecutionException e) {
+                    closeUnbound(provisioned, e);
+                    promise.tryFailure(e);
+                }
+            });
+        }
+        catch (final RejectedExecutionException e) {
+            promise.tryFailure(e);
+        }
+        return promise;
+    }
+
+    /**
+     * Binds this channel to a device opened on the provisioning executor.
+     */
+    private void provisioned(final SocketAddress localAddress,
+                             final OpenedDevice provisioned,
+                             final ChannelPromise promise) {
+        if (closed) {
+            // closed while provisioning
+            final ClosedChannelException e = new ClosedChannelException();
+            closeUnbound(provisioned, e);
+            promise.tryFailure(e);
+            return;
+        }
+        provisionedDevice = provisioned;
+        super.bind(localAddress, promise);
+    }
+
     @Override
     protected void doBind(final SocketAddress localAddress) throws Exception {
+        final OpenedDevice provisioned = provisionedDevice;
+        provisionedDevice = null;
+        final ThreadFactory virtualThreadFactory;
+        try {
+            // fail before the device is opened
+            checkReaderOptions();
+            virtualThreadFactory = config.isVirtualThreads() ? VirtualThreads.factory() : null;
+        }
+        catch (final RuntimeException e) {
+            if (provisioned != null) {
+                closeUnbound(provisioned, e);
+            }
+            throw e;
+        }
+        // a provisioned device has already been opened on the provisioning executor
+        setDevice(provisioned != null ? provisioned : openDevice(localAddress));
+
+        try {
+            startReaders(virtualThreadFactory);
+        }
+        catch (final Exception e) {
+            abortBind(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Rejects reader options that cannot be combined.
+     */
+    private void checkReaderOptions() {
+        if (config.getBusyPollMicros() > 0 && (config.isEpoll() || config.getReaderGroup() != null || config.isVirtualThreads())) {
+            // would spin on the event loop or on a carrier thread shared with other tasks
+            throw new IllegalArgumentException("TUN_BUSY_POLL_MICROS requires blocking reader threads and cannot be combined with TUN_EPOLL, TUN_READER_GROUP, or TUN_VIRTUAL_THREADS.");
+        }
+        if (config.getReaderExecutor() != null && config.getReaderCpus() != null) {
+            // pooled threads of the executor would stay pinned after the channel has been closed
+            throw new IllegalArgumentException("TUN_READER_CPUS cannot be combined with TUN_READER_EXECUTOR.");
+        }
+    }
+
+    /**
+     * Creates the readers of the device's queues. {@code virtualThreadFactory} is {@code null}
+     * unless the readers run on virtual threads.
+     */
+    @SuppressWarnings("java:S112")
+    private void startReaders(final ThreadFactory virtualThreadFactory) throws Exception {
+        busyPollNanos = device instanceof LinuxTunDevice ? MICROSECONDS.toNanos(config.getBusyPollMicros()) : 0;
+        if (device instanceof LinuxTunDevice && virtualThreadFactory != null) {
+            // one virtual thread per queue, woken up by a shared thread waiting for all queues
+            final LinuxTunDevice linuxDevice = (LinuxTunDevice) device;
+            readers = new QueueReader[linuxDevice.queues()];
+            readLoopGroup = new DefaultEventLoopGroup(readers.length, virtualThreadFactory);
+            final TunReaderGroup readerGroup;
+            if (config.getReaderGroup() != null) {
+                readerGroup = config.getReaderGroup();
+            }
+            else {
+                readerGroup = VirtualThreads.acquireReaderGroup();
+                sharedReaderGroup = true;
+            }
+            poller = readerGroup.next();
+            sharedPoller = true;
+            for (int i = 0; i < readers.length; i++) {
+                final QueueReader reader = new QueueReader(i, readLoopGroup.next());
+                readers[i] = reader;
+                poller.register(linuxDevice.fd(i), reader::schedule, this::writable);
+            }
+        }
+        else if (device instanceof LinuxTunDevice && (config.isEpoll() || config.getReaderGroup() != null)) {
+            // one thread waits for all queues, packets are read on the event loop
+            final LinuxTunDevice linuxDevice = (LinuxTunDevice) device;
+            readers = new QueueReader[linuxDevice.queues()];
+            if (config.getReaderGroup() != null) {
+                // thread shared with other channels
+                poller = config.getReaderGroup().next();
+                sharedPoller = true;
+            }
+            else {
+                readLoopGroup = newReadLoopGroup(1);
+                poller = new EpollPoller();
+            }
+            for (int i = 0; i < readers.length; i++) {
+                final QueueReader reader = new QueueReader(i, eventLoop());
+                readers[i] = reader;
+                poller.register(linuxDevice.fd(i), reader::schedule, this::writable);
+            }
+            if (readLoopGroup != null) {
+                readLoopGroup.execute(poller);
+            }
+        }
+        else {
+            // one blocking thread per queue
+            final int queues = device instanceof LinuxTunDevice ? ((LinuxTunDevice) device).queues() : 1;
+            readers = new QueueReader[queues];
+            readLoopGroup = newReadLoopGroup(queues);
+            for (int i = 0; i < readers.length; i++) {
+                readers[i] = new QueueReader(i, readLoopGroup.next());
+            }
+        }
+
+        if (device instanceof LinuxTunDevice && config.getMinQueues() > 0 && config.getMinQueues() < readers.length) {
+            // elastic queue scaling: start with the minimum number of queues
+            final LinuxTunDevice linuxDevice = (LinuxTunDevice) device;
+            for (int i = readers.length - 1; i >= config.getMinQueues(); i--) {
+                linuxDevice.detachQueue(i);
+            }
+            queueScaleNanos = System.nanoTime();
+            queueScaleFuture = eventLoop().scheduleAtFixedRate(this::scaleQueues, config.getQueueScaleIntervalMillis(), config.getQueueScaleIntervalMillis(), MILLISECONDS);
+        }
+    }
+
+    /**
+     * Releases the readers and the device after {@link #doBind(SocketAddress)} has failed, so that
+     * the channel does not become active.
+     */
+    private void abortBind(final Exception cause) {
+        if (queueScaleFuture != null) {
+            queueScaleFuture.cancel(false);
+            queueScaleFuture = null;
+        }
+        releasePoller();
+        poller = null;
+        sharedPoller = false;
+        if (readLoopGroup != null) {
+            readLoopGroup.shutdownGracefully();
+            readLoopGroup = null;
+        }
+        readers = null;
+        closeUnbound(new OpenedDevice(device, devicePool, devicePool != null ? device.localAddress().ifName() : null), cause);
+        device = null;
+        devicePool = null;
+    }
+
+    /**
+     * Creates the threads reading from the device, using the configured {@link Executor} or {@link
+     * java.util.concurrent.ThreadFactory}, and pins them to the configured cpus.
+     */
+    private EventLoopGroup newReadLoopGroup(final int threads) {
+        final EventLoopGroup group;
+        if (config.getReaderExecutor() != null) {
+            group = new DefaultEventLoopGroup(threads, config.getReaderExecutor());
+        }
+        else if (config.getReaderThreadFactory() != null) {
+            group = new DefaultEventLoopGroup(threads, config.getReaderThreadFactory());
+        }
+        else {
+            group = new DefaultEventLoopGroup(threads);
+        }
+
+        if (device instanceof LinuxTunDevice && config.getReaderCpus() != null) {
+            try {
+                pinThreads(group, config.getReaderCpus());
+            }
+            catch (final RuntimeException e) {
+                group.shutdownGracefully();
+                throw e;
+            }
+        }
+        return group;
+    }
+
+    /**
+     * Pins the {@code i}-th thread of the given group to the {@code i}-th of the given cpus, before
+     * the thread reads any packet. If a thread cannot be pinned, the failure is passed to the
+     * pipeline and the thread reads without being pinned.
+     */
+    private void pinThreads(final EventLoopGroup group, final List<Integer> cpus) {
+        int i = 0;
+        for (final EventExecutor executor : group) {
+            final List<Integer> cpu = Collections.singletonList(cpus.get(i++ % cpus.size()));
+            executor.execute(() -> {
+                try {
+                    CpuAffinity.pinCurrentThread(cpu);
+                }
+                catch (final IOException e) {
+                    pipeline().fireExceptionCaught(e);
+                }
+            });
+        }
+    }
+
+    /**
+     * Attaches the given filter to the device, if already open. Otherwise, the filter will be
+     * attached once the device is opened.
+     */
+    void applyFilter(final TunFilter filter) {
+        final TunDevice currentDevice = device;
+        if (currentDevice instanceof LinuxTunDevice) {
+            try {
+                ((LinuxTunDevice) currentDevice).setFilter(filter);
+            }
+            catch (final IOException e) {
+                throw new ChannelException("Set filter failed.", e);
+            }
+        }
+    }
+
+    /**
+     * Takes over the given device, which is closed with the channel from now on.
+     */
+    private void setDevice(final OpenedDevice opened) {
+        device = opened.device;
+        devicePool = opened.pool;
+    }
+
+    /**
+     * Opens the device and configures it as far as possible without the event loop. Runs on the
+     * event loop or, with {@link TunChannelOption#TUN_PROVISIONING_EXECUTOR}, on the provisioning
+     * executor, so the channel's fields are only assigned by {@link #setDevice(OpenedDevice)}.
+     */
+    private OpenedDevice openDevice(final SocketAddress localAddress) throws IOException {
         if (PlatformDependent.isOsx()) {
-            device = DarwinTunDevice.open(((TunAddress) localAddress).ifName(), config.getMtu());
+            return new OpenedDevice(DarwinTunDevice.open(((TunAddress) localAddress).ifName(), config.getMtu()), null, null);
         }
         else if (PlatformDependent.isWindows()) {
-            device = WindowsTunDevice.open(((TunAddress) localAddress).ifName());
+            return new OpenedDevice(WindowsTunDevice.open(((TunAddress) localAddress).ifName()), null, null);
         }
         else {
-            device = LinuxTunDevice.open(((TunAddress) localAddress).ifName(), config.getMtu());
+            final LinuxTunDeviceOptions options = new LinuxTunDeviceOptions()
+                    .mtu(config.getMtu())
+                    .nonBlocking(config.isEpoll() || config.getReaderGroup() != null || config.isVirtualThreads() || config.getBusyPollMicros() > 0)
+                    .sndbuf(config.getSndbuf())
+                    .autoFeatures(config.isAutoFeatures())
+                    .offloads(offloads())
+                    .ioUring(config.getIoUring());
+            // options not set explicitly are left to TUN_AUTO_FEATURES
+            if (config.isSet(TUN_QUEUES)) {
+                options.queues(config.getQueues());
+            }
+            if (offloads() != 0 || config.isCsumOffload() || config.isTcpCoalesce()) {
+                options.vnetHdr(true);
+            }
+            else if (config.isSet(TUN_VNET_HDR)) {
+                options.vnetHdr(config.isVnetHdr());
+            }
+            if (config.isSet(TUN_CSUM_OFFLOAD)) {
+                options.csumOffload(config.isCsumOffload());
+            }
+            if (config.isSet(TUN_TCP_COALESCE)) {
+                options.tcpCoalesce(config.isTcpCoalesce());
+            }
+            if (config.isSet(TUN_NAPI)) {
+                options.napi(config.isNapi());
+            }
+            final TunDevicePool pool = config.getDevicePool();
+            String name = ((TunAddress) localAddress).ifName();
+            if (pool != null) {
+                if (!config.isSet(TUN_QUEUES)) {
+                    options.queues(pool.queues());
+                }
+                name = pool.acquire(name, options.queues());
+            }
+            try {
+                final LinuxTunDevice linuxDevice = openLinuxDevice(name, options);
+                try {
+                    if (config.getFilter() != null) {
+                        linuxDevice.setFilter(config.getFilter());
+                    }
+                    if (config.getAddresses() != null || config.getRoutes() != null) {
+                        configureInterface(linuxDevice);
+                    }
+                }
+                catch (final IOException e) {
+                    linuxDevice.close();
+                    throw e;
+                }
+                return new OpenedDevice(linuxDevice, pool, pool != null ? name : null);
+            }
+            catch (final IOException | RuntimeException e) {
+                if (pool != null) {
+                    pool.release(name);
+                }
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Opens the tun device with the given name, or adopts {@link TunChannelOption#TUN_FDS} if set.
+     * Tests back the channel with other file descriptors by overriding this method.
+     */
+    LinuxTunDevice openLinuxDevice(final String name,
+                                   final LinuxTunDeviceOptions options) throws IOException {
+        return config.getFds() != null ? LinuxTunDevice.adopt(name, config.getFds(), options) : LinuxTunDevice.open(name, options);
+    }
+
+    /**
+     * Closes a device that has been provisioned for this channel but not bound to it.
+     */
+    private static void closeUnbound(final OpenedDevice unbound, final Throwable cause) {
+        try {
+            try {
+                unbound.device.close();
+            }
+            finally {
+                if (unbound.pool != null) {
+                    unbound.pool.release(unbound.pooledName);
+                }
+            }
+        }
+        catch (final IOException e) {
+            cause.addSuppressed(e);
+        }
+    }
+
+    /**
+     * Assigns {@link TunChannelConfig#getAddresses()} to the device, brings it up and routes
+     * {@link TunChannelConfig#getRoutes()} to it, all with a single netlink message.
+     */
+    private void configureInterface(final LinuxTunDevice device) throws IOException {
+        final int index = device.index();
+        try (final RtnetlinkClient rtnetlink = new RtnetlinkClient()) {
+            if (config.addressPrefixes() != null) {
+                for (final InetPrefix address : config.addressPrefixes()) {
+                    rtnetlink.addAddress(index, address.address(), address.prefixLength());
+                }
+            }
+            rtnetlink.setUp(index);
+            if (config.routePrefixes() != null) {
+                for (final InetPrefix route : config.routePrefixes()) {
+                    rtnetlink.addRoute(index, route.address(), route.prefixLength());
+                }
+            }
+            rtnetlink.commit();
+        }
+    }
+
+    /**
+     * Returns the offloads to be enabled by {@code TUNSETOFFLOAD}.
+     */
+    private int offloads() {
+        int offloads = 0;
+        if (config.isTso()) {
+            offloads |= TUN_F_CSUM | TUN_F_TSO4 | TUN_F_TSO6;
+        }
+        if (config.isUso()) {
+            offloads |= TUN_F_CSUM | TUN_F_USO4 | TUN_F_USO6;
+        }
+        return offloads;
+    }
+
+    /**
+     * Attaches another queue if the attached queues read more packets per second than {@link
+     * TunChannelConfig#getQueueScaleUpThreshold()}, or detaches a queue if they read fewer packets
+     * per second than {@link TunChannelConfig#getQueueScaleDownThreshold()}.
+     */
+    private void scaleQueues() {
+        if (!isActive()) {
+            return;
+        }
+
+        final LinuxTunDevice linuxDevice = (LinuxTunDevice) device;
+        long packets = 0;
+        for (final QueueReader reader : readers) {
+            final long packetsRead = reader.packetsRead;
+            packets += packetsRead - reader.lastPacketsRead;
+            reader.lastPacketsRead = packetsRead;
+        }
+        final long now = System.nanoTime();
+        final long elapsedNanos = Math.max(1, now - queueScaleNanos);
+        queueScaleNanos = now;
+        final int attached = linuxDevice.attachedQueues();
+        final double packetsPerSecondAndQueue = packets * 1_000_000_000d / elapsedNanos / attached;
+
+        try {
+            if (packetsPerSecondAndQueue > config.getQueueScaleUpThreshold() && attached < readers.length) {
+                for (final QueueReader reader : readers) {
+                    if (!linuxDevice.isQueueAttached(reader.queue)) {
+                        linuxDevice.attachQueue(reader.queue);
+                        if (config.isAutoRead()) {
+                            reader.beginRead();
+                        }
+                        break;
+                    }
+                }
+            }
+            else if (packetsPerSecondAndQueue < config.getQueueScaleDownThreshold() && attached > config.getMinQueues()) {
+                for (int i = readers.length - 1; i >= 0; i--) {
+                    if (linuxDevice.isQueueAttached(i)) {
+                        linuxDevice.detachQueue(i);
+                        break;
+                    }
+                }
+            }
+        }
+        catch (final IOException e) {
+            pipeline().fireExceptionCaught(e);
         }
     }
 
@@ -131,10 +665,48 @@ public class TunChannel extends AbstractChannel {
     protected void doClose() throws Exception {
         if (!closed) {
             closed = true;
+            if (queueScaleFuture != null) {
+                queueScaleFuture.cancel(false);
+            }
+            releasePoller();
+            if (provisionedDevice != null) {
+                closeUnbound(provisionedDevice, new ClosedChannelException());
+                provisionedDevice = null;
+            }
             if (device != null) {
-                device.close();
+                try {
+                    device.close();
+                }
+                finally {
+                    if (devicePool != null) {
+                        devicePool.release(device.localAddress().ifName());
+                    }
+                }
+            }
+            if (readLoopGroup != null) {
+                readLoopGroup.shutdownGracefully();
+            }
+        }
+    }
+
+    /**
+     * Deregisters the device's queues from a shared poller, or closes the channel's own poller.
+     * Releases the group shared by all channels reading on virtual threads, if used.
+     */
+    private void releasePoller() {
+        if (sharedPoller) {
+            // deregister before the file descriptors are closed and reused
+            final LinuxTunDevice linuxDevice = (LinuxTunDevice) device;
+            for (int i = 0; i < linuxDevice.queues(); i++) {
+                poller.deregister(linuxDevice.fd(i));
             }
-            readLoop.shutdownGracefully();
+        }
+        else if (poller != null) {
+            poller.close();
+        }
+        if (sharedReaderGroup) {
+            sharedReaderGroup = false;
+            VirtualThreads.releaseReaderGroup();
         }
     }
 
@@ -143,25 +715,118 @@ public class TunChannel extends AbstractChannel {
      */
     @SuppressWarnings("java:S112")
     protected int doReadMessages(List<Object> msgs) throws Exception {
-        final TunPacket msg = device.readPacket(alloc());
+        return doReadMessages(msgs, 0);
+    }
+
+    /**
+     * Read messages from the given queue into the given array and return the amount which was
+     * read.
+     */
+    @SuppressWarnings("java:S112")
+    protected int doReadMessages(final List<Object> msgs, final int queue) throws Exception {
+        final TunPacket msg;
+        if (device instanceof LinuxTunDevice) {
+            msg = ((LinuxTunDevice) device).readPacket(alloc(), queue);
+        }
+        else {
+            msg = device.readPacket(alloc());
+        }
+        if (msg == null) {
+            // non-blocking device has been drained
+            return 0;
+        }
         msgs.add(msg);
         return 1;
     }
 
     @Override
     protected void doWrite(ChannelOutboundBuffer in) throws Exception {
+        if (device instanceof LinuxTunDevice && (((LinuxTunDevice) device).isTcpCoalesce() || config.getIoUring() > 0)) {
+            doWriteCoalesced(in);
+            return;
+        }
+
         while (true) {
-            final Object msg = in.current();
+            final TunPacket msg = (TunPacket) in.current();
             if (msg == null) {
                 break;
             }
 
+            final boolean written;
             try {
-                device.writePacket(alloc(), (TunPacket) (((TunPacket) msg).retain()));
+                written = tryWritePacket(msg);
             }
-            finally {
+            catch (final Exception e) {
                 in.remove();
+                throw e;
+            }
+            if (!written) {
+                // keep packet in outbound buffer, so that the water marks apply
+                awaitWritable(((LinuxTunDevice) device).writeQueue(msg));
+                return;
+            }
+            in.remove();
+        }
+    }
+
+    /**
+     * Writes the given packet. Returns {@code false} if the device is non-blocking and the
+     * packet's queue is not writable. The packet is not released.
+     */
+    private boolean tryWritePacket(final TunPacket msg) throws IOException {
+        if (device instanceof LinuxTunDevice && ((LinuxTunDevice) device).isNonBlocking()) {
+            return ((LinuxTunDevice) device).tryWritePacket(alloc(), (TunPacket) msg.retain());
+        }
+
+        device.writePacket(alloc(), (TunPacket) msg.retain());
+        return true;
+    }
+
+    /**
+     * Suspends flushing until the given queue has become writable.
+     */
+    private void awaitWritable(final int queue) throws IOException {
+        writeBlocked = true;
+        if (poller != null) {
+            poller.armWrite(((LinuxTunDevice) device).fd(queue));
+        }
+        else {
+            // busy polled device without poller
+            eventLoop().schedule(flushTask, 1, MILLISECONDS);
+        }
+    }
+
+    /**
+     * Called by the poller once a queue has become writable.
+     */
+    private void writable() {
+        eventLoop().execute(flushTask);
+    }
+
+    /**
+     * Passes all flushed packets at once to the device, so that consecutive TCP segments can be
+     * coalesced into GSO super-packets and all packets can be submitted to io_uring at once.
+     */
+    private void doWriteCoalesced(final ChannelOutboundBuffer in) throws Exception {
+        final List<TunPacket> msgs = new ArrayList<>(in.size());
+        in.forEachFlushedMessage(msg -> msgs.add((TunPacket) ((TunPacket) msg).retain()));
+
+        final int written;
+        try {
+            written = ((LinuxTunDevice) device).writePackets(alloc(), msgs);
+        }
+        catch (final Exception e) {
+            // the device does not report which packets were written before the failure
+            for (int i = 0; i < msgs.size(); i++) {
+                in.remove(e);
             }
+            throw e;
+        }
+        for (int i = 0; i < written; i++) {
+            in.remove();
+        }
+        if (written < msgs.size()) {
+            awaitWritable(((LinuxTunDevice) device).writeQueue((TunPacket) in.current()));
         }
     }
 
@@ -175,16 +840,24 @@ public class TunChannel extends AbstractChannel {
                 "unsupported message type: " + StringUtil.simpleClassName(msg) + EXPECTED_TYPES);
     }
 
-    @SuppressWarnings({ "java:S135", "java:S1117", "java:S1181", "java:S1874", "java:S3776" })
-    private void doRead() {
-        if (!readPending) {
+    @SuppressWarnings({ "java:S135", "java:S1117", "java:S1181", "java:S3776" })
+    private void doRead(final QueueReader reader) {
+        if (!reader.readPending) {
+            return;
+        }
+        reader.readPending = false;
+
+        // stop reading while the event loop is busy processing the previous packets
+        final int room = reader.handoff != null && reader.overflow == STOP_READING ? inboundRoom() : Integer.MAX_VALUE;
+        if (room <= 0) {
+            reader.awaitDrain();
             return;
         }
-        readPending = false;
 
         final ChannelConfig config = config();
         final ChannelPipeline pipeline = pipeline();
-        final RecvByteBufAllocator.Handle allocHandle = unsafe().recvBufAllocHandle();
+        final List<Object> readBuf = reader.readBuf;
+        final RecvByteBufAllocator.ExtendedHandle allocHandle = reader.allocHandle();
         allocHandle.reset(config);
 
         // read messages until RecvByteBuf is full
@@ -192,7 +865,7 @@ public class TunChannel extends AbstractChannel {
         Throwable exception = null;
         try {
             do {
-                int localRead = doReadMessages(readBuf);
+                int localRead = readOrBusyPoll(reader);
                 if (localRead == 0) {
                     break;
                 }
@@ -202,7 +875,7 @@ public class TunChannel extends AbstractChannel {
                 }
 
                 allocHandle.incMessagesRead(localRead);
-            } while (allocHandle.continueReading());
+            } while (readBuf.size() < room && allocHandle.continueReading());
         }
         catch (final Throwable t) {
             exception = t;
@@ -213,13 +886,25 @@ public class TunChannel extends AbstractChannel {
         int size = readBuf.size();
         if (size > 0) {
             readData = true;
-            for (int i = 0; i < size; i++) {
-                readPending = false;
-                pipeline.fireChannelRead(readBuf.get(i));
+            if (reader.handoff != null) {
+                // pass all packets to the event loop with at most one task
+                for (int i = 0; i < size; i++) {
+                    reader.enqueue(readBuf.get(i));
+                }
+                reader.scheduleDrain();
+            }
+            else {
+                for (int i = 0; i < size; i++) {
+                    reader.readPending = false;
+                    pipeline.fireChannelRead(readBuf.get(i));
+                }
             }
             readBuf.clear();
+            reader.packetsRead += size;
             allocHandle.readComplete();
-            pipeline.fireChannelReadComplete();
+            if (reader.handoff == null) {
+                pipeline.fireChannelReadComplete();
+            }
         }
 
         if (exception != null) {
@@ -237,11 +922,65 @@ public class TunChannel extends AbstractChannel {
                 unsafe().close(unsafe().voidPromise());
             }
         }
-        else if (readPending || config.isAutoRead() || !readData && isActive()) {
+        else if (reader.handoff != null) {
+            // continue directly on the reader's thread instead of requesting a read via the event loop
+            if (config.isAutoRead() || !readData && isActive()) {
+                if (reader.overflow != STOP_READING || inboundRoom() > 0) {
+                    reader.beginRead();
+                }
+                else {
+                    reader.awaitDrain();
+                }
+            }
+        }
+        else if (reader.readPending || config.isAutoRead() || !readData && isActive()) {
             read();
         }
     }
 
+    /**
+     * Returns how many more packets read by reader threads may be queued for the event loop.
+     */
+    private int inboundRoom() {
+        final int bytesLimit = config.getInboundBytes();
+        if (bytesLimit > 0 && inboundBytes.get() >= bytesLimit) {
+            return 0;
+        }
+        return config.getInboundPackets() - inboundPackets.get();
+    }
+
+    /**
+     * Reads from the reader's queue. If busy polling is enabled and the queue is drained before
+     * anything has been read, the queue is polled until a packet arrives or the budget is used up.
+     * Then, the reader waits for the queue to become readable. Busy polling is limited to the
+     * dedicated threads of blocking readers.
+     */
+    @SuppressWarnings("java:S112")
+    private int readOrBusyPoll(final QueueReader reader) throws Exception {
+        int localRead = doReadMessages(reader.readBuf, reader.queue);
+        if (localRead != 0 || busyPollNanos == 0 || !reader.readBuf.isEmpty()) {
+            return localRead;
+        }
+
+        final long deadline = System.nanoTime() + busyPollNanos;
+        do {
+            Thread.onSpinWait();
+            localRead = doReadMessages(reader.readBuf, reader.queue);
+            if (localRead != 0) {
+                busyPollHits.increment();
+                return localRead;
+            }
+        } while (System.nanoTime() - deadline < 0);
+        busyPollMisses.increment();
+
+        final LinuxTunDevice linuxDevice = (LinuxTunDevice) device;
+        while (localRead == 0) {
+            linuxDevice.awaitReadable(reader.queue);
+            localRead = doReadMessages(reader.readBuf, reader.queue);
+        }
+        return localRead;
+    }
+
     @Override
     protected AbstractUnsafe newUnsafe() {
         return new TunChannelUnsafe();
@@ -249,26 +988,90 @@ public class TunChannel extends AbstractChannel {
 
     @Override
     protected boolean isCompatible(final EventLoop loop) {
-        return loop instanceof DefaultEventLoop;
+        // the device is not registered with the event loop's selector, so any event loop will do.
+        // this allows sharing a loop with e.g. a NioDatagramChannel or EpollDatagramChannel
+        return true;
     }
 
     @Override
     protected void doBeginRead() {
-        if (readPending) {
-            return;
-        }
         if (!isActive()) {
             return;
         }
 
-        readPending = true;
-        readLoop.execute(readTask);
+        for (final QueueReader reader : readers) {
+            reader.beginRead();
+        }
     }
 
     public TunDevice device() {
         return device;
     }
 
+    /**
+     * Returns how often a drained queue has received a packet while it was busy polled (see {@link
+     * TunChannelOption#TUN_BUSY_POLL_MICROS}).
+     *
+     * @return how often busy polling has paid off
+     */
+    public long busyPollHits() {
+        return busyPollHits.sum();
+    }
+
+    /**
+     * Returns how often a drained queue has received no packet while it was busy polled (see
+     * {@link TunChannelOption#TUN_BUSY_POLL_MICROS}), so the reader had to wait.
+     *
+     * @return how often busy polling has not paid off
+     */
+    public long busyPollMisses() {
+        return busyPollMisses.sum();
+    }
+
+    /**
+     * Passes the file descriptors of this channel's device to a successor process waiting in
+     * {@link TunHandoff#receive(Path)} and closes this channel afterwards. As the successor keeps
+     * the device open, it is not removed and retains its addresses, routes and the packets queued
+     * by the kernel. The successor continues using it with {@link TunChannelOption#TUN_FDS}. Only
+     * supported on Linux.
+     *
+     * @param path path of the successor's socket
+     * @return future completed once the descriptors have been sent and this channel is closed
+     */
+    public ChannelFuture handoff(final Path path) {
+        final ChannelPromise promise = newPromise();
+        eventLoop().execute(() -> {
+            if (!(device instanceof LinuxTunDevice) || closed) {
+                promise.setFailure(new IllegalStateException("Only bound Linux devices can be handed off."));
+                return;
+            }
+            final LinuxTunDevice linuxDevice = (LinuxTunDevice) device;
+            final int[] fds = new int[linuxDevice.queues()];
+            for (int i = 0; i < fds.length; i++) {
+                fds[i] = linuxDevice.fd(i);
+            }
+            try {
+                TunHandoff.send(path, fds);
+            }
+            catch (final IOException e) {
+                promise.setFailure(e);
+                return;
+            }
+            close(promise);
+        });
+        return promise;
+    }
+
+    /**
+     * Returns how many read packets have been dropped because too many packets were waiting to be
+     * processed by the event loop (see {@link TunChannelOption#TUN_INBOUND_OVERFLOW}).
+     *
+     * @return number of dropped packets
+     */
+    public long inboundDrops() {
+        return inboundDrops.sum();
+    }
+
     private class TunChannelUnsafe extends AbstractUnsafe {
         @Override
         public void connect(final SocketAddress remoteAddress,
@@ -276,5 +1079,211 @@ public class TunChannel extends AbstractChannel {
                             final ChannelPromise promise) {
             throw new AlreadyConnectedException();
         }
+
+        @Override
+        protected final void flush0() {
+            // flush once the device has become writable again
+            if (!writeBlocked) {
+                super.flush0();
+            }
+        }
+
+        void forceFlush() {
+            writeBlocked = false;
+            super.flush0();
+        }
+    }
+
+    /**
+     * Reads packets from a single queue of the device.
+     */
+    private final class QueueReader implements Runnable {
+        private final int queue;
+        private final Executor executor;
+        private final List<Object> readBuf = new ArrayList<>();
+        // packets read on a thread other than the event loop, passed to the event loop in batches
+        private final Queue<Object> handoff;
+        private final TunOverflowPolicy overflow;
+        private final AtomicBoolean drainScheduled = new AtomicBoolean();
+        private final AtomicBoolean waitingForDrain = new AtomicBoolean();
+        private final Runnable drainTask = this::drain;
+        private RecvByteBufAllocator.ExtendedHandle allocHandle;
+        private volatile boolean readPending;
+        // written by the reader only
+        private volatile long packetsRead;
+        // accessed by the event loop only
+        private long lastPacketsRead;
+
+        QueueReader(final int queue, final Executor executor) {
+            this.queue = queue;
+            this.executor = executor;
+            this.overflow = config.getInboundOverflow();
+            // the inbound limits are shared by all queues, so a single queue never holds more packets
+            final int capacity = config.getInboundPackets();
+            if (executor == eventLoop()) {
+                this.handoff = null;
+            }
+            else if (overflow == DROP_HEAD) {
+                // the reader itself removes packets, too
+                this.handoff = new ArrayBlockingQueue<>(capacity);
+            }
+            else {
+                this.handoff = PlatformDependent.newFixedMpscQueue(capacity);
+            }
+        }
+
+        @Override
+        public void run() {
+            doRead(this);
+        }
+
+        RecvByteBufAllocator.ExtendedHandle allocHandle() {
+            if (allocHandle == null) {
+                allocHandle = (RecvByteBufAllocator.ExtendedHandle) config().getRecvByteBufAllocator().newHandle();
+            }
+            return allocHandle;
+        }
+
+        void schedule() {
+            executor.execute(this);
+        }
+
+        /**
+         * Queues the given packet for the event loop. If the inbound limits have been reached,
+         * packets are dropped according to {@link #overflow}.
+         */
+        void enqueue(final Object msg) {
+            final int bytes = ((ByteBufHolder) msg).content().readableBytes();
+            if (overflow != STOP_READING) {
+                while (!fits(bytes)) {
+                    final Object head = overflow == DROP_HEAD ? handoff.poll() : null;
+                    if (head == null) {
+                        drop(msg);
+                        return;
+                    }
+                    dequeued(head);
+                    drop(head);
+                }
+            }
+            inboundPackets.incrementAndGet();
+            inboundBytes.addAndGet(bytes);
+            if (!handoff.offer(msg)) {
+                // TUN_INBOUND_PACKETS has been raised after the channel was bound
+                dequeued(msg);
+                drop(msg);
+            }
+        }
+
+        private boolean fits(final int bytes) {
+            final int bytesLimit = config.getInboundBytes();
+            return inboundPackets.get() < config.getInboundPackets() && (bytesLimit == 0 || inboundBytes.get() + bytes <= bytesLimit);
+        }
+
+        private void dequeued(final Object msg) {
+            inboundPackets.decrementAndGet();
+            inboundBytes.addAndGet(-((ByteBufHolder) msg).content().readableBytes());
+        }
+
+        private void drop(final Object msg) {
+            inboundDrops.increment();
+            ReferenceCountUtil.release(msg);
+        }
+
+        void scheduleDrain() {
+            if (drainScheduled.compareAndSet(false, true)) {
+                try {
+                    eventLoop().execute(drainTask);
+                }
+                catch (final RejectedExecutionException e) {
+                    // event loop has been shut down while the channel was closing
+                    Object msg;
+                    while ((msg = handoff.poll()) != null) {
+                        dequeued(msg);
+                        ReferenceCountUtil.release(msg);
+                    }
+                    // packets read afterwards must be released, too
+                    drainScheduled.set(false);
+                }
+            }
+        }
+
+        /**
+         * Fires the packets passed by the reader's thread, followed by a single {@code
+         * channelReadComplete}. Resumes the reader if it has been waiting for space in the queue.
+         */
+        private void drain() {
+            drainScheduled.set(false);
+            final ChannelPipeline pipeline = pipeline();
+            int drained = 0;
+            Object msg;
+            while (drained < MAX_DRAIN && (msg = handoff.poll()) != null) {
+                dequeued(msg);
+                pipeline.fireChannelRead(msg);
+                drained++;
+            }
+            if (drained > 0) {
+                pipeline.fireChannelReadComplete();
+            }
+            if (!handoff.isEmpty()) {
+                scheduleDrain();
+            }
+            // the limits are shared by all queues
+            for (final QueueReader reader : readers) {
+                if (reader.waitingForDrain.compareAndSet(true, false)) {
+                    reader.beginRead();
+                }
+            }
+        }
+
+        /**
+         * Pauses reading until the event loop has drained the queue.
+         */
+        void awaitDrain() {
+            waitingForDrain.set(true);
+            // the queue might have been drained in the meantime
+            if (inboundRoom() > 0 && waitingForDrain.compareAndSet(true, false)) {
+                beginRead();
+            }
+        }
+
+        void beginRead() {
+            if (readPending) {
+                return;
+            }
+            if (device instanceof LinuxTunDevice && !((LinuxTunDevice) device).isQueueAttached(queue)) {
+                // detached queues do not receive any packets
+                return;
+            }
+
+            readPending = true;
+            if (poller != null) {
+                try {
+                    poller.arm(((LinuxTunDevice) device).fd(queue));
+                }
+                catch (final IOException e) {
+                    pipeline().fireExceptionCaught(e);
+                    unsafe().close(unsafe().voidPromise());
+                }
+            }
+            else {
+                schedule();
+            }
+        }
+    }
+
+    /**
+     * Device opened by {@link #openDevice(SocketAddress)}, together with the pool it has been taken
+     * from.
+     */
+    private static final class OpenedDevice {
+        final TunDevice device;
+        final TunDevicePool pool;
+        final String pooledName;
+
+        OpenedDevice(final TunDevice device, final TunDevicePool pool, final String pooledName) {
+            this.device = device;
+            this.pool = pool;
+            this.pooledName = pooledName;
+        }
     }
 }
@@ -23,6 +23,10 @@ package org.drasyl.channel.tun;
 
 import io.netty.channel.ChannelConfig;
 
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+
 /**
  * A {@link ChannelConfig} for a {@link TunChannel}.
  *
@@ -36,6 +40,66 @@ import io.netty.channel.ChannelConfig;
  * <th>Name</th><th>Associated setter method</th>
  * </tr><tr>
  * <td>{@link TunChannelOption#TUN_MTU}</td><td>{@link #setMtu(int)}</td>
+ * </tr><tr>
+ * <td>{@link TunChannelOption#TUN_EPOLL}</td><td>{@link #setEpoll(boolean)}</td>
+ * </tr><tr>
+ * <td>{@link TunChannelOption#TUN_QUEUES}</td><td>{@link #setQueues(int)}</td>
+ * </tr><tr>
+ * <td>{@link TunChannelOption#TUN_QUEUES_MIN}</td><td>{@link #setMinQueues(int)}</td>
+ * </tr><tr>
+ * <td>{@link TunChannelOption#TUN_QUEUE_SCALE_UP_THRESHOLD}</td><td>{@link #setQueueScaleUpThreshold(int)}</td>
+ * </tr><tr>
+ * <td>{@link TunChannelOption#TUN_QUEUE_SCALE_DOWN_THRESHOLD}</td><td>{@link #setQueueScaleDownThreshold(int)}</td>
+ * </tr><tr>
+ * <td>{@link TunChannelOption#TUN_QUEUE_SCALE_INTERVAL_MILLIS}</td><td>{@link #setQueueScaleIntervalMillis(int)}</td>
+ * </tr><tr>
+ * <td>{@link TunChannelOption#TUN_VNET_HDR}</td><td>{@link #setVnetHdr(boolean)}</td>
+ * </tr><tr>
+ * <td>{@link TunChannelOption#TUN_TSO}</td><td>{@link #setTso(boolean)}</td>
+ * </tr><tr>
+ * <td>{@link TunChannelOption#TUN_CSUM_OFFLOAD}</td><td>{@link #setCsumOffload(boolean)}</td>
+ * </tr><tr>
+ * <td>{@link TunChannelOption#TUN_USO}</td><td>{@link #setUso(boolean)}</td>
+ * </tr><tr>
+ * <td>{@link TunChannelOption#TUN_TCP_COALESCE}</td><td>{@link #setTcpCoalesce(boolean)}</td>
+ * </tr><tr>
+ * <td>{@link TunChannelOption#TUN_NAPI}</td><td>{@link #setNapi(boolean)}</td>
+ * </tr><tr>
+ * <td>{@link TunChannelOption#TUN_IO_URING}</td><td>{@link #setIoUring(int)}</td>
+ * </tr><tr>
+ * <td>{@link TunChannelOption#TUN_FILTER}</td><td>{@link #setFilter(TunFilter)}</td>
+ * </tr><tr>
+ * <td>{@link TunChannelOption#TUN_BUSY_POLL_MICROS}</td><td>{@link #setBusyPollMicros(int)}</td>
+ * </tr><tr>
+ * <td>{@link TunChannelOption#TUN_READER_THREAD_FACTORY}</td><td>{@link #setReaderThreadFactory(ThreadFactory)}</td>
+ * </tr><tr>
+ * <td>{@link TunChannelOption#TUN_READER_EXECUTOR}</td><td>{@link #setReaderExecutor(Executor)}</td>
+ * </tr><tr>
+ * <td>{@link TunChannelOption#TUN_READER_CPUS}</td><td>{@link #setReaderCpus(List)}</td>
+ * </tr><tr>
+ * <td>{@link TunChannelOption#TUN_READER_GROUP}</td><td>{@link #setReaderGroup(TunReaderGroup)}</td>
+ * </tr><tr>
+ * <td>{@link TunChannelOption#TUN_VIRTUAL_THREADS}</td><td>{@link #setVirtualThreads(boolean)}</td>
+ * </tr><tr>
+ * <td>{@link TunChannelOption#TUN_SNDBUF}</td><td>{@link #setSndbuf(int)}</td>
+ * </tr><tr>
+ * <td>{@link TunChannelOption#TUN_INBOUND_PACKETS}</td><td>{@link #setInboundPackets(int)}</td>
+ * </tr><tr>
+ * <td>{@link TunChannelOption#TUN_INBOUND_BYTES}</td><td>{@link #setInboundBytes(int)}</td>
+ * </tr><tr>
+ * <td>{@link TunChannelOption#TUN_INBOUND_OVERFLOW}</td><td>{@link #setInboundOverflow(TunOverflowPolicy)}</td>
+ * </tr><tr>
+ * <td>{@link TunChannelOption#TUN_AUTO_FEATURES}</td><td>{@link #setAutoFeatures(boolean)}</td>
+ * </tr><tr>
+ * <td>{@link TunChannelOption#TUN_DEVICE_POOL}</td><td>{@link #setDevicePool(TunDevicePool)}</td>
+ * </tr><tr>
+ * <td>{@link TunChannelOption#TUN_ADDRESSES}</td><td>{@link #setAddresses(List)}</td>
+ * </tr><tr>
+ * <td>{@link TunChannelOption#TUN_ROUTES}</td><td>{@link #setRoutes(List)}</td>
+ * </tr><tr>
+ * <td>{@link TunChannelOption#TUN_FDS}</td><td>{@link #setFds(int[])}</td>
+ * </tr><tr>
+ * <td>{@link TunChannelOption#TUN_PROVISIONING_EXECUTOR}</td><td>{@link #setProvisioningExecutor(Executor)}</td>
  * </tr>
  * </table>
  */
@@ -49,4 +113,304 @@ public interface TunChannelConfig extends ChannelConfig {
      * Sets the {@link TunChannelOption#TUN_MTU} option.
      */
     TunChannelConfig setMtu(int mtu);
+
+    /**
+     * Gets the {@link TunChannelOption#TUN_EPOLL} option.
+     */
+    boolean isEpoll();
+
+    /**
+     * Sets the {@link TunChannelOption#TUN_EPOLL} option.
+     */
+    TunChannelConfig setEpoll(boolean epoll);
+
+    /**
+     * Gets the {@link TunChannelOption#TUN_QUEUES} option.
+     */
+    int getQueues();
+
+    /**
+     * Sets the {@link TunChannelOption#TUN_QUEUES} option.
+     */
+    TunChannelConfig setQueues(int queues);
+
+    /**
+     * Gets the {@link TunChannelOption#TUN_QUEUES_MIN} option.
+     */
+    int getMinQueues();
+
+    /**
+     * Sets the {@link TunChannelOption#TUN_QUEUES_MIN} option.
+     */
+    TunChannelConfig setMinQueues(int minQueues);
+
+    /**
+     * Gets the {@link TunChannelOption#TUN_QUEUE_SCALE_UP_THRESHOLD} option.
+     */
+    int getQueueScaleUpThreshold();
+
+    /**
+     * Sets the {@link TunChannelOption#TUN_QUEUE_SCALE_UP_THRESHOLD} option.
+     */
+    TunChannelConfig setQueueScaleUpThreshold(int queueScaleUpThreshold);
+
+    /**
+     * Gets the {@link TunChannelOption#TUN_QUEUE_SCALE_DOWN_THRESHOLD} option.
+     */
+    int getQueueScaleDownThreshold();
+
+    /**
+     * Sets the {@link TunChannelOption#TUN_QUEUE_SCALE_DOWN_THRESHOLD} option.
+     */
+    TunChannelConfig setQueueScaleDownThreshold(int queueScaleDownThreshold);
+
+    /**
+     * Gets the {@link TunChannelOption#TUN_QUEUE_SCALE_INTERVAL_MILLIS} option.
+     */
+    int getQueueScaleIntervalMillis();
+
+    /**
+     * Sets the {@link TunChannelOption#TUN_QUEUE_SCALE_INTERVAL_MILLIS} option.
+     */
+    TunChannelConfig setQueueScaleIntervalMillis(int queueScaleIntervalMillis);
+
+    /**
+     * Gets the {@link TunChannelOption#TUN_VNET_HDR} option.
+     */
+    boolean isVnetHdr();
+
+    /**
+     * Sets the {@link TunChannelOption#TUN_VNET_HDR} option.
+     */
+    TunChannelConfig setVnetHdr(boolean vnetHdr);
+
+    /**
+     * Gets the {@link TunChannelOption#TUN_TSO} option.
+     */
+    boolean isTso();
+
+    /**
+     * Sets the {@link TunChannelOption#TUN_TSO} option.
+     */
+    TunChannelConfig setTso(boolean tso);
+
+    /**
+     * Gets the {@link TunChannelOption#TUN_CSUM_OFFLOAD} option.
+     */
+    boolean isCsumOffload();
+
+    /**
+     * Sets the {@link TunChannelOption#TUN_CSUM_OFFLOAD} option.
+     */
+    TunChannelConfig setCsumOffload(boolean csumOffload);
+
+    /**
+     * Gets the {@link TunChannelOption#TUN_USO} option.
+     */
+    boolean isUso();
+
+    /**
+     * Sets the {@link TunChannelOption#TUN_USO} option.
+     */
+    TunChannelConfig setUso(boolean uso);
+
+    /**
+     * Gets the {@link TunChannelOption#TUN_TCP_COALESCE} option.
+     */
+    boolean isTcpCoalesce();
+
+    /**
+     * Sets the {@link TunChannelOption#TUN_TCP_COALESCE} option.
+     */
+    TunChannelConfig setTcpCoalesce(boolean tcpCoalesce);
+
+    /**
+     * Gets the {@link TunChannelOption#TUN_NAPI} option.
+     */
+    boolean isNapi();
+
+    /**
+     * Sets the {@link TunChannelOption#TUN_NAPI} option.
+     */
+    TunChannelConfig setNapi(boolean napi);
+
+    /**
+     * Gets the {@link TunChannelOption#TUN_IO_URING} option.
+     */
+    int getIoUring();
+
+    /**
+     * Sets the {@link TunChannelOption#TUN_IO_URING} option.
+     */
+    TunChannelConfig setIoUring(int ioUring);
+
+    /**
+     * Gets the {@link TunChannelOption#TUN_FILTER} option.
+     */
+    TunFilter getFilter();
+
+    /**
+     * Sets the {@link TunChannelOption#TUN_FILTER} option.
+     */
+    TunChannelConfig setFilter(TunFilter filter);
+
+    /**
+     * Gets the {@link TunChannelOption#TUN_BUSY_POLL_MICROS} option.
+     */
+    int getBusyPollMicros();
+
+    /**
+     * Sets the {@link TunChannelOption#TUN_BUSY_POLL_MICROS} option.
+     */
+    TunChannelConfig setBusyPollMicros(int busyPollMicros);
+
+    /**
+     * Gets the {@link TunChannelOption#TUN_READER_THREAD_FACTORY} option.
+     */
+    ThreadFactory getReaderThreadFactory();
+
+    /**
+     * Sets the {@link TunChannelOption#TUN_READER_THREAD_FACTORY} option.
+     */
+    TunChannelConfig setReaderThreadFactory(ThreadFactory readerThreadFactory);
+
+    /**
+     * Gets the {@link TunChannelOption#TUN_READER_EXECUTOR} option.
+     */
+    Executor getReaderExecutor();
+
+    /**
+     * Sets the {@link TunChannelOption#TUN_READER_EXECUTOR} option.
+     */
+    TunChannelConfig setReaderExecutor(Executor readerExecutor);
+
+    /**
+     * Gets the {@link TunChannelOption#TUN_READER_CPUS} option.
+     */
+    List<Integer> getReaderCpus();
+
+    /**
+     * Sets the {@link TunChannelOption#TUN_READER_CPUS} option.
+     */
+    TunChannelConfig setReaderCpus(List<Integer> readerCpus);
+
+    /**
+     * Gets the {@link TunChannelOption#TUN_READER_GROUP} option.
+     */
+    TunReaderGroup getReaderGroup();
+
+    /**
+     * Sets the {@link TunChannelOption#TUN_READER_GROUP} option.
+     */
+    TunChannelConfig setReaderGroup(TunReaderGroup readerGroup);
+
+    /**
+     * Gets the {@link TunChannelOption#TUN_VIRTUAL_THREADS} option.
+     */
+    boolean isVirtualThreads();
+
+    /**
+     * Sets the {@link TunChannelOption#TUN_VIRTUAL_THREADS} option.
+     */
+    TunChannelConfig setVirtualThreads(boolean virtualThreads);
+
+    /**
+     * Gets the {@link TunChannelOption#TUN_SNDBUF} option.
+     */
+    int getSndbuf();
+
+    /**
+     * Sets the {@link TunChannelOption#TUN_SNDBUF} option.
+     */
+    TunChannelConfig setSndbuf(int sndbuf);
+
+    /**
+     * Gets the {@link TunChannelOption#TUN_INBOUND_PACKETS} option.
+     */
+    int getInboundPackets();
+
+    /**
+     * Sets the {@link TunChannelOption#TUN_INBOUND_PACKETS} option.
+     */
+    TunChannelConfig setInboundPackets(int inboundPackets);
+
+    /**
+     * Gets the {@link TunChannelOption#TUN_INBOUND_BYTES} option.
+     */
+    int getInboundBytes();
+
+    /**
+     * Sets the {@link TunChannelOption#TUN_INBOUND_BYTES} option.
+     */
+    TunChannelConfig setInboundBytes(int inboundBytes);
+
+    /**
+     * Gets the {@link TunChannelOption#TUN_INBOUND_OVERFLOW} option.
+     */
+    TunOverflowPolicy getInboundOverflow();
+
+    /**
+     * Sets the {@link TunChannelOption#TUN_INBOUND_OVERFLOW} option.
+     */
+    TunChannelConfig setInboundOverflow(TunOverflowPolicy inboundOverflow);
+
+    /**
+     * Gets the {@link TunChannelOption#TUN_AUTO_FEATURES} option.
+     */
+    boolean isAutoFeatures();
+
+    /**
+     * Sets the {@link TunChannelOption#TUN_AUTO_FEATURES} option.
+     */
+    TunChannelConfig setAutoFeatures(boolean autoFeatures);
+
+    /**
+     * Gets the {@link TunChannelOption#TUN_DEVICE_POOL} option.
+     */
+    TunDevicePool getDevicePool();
+
+    /**
+     * Sets the {@link TunChannelOption#TUN_DEVICE_POOL} option.
+     */
+    TunChannelConfig setDevicePool(TunDevicePool devicePool);
+
+    /**
+     * Gets the {@link TunChannelOption#TUN_ADDRESSES} option.
+     */
+    List<String> getAddresses();
+
+    /**
+     * Sets the {@link TunChannelOption#TUN_ADDRESSES} option.
+     */
+    TunChannelConfig setAddresses(List<String> addresses);
+
+    /**
+     * Gets the {@link TunChannelOption#TUN_ROUTES} option.
+     */
+    List<String> getRoutes();
+
+    /**
+     * Sets the {@link TunChannelOption#TUN_ROUTES} option.
+     */
+    TunChannelConfig setRoutes(List<String> routes);
+
+    /**
+     * Gets the {@link TunChannelOption#TUN_FDS} option.
+     */
+    int[] getFds();
+
+    /**
+     * Sets the {@link TunChannelOption#TUN_FDS} option.
+     */
+    TunChannelConfig setFds(int[] fds);
+
+    /**
+     * Gets the {@link TunChannelOption#TUN_PROVISIONING_EXECUTOR} option.
+     */
+    Executor getProvisioningExecutor();
+
+    /**
+     * Sets the {@link TunChannelOption#TUN_PROVISIONING_EXECUTOR} option.
+     */
+    TunChannelConfig setProvisioningExecutor(Executor provisioningExecutor);
 }
@@ -23,17 +23,224 @@ package org.drasyl.channel.tun;
 
 import io.netty.channel.ChannelOption;
 
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+
 /**
  * Provides {@link ChannelOption}s for {@link TunChannel}s.
  */
-public final class TunChannelOption<T> extends ChannelOption<T> {
+public final class TunChannelOption {
     /**
      * Defines MTU for the created tun device (not supported on windows).
      */
-    public static final ChannelOption<Integer> TUN_MTU = valueOf("TUN_MTU");
+    public static final ChannelOption<Integer> TUN_MTU = ChannelOption.valueOf("TUN_MTU");
+    /**
+     * Opens the tun device in non-blocking mode and waits for incoming packets using epoll, so that
+     * packets are read on the channel's event loop (only supported on Linux).
+     */
+    public static final ChannelOption<Boolean> TUN_EPOLL = ChannelOption.valueOf("TUN_EPOLL");
+    /**
+     * Defines the number of queues of the created tun device. If greater than {@code 1}, the device
+     * is created with {@code IFF_MULTI_QUEUE} and each queue is served by its own reader (only
+     * supported on Linux).
+     */
+    public static final ChannelOption<Integer> TUN_QUEUES = ChannelOption.valueOf("TUN_QUEUES");
+    /**
+     * Enables elastic queue scaling by defining the minimum number of attached queues of a
+     * multi-queue device. Further queues (up to {@link #TUN_QUEUES}) are attached and detached at
+     * runtime based on the observed load. {@code 0} disables elastic queue scaling (only supported
+     * on Linux).
+     */
+    public static final ChannelOption<Integer> TUN_QUEUES_MIN = ChannelOption.valueOf("TUN_QUEUES_MIN");
+    /**
+     * Defines the packets per second and attached queue above which another queue is attached.
+     */
+    public static final ChannelOption<Integer> TUN_QUEUE_SCALE_UP_THRESHOLD = ChannelOption.valueOf("TUN_QUEUE_SCALE_UP_THRESHOLD");
+    /**
+     * Defines the packets per second and attached queue below which a queue is detached.
+     */
+    public static final ChannelOption<Integer> TUN_QUEUE_SCALE_DOWN_THRESHOLD = ChannelOption.valueOf("TUN_QUEUE_SCALE_DOWN_THRESHOLD");
+    /**
+     * Defines the interval in which the load of the queues is evaluated.
+     */
+    public static final ChannelOption<Integer> TUN_QUEUE_SCALE_INTERVAL_MILLIS = ChannelOption.valueOf("TUN_QUEUE_SCALE_INTERVAL_MILLIS");
+    /**
+     * Creates the tun device with {@code IFF_VNET_HDR}, so that each packet carries a {@link
+     * VirtioNetHeader} describing its offloads (only supported on Linux).
+     */
+    public static final ChannelOption<Boolean> TUN_VNET_HDR = ChannelOption.valueOf("TUN_VNET_HDR");
+    /**
+     * Enables TCP segmentation offload ({@code TUN_F_TSO4} and {@code TUN_F_TSO6}). The host's
+     * network stack then passes TCP GSO super-packets of up to 64 KB to the channel, whose {@link
+     * VirtioNetHeader} describes how to segment them. Implies {@link #TUN_VNET_HDR} (only supported
+     * on Linux).
+     */
+    public static final ChannelOption<Boolean> TUN_TSO = ChannelOption.valueOf("TUN_TSO");
+    /**
+     * Passes written TCP/UDP packets to the kernel with a partial checksum and {@link
+     * VirtioNetHeader#VIRTIO_NET_HDR_F_NEEDS_CSUM}, so that the kernel completes the checksum.
+     * The checksum fields of these packets therefore do not have to be calculated. Implies {@link
+     * #TUN_VNET_HDR} (only supported on Linux).
+     */
+    public static final ChannelOption<Boolean> TUN_CSUM_OFFLOAD = ChannelOption.valueOf("TUN_CSUM_OFFLOAD");
+    /**
+     * Enables UDP segmentation offload ({@code TUN_F_USO4} and {@code TUN_F_USO6}). The host's
+     * network stack then passes UDP GSO super-packets ({@link
+     * VirtioNetHeader#VIRTIO_NET_HDR_GSO_UDP_L4}) to the channel, whose {@link
+     * VirtioNetHeader#gsoSize()} describes the size of each datagram. Silently ignored by kernels
+     * not supporting it (prior to 6.2). Implies {@link #TUN_VNET_HDR} (only supported on Linux).
+     */
+    public static final ChannelOption<Boolean> TUN_USO = ChannelOption.valueOf("TUN_USO");
+    /**
+     * Coalesces consecutive in-order TCP segments of the same flow written in one flush into a
+     * single GSO super-packet, which is then written to the device with a single system call.
+     * Implies {@link #TUN_VNET_HDR} (only supported on Linux).
+     */
+    public static final ChannelOption<Boolean> TUN_TCP_COALESCE = ChannelOption.valueOf("TUN_TCP_COALESCE");
+    /**
+     * Opens the device with {@code IFF_NAPI}, so that written packets are passed through NAPI and
+     * the kernel can apply GRO to them instead of processing them one at a time. Requires {@code
+     * CAP_NET_ADMIN} (only supported on Linux).
+     */
+    public static final ChannelOption<Boolean> TUN_NAPI = ChannelOption.valueOf("TUN_NAPI");
+    /**
+     * Number of reads kept in flight per queue by io_uring, or {@code 0} to read and write each
+     * packet with its own system call. With io_uring, completed reads are handed back to the kernel
+     * in batches and all packets of a flush are written with a single {@code io_uring_enter} call.
+     * Can not be combined with {@link #TUN_EPOLL} (only supported on Linux 5.6 and later).
+     */
+    public static final ChannelOption<Integer> TUN_IO_URING = ChannelOption.valueOf("TUN_IO_URING");
+    /**
+     * {@link TunFilter} executed by the kernel for each packet before it is queued for reading, so
+     * dropped packets never reach the channel. Can be replaced while the channel is active. Use
+     * {@link TunChannelConfig#setFilter(TunFilter)} with {@code null} (default) to pass all packets
+     * (only supported on Linux 4.16 and later).
+     */
+    public static final ChannelOption<TunFilter> TUN_FILTER = ChannelOption.valueOf("TUN_FILTER");
+    /**
+     * Number of microseconds a reader spins on non-blocking reads once its queue has been drained,
+     * before it falls back to blocking until the next packet arrives. Saves the thread wakeup
+     * latency for packets arriving within this budget at the cost of a busy CPU core per queue.
+     * {@code 0} (default) disables spinning. Requires dedicated reader threads, so it can not be
+     * combined with {@link #TUN_EPOLL}, {@link #TUN_READER_GROUP}, {@link #TUN_VIRTUAL_THREADS}, or
+     * {@link #TUN_IO_URING} (only supported on Linux).
+     */
+    public static final ChannelOption<Integer> TUN_BUSY_POLL_MICROS = ChannelOption.valueOf("TUN_BUSY_POLL_MICROS");
+    /**
+     * {@link ThreadFactory} creating the threads reading from the device (one per queue, or a single
+     * thread waiting via epoll with {@link #TUN_EPOLL}). Allows naming, prioritizing, or otherwise
+     * customizing them. Ignored if {@link #TUN_READER_EXECUTOR} is set.
+     */
+    public static final ChannelOption<ThreadFactory> TUN_READER_THREAD_FACTORY = ChannelOption.valueOf("TUN_READER_THREAD_FACTORY");
+    /**
+     * {@link Executor} providing the threads reading from the device. Each reader occupies its
+     * thread until the channel is closed.
+     */
+    public static final ChannelOption<Executor> TUN_READER_EXECUTOR = ChannelOption.valueOf("TUN_READER_EXECUTOR");
+    /**
+     * CPUs the threads reading from the device are pinned to via {@code sched_setaffinity}. The
+     * reader of queue {@code i} is pinned to the {@code i}-th CPU (modulo the number of given CPUs).
+     * Pinning a reader to the CPU of the event loop consuming its packets lets both share their
+     * caches. {@code null} (default) does not pin the readers (only supported on Linux). Cannot be
+     * combined with {@link #TUN_READER_EXECUTOR}, whose threads would stay pinned after the channel
+     * has been closed. CPUs the host does not support are rejected when the option is set. If a
+     * reader cannot be pinned, e.g. because its CPU is offline, the failure is passed to the
+     * pipeline and the reader runs unpinned.
+     */
+    public static final ChannelOption<List<Integer>> TUN_READER_CPUS = ChannelOption.valueOf("TUN_READER_CPUS");
+    /**
+     * {@link TunReaderGroup} waiting for the queues of this channel to become readable, instead of
+     * reader threads of its own. Packets are then read on the channel's event loop like with {@link
+     * #TUN_EPOLL}. Allows many channels to share a few reader threads (only supported on Linux).
+     */
+    public static final ChannelOption<TunReaderGroup> TUN_READER_GROUP = ChannelOption.valueOf("TUN_READER_GROUP");
+    /**
+     * Reads from the device on virtual threads (one per queue) instead of platform threads, so
+     * that thousands of channels cost almost no platform threads. Virtual threads only perform
+     * non-blocking reads and are woken up by a {@link TunReaderGroup} (the one set by {@link
+     * #TUN_READER_GROUP} or a shared one with a single thread) once their queue has become readable.
+     * The shared group's thread is started by the first channel using it and stopped once the last
+     * of these channels has been closed.
+     * Requires Java 21 or later (only supported on Linux).
+     */
+    public static final ChannelOption<Boolean> TUN_VIRTUAL_THREADS = ChannelOption.valueOf("TUN_VIRTUAL_THREADS");
+    /**
+     * Send buffer size in bytes of the device. Once this many written bytes have not been consumed
+     * by the kernel yet, a non-blocking device (e.g. with {@link #TUN_EPOLL}) stops flushing until
+     * it has become writable again, so that packets pile up in the outbound buffer and the channel
+     * becomes unwritable according to its {@link io.netty.channel.WriteBufferWaterMark}. {@code 0}
+     * keeps the kernel's default, which is effectively unbounded (only supported on Linux).
+     */
+    public static final ChannelOption<Integer> TUN_SNDBUF = ChannelOption.valueOf("TUN_SNDBUF");
+    /**
+     * Maximum number of packets read by a reader thread but not yet processed by the event loop.
+     * Once reached, {@link #TUN_INBOUND_OVERFLOW} applies. Does not apply to packets read on the
+     * event loop (e.g. with {@link #TUN_EPOLL}), as these are processed right away. Defaults to
+     * {@code 1024}. Also sets the capacity of each reader's queue, so raising it after the channel
+     * has been bound drops packets that do not fit into the queue.
+     */
+    public static final ChannelOption<Integer> TUN_INBOUND_PACKETS = ChannelOption.valueOf("TUN_INBOUND_PACKETS");
+    /**
+     * Like {@link #TUN_INBOUND_PACKETS}, but limits the total size in bytes of these packets. With
+     * {@link TunOverflowPolicy#STOP_READING}, a single read batch may exceed this limit. {@code 0}
+     * means no limit.
+     */
+    public static final ChannelOption<Integer> TUN_INBOUND_BYTES = ChannelOption.valueOf("TUN_INBOUND_BYTES");
+    /**
+     * What to do with read packets once {@link #TUN_INBOUND_PACKETS} or {@link #TUN_INBOUND_BYTES}
+     * has been reached. Packets dropped by the channel are counted by {@link
+     * TunChannel#inboundDrops()}.
+     */
+    public static final ChannelOption<TunOverflowPolicy> TUN_INBOUND_OVERFLOW = ChannelOption.valueOf("TUN_INBOUND_OVERFLOW");
+    /**
+     * Probes the kernel's tun driver and enables supported features that speed up writing packets,
+     * unless the corresponding option has been set explicitly: a queue per available processor
+     * ({@link #TUN_QUEUES}), {@link #TUN_VNET_HDR}, {@link #TUN_CSUM_OFFLOAD}, {@link
+     * #TUN_TCP_COALESCE}, and {@link #TUN_NAPI}. {@link #TUN_TSO} and {@link #TUN_USO} stay opt-in,
+     * as they make the channel read GSO super-packets with partial checksums. The result is
+     * reported by {@link org.drasyl.channel.tun.jna.linux.LinuxTunDevice#features()} (only
+     * supported on Linux).
+     */
+    public static final ChannelOption<Boolean> TUN_AUTO_FEATURES = ChannelOption.valueOf("TUN_AUTO_FEATURES");
+    /**
+     * Binds to a persistent device of the given {@link TunDevicePool} instead of creating a new
+     * device. The device is returned to the pool once the channel has been closed (only supported
+     * on Linux).
+     */
+    public static final ChannelOption<TunDevicePool> TUN_DEVICE_POOL = ChannelOption.valueOf("TUN_DEVICE_POOL");
+    /**
+     * Addresses in CIDR notation (e.g. {@code 10.10.10.10/24}) assigned to the device right after
+     * bind via rtnetlink, which also brings the device up. Replaces {@code ip addr add} and {@code
+     * ip link set up} (only supported on Linux).
+     */
+    public static final ChannelOption<List<String>> TUN_ADDRESSES = ChannelOption.valueOf("TUN_ADDRESSES");
+    /**
+     * Prefixes in CIDR notation (e.g. {@code 10.20.0.0/16}) routed to the device right after bind
+     * via rtnetlink, which also brings the device up. Replaces {@code ip route add} (only
+     * supported on Linux).
+     */
+    public static final ChannelOption<List<String>> TUN_ROUTES = ChannelOption.valueOf("TUN_ROUTES");
+    /**
+     * File descriptors of an already opened tun device to be used instead of opening a new one,
+     * e.g. inherited from a supervisor or received from a predecessor process by {@code
+     * TunHandoff#receive(Path)} (see {@link TunChannel#handoff(Path)}). The
+     * descriptors are adopted when the channel is bound and closed with it. The bind address must
+     * name the device or be empty. Vnet headers and the number of queues are taken from the device.
+     * Only supported on Linux.
+     */
+    public static final ChannelOption<int[]> TUN_FDS = ChannelOption.valueOf("TUN_FDS");
+    /**
+     * {@link Executor} on which the device is opened and configured (creation, MTU, filter,
+     * addresses and routes) when the channel is bound. The event loop is then not blocked by these
+     * system calls, and channels sharing an event loop provision their devices in parallel. The
+     * bind future completes once the device is ready. If not set, the device is provisioned on the
+     * event loop.
+     */
+    public static final ChannelOption<Executor> TUN_PROVISIONING_EXECUTOR = ChannelOption.valueOf("TUN_PROVISIONING_EXECUTOR");
 
-    @SuppressWarnings({ "java:S1144", "java:S1874" })
-    private TunChannelOption(final String name) {
-        super(name);
+    private TunChannelOption() {
+        // util class
     }
 }
@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2021-2022 Heiko Bornholdt and Kevin Röbert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.drasyl.channel.tun;
+
+import org.drasyl.channel.tun.jna.linux.LinuxTunDevice;
+import org.drasyl.channel.tun.jna.linux.LinuxTunDeviceOptions;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static io.netty.util.internal.ObjectUtil.checkPositive;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Fixed set of persistent devices named {@code <prefix>0}, {@code <prefix>1}, ..., kept ready for
+ * {@link TunChannel}s (see {@link TunChannelOption#TUN_DEVICE_POOL}). Devices that already exist
+ * (e.g. created by a previous run) are reused, missing ones are created.
+ * <p>
+ * A channel bound to an address without a name gets any free device of the pool, a channel bound
+ * to the name of a device gets this device. As binding only attaches to the existing device, its
+ * MTU, addresses and routes are kept across channels and JVM restarts. Channels without {@link
+ * TunChannelOption#TUN_QUEUES} use the pool's number of queues. Channels setting it must use one
+ * queue if the pool's devices have one queue, and more than one otherwise, or binding fails (only
+ * supported on Linux).
+ * <pre>
+ * TunDevicePool devicePool = new TunDevicePool("tenant", 8);
+ * Bootstrap b = new Bootstrap()
+ *         .group(group)
+ *         .channel(TunChannel.class)
+ *         .option(TunChannelOption.TUN_DEVICE_POOL, devicePool)
+ *         ...
+ * b.bind(new TunAddress("tenant3"));
+ * </pre>
+ */
+public final class TunDevicePool {
+    private final LinuxTunDeviceOptions options;
+    private final List<String> names = new ArrayList<>();
+    private final Set<String> free = new LinkedHashSet<>();
+    private int queues;
+    private boolean destroyed;
+
+    /**
+     * Creates a pool of {@code size} devices.
+     *
+     * @param namePrefix prefix of the device names
+     * @param size       number of devices
+     * @param options    options used to create the devices
+     * @throws IOException if a device could not be created. Devices already created for the pool
+     *                     are removed again
+     */
+    public TunDevicePool(final String namePrefix,
+                         final int size,
+                         final LinuxTunDeviceOptions options) throws IOException {
+        requireNonNull(namePrefix);
+        checkPositive(size, "size");
+        this.options = requireNonNull(options);
+        try {
+            for (int i = 0; i < size; i++) {
+                final String name = namePrefix + i;
+                try (final LinuxTunDevice device = LinuxTunDevice.open(name, options)) {
+                    device.setPersistent(true);
+                    names.add(name);
+                    // might have been chosen by LinuxTunDeviceOptions#autoFeatures()
+                    queues = device.queues();
+                }
+            }
+        }
+        catch (final IOException | RuntimeException e) {
+            // nothing else would remove the devices made persistent so far
+            for (final String name : names) {
+                try {
+                    remove(name);
+                }
+                catch (final IOException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+            }
+            throw e;
+        }
+        free.addAll(names);
+    }
+
+    /**
+     * Creates a pool of {@code size} devices.
+     *
+     * @param namePrefix prefix of the device names
+     * @param size       number of devices
+     * @throws IOException if a device could not be created
+     */
+    public TunDevicePool(final String namePrefix, final int size) throws IOException {
+        this(namePrefix, size, new LinuxTunDeviceOptions());
+    }
+
+    /**
+     * Returns the number of queues of the pool's devices.
+     *
+     * @return the number of queues of the pool's devices
+     */
+    public int queues() {
+        return queues;
+    }
+
+    /**
+     * Reserves the device with the given name, or any free device if {@code name} is {@code
+     * null}.
+     *
+     * @param queues number of queues the channel uses
+     * @return name of the reserved device
+     * @throws IllegalArgumentException if the pool's devices cannot be opened with {@code queues}
+     */
+    synchronized String acquire(final String name, final int queues) throws IOException {
+        if ((queues > 1) != (this.queues > 1)) {
+            // the kernel rejects attaching with and without IFF_MULTI_QUEUE alike with EINVAL
+            throw new IllegalArgumentException("Devices of the pool have " + this.queues + " queue(s), so the channel cannot use " + queues + " queue(s).");
+        }
+        if (destroyed) {
+            throw new IOException("Device pool has been destroyed.");
+        }
+
+        if (name == null || name.isEmpty()) {
+            if (free.isEmpty()) {
+                throw new IOException("All devices of the pool are in use.");
+            }
+            final String freeName = free.iterator().next();
+            free.remove(freeName);
+            return freeName;
+        }
+        else if (free.remove(name)) {
+            return name;
+        }
+        else if (names.contains(name)) {
+            throw new IOException("Device " + name + " is in use.");
+        }
+        else {
+            throw new IOException("Device " + name + " does not belong to the pool.");
+        }
+    }
+
+    /**
+     * Returns the given device to the pool.
+     */
+    synchronized void release(final String name) throws IOException {
+        if (destroyed) {
+            remove(name);
+        }
+        else {
+            free.add(name);
+        }
+    }
+
+    /**
+     * Returns the addresses of all devices of this pool.
+     *
+     * @return the addresses of all devices of this pool
+     */
+    public List<TunAddress> addresses() {
+        final List<TunAddress> addresses = new ArrayList<>(names.size());
+        for (final String name : names) {
+            addresses.add(new TunAddress(name));
+        }
+        return addresses;
+    }
+
+    /**
+     * Returns the number of devices not used by a channel.
+     *
+     * @return the number of devices not used by a channel
+     */
+    public synchronized int available() {
+        return free.size();
+    }
+
+    /**
+     * Removes all devices of this pool. Devices used by a channel are removed once the channel
+     * has been closed.
+     *
+     * @throws IOException if a device could not be removed
+     */
+    public synchronized void destroy() throws IOException {
+        destroyed = true;
+        for (final String name : free) {
+            remove(name);
+        }
+        free.clear();
+    }
+
+    private void remove(final String name) throws IOException {
+        try (final LinuxTunDevice device = LinuxTunDevice.open(name, options)) {
+            device.setPersistent(false);
+        }
+    }
+}
@@ -0,0 +1,398 @@
+/*
+ * Copyright (c) 2021-2022 Heiko Bornholdt and Kevin Röbert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.drasyl.channel.tun;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Filter deciding which packets received by the device are passed to the {@link TunChannel}. The
+ * filter consists of rules that are evaluated in the given order. The first rule matching a packet
+ * decides if the packet is accepted or dropped. Packets not matching any rule are handled according
+ * to the default action.
+ * <p>
+ * On Linux, the filter is executed by the kernel (see {@link TunChannelOption#TUN_FILTER}), so
+ * dropped packets never cause a read or a buffer allocation.
+ * <pre>
+ * TunFilter filter = TunFilter.builder()
+ *         // multicast
+ *         .drop().destination("ff00::/8")
+ *         // router solicitations
+ *         .drop().protocol(InetProtocol.IPV6_ICMP.decimal).icmpType(133)
+ *         .drop().source("10.1.0.0/16")
+ *         .build();
+ * </pre>
+ */
+public final class TunFilter {
+    private final List<Rule> rules;
+    private final boolean acceptByDefault;
+
+    private TunFilter(final List<Rule> rules, final boolean acceptByDefault) {
+        this.rules = Collections.unmodifiableList(new ArrayList<>(rules));
+        this.acceptByDefault = acceptByDefault;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public List<Rule> rules() {
+        return rules;
+    }
+
+    /**
+     * Returns {@code true} if packets not matching any rule are accepted.
+     *
+     * @return {@code true} if packets not matching any rule are accepted
+     */
+    public boolean acceptByDefault() {
+        return acceptByDefault;
+    }
+
+    /**
+     * Returns {@code true} if the given packet is accepted by this filter. This evaluates the
+     * filter in Java, e.g. on platforms without kernel-side filtering.
+     *
+     * @param packet the packet to check
+     * @return {@code true} if the given packet is accepted by this filter
+     */
+    public boolean accepts(final TunPacket packet) {
+        for (final Rule rule : rules) {
+            if (rule.matches(packet)) {
+                return rule.accept;
+            }
+        }
+        return acceptByDefault;
+    }
+
+    @Override
+    public String toString() {
+        return "TunFilter{" +
+                "rules=" + rules +
+                ", acceptByDefault=" + acceptByDefault +
+                '}';
+    }
+
+    /**
+     * Rule of a {@link TunFilter}. All given conditions must be met for a rule to match. Unset
+     * conditions are {@code -1} or {@code null}.
+     * <p>
+     * For IPv6, the protocol is the next header field of the fixed header. Extension headers are
+     * not evaluated. Port and ICMP type conditions only match the first fragment of a packet.
+     */
+    public static final class Rule {
+        private final boolean accept;
+        private int version;
+        private int protocol = -1;
+        private InetAddress source;
+        private int sourcePrefixLength;
+        private InetAddress destination;
+        private int destinationPrefixLength;
+        private int sourcePort = -1;
+        private int destinationPort = -1;
+        private int icmpType = -1;
+
+        private Rule(final boolean accept) {
+            this.accept = accept;
+        }
+
+        /**
+         * Returns {@code true} if matching packets are accepted, {@code false} if they are
+         * dropped.
+         *
+         * @return {@code true} if matching packets are accepted
+         */
+        public boolean accept() {
+            return accept;
+        }
+
+        /**
+         * Returns the IP version ({@code 4} or {@code 6}) or {@code 0} for any version.
+         *
+         * @return the IP version or {@code 0}
+         */
+        public int version() {
+            return version;
+        }
+
+        public int protocol() {
+            return protocol;
+        }
+
+        public InetAddress source() {
+            return source;
+        }
+
+        public int sourcePrefixLength() {
+            return sourcePrefixLength;
+        }
+
+        public InetAddress destination() {
+            return destination;
+        }
+
+        public int destinationPrefixLength() {
+            return destinationPrefixLength;
+        }
+
+        public int sourcePort() {
+            return sourcePort;
+        }
+
+        public int destinationPort() {
+            return destinationPort;
+        }
+
+        public int icmpType() {
+            return icmpType;
+        }
+
+        /**
+         * Returns {@code true} if the given packet matches this rule.
+         *
+         * @param packet the packet to check
+         * @return {@code true} if the given packet matches this rule
+         */
+        @SuppressWarnings({ "java:S109", "java:S3776" })
+        public boolean matches(final TunPacket packet) {
+            final int packetVersion = packet.version();
+            if (version != 0 && packetVersion != version) {
+                return false;
+            }
+
+            final int packetProtocol;
+            final int l4Offset;
+            final boolean firstFragment;
+            if (packet instanceof Tun4Packet) {
+                final Tun4Packet packet4 = (Tun4Packet) packet;
+                packetProtocol = packet4.protocol();
+                l4Offset = packet4.internetHeaderLength() * 4;
+                firstFragment = packet4.fragmentOffset() == 0;
+            }
+            else if (packet instanceof Tun6Packet) {
+                packetProtocol = ((Tun6Packet) packet).nextHeader();
+                l4Offset = Tun6Packet.INET6_HEADER_LENGTH;
+                firstFragment = true;
+            }
+            else {
+                return false;
+            }
+
+            if ((protocol != -1 && packetProtocol != protocol) ||
+                    (source != null && !inPrefix(packet.sourceAddress(), source, sourcePrefixLength)) ||
+                    (destination != null && !inPrefix(packet.destinationAddress(), destination, destinationPrefixLength))) {
+                return false;
+            }
+
+            if (sourcePort != -1 || destinationPort != -1 || icmpType != -1) {
+                if (!firstFragment || packet.content().readableBytes() < l4Offset + 4) {
+                    return false;
+                }
+                return (sourcePort == -1 || packet.content().getUnsignedShort(l4Offset) == sourcePort) &&
+                        (destinationPort == -1 || packet.content().getUnsignedShort(l4Offset + 2) == destinationPort) &&
+                        (icmpType == -1 || packet.content().getUnsignedByte(l4Offset) == icmpType);
+            }
+            return true;
+        }
+
+        @SuppressWarnings("java:S109")
+        private static boolean inPrefix(final InetAddress address,
+                                        final InetAddress prefix,
+                                        final int prefixLength) {
+            final byte[] a = address.getAddress();
+            final byte[] p = prefix.getAddress();
+            if (a.length != p.length) {
+                return false;
+            }
+            for (int i = 0; i < prefixLength; i += 8) {
+                final int mask = 0xff << (8 - Math.min(8, prefixLength - i)) & 0xff;
+                if ((a[i / 8] & mask) != (p[i / 8] & mask)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return "Rule{" +
+                    (accept ? "accept" : "drop") +
+                    (version != 0 ? ", version=" + version : "") +
+                    (protocol != -1 ? ", protocol=" + protocol : "") +
+                    (source != null ? ", source=" + source.getHostAddress() + "/" + sourcePrefixLength : "") +
+                    (destination != null ? ", destination=" + destination.getHostAddress() + "/" + destinationPrefixLength : "") +
+                    (sourcePort != -1 ? ", sourcePort=" + sourcePort : "") +
+                    (destinationPort != -1 ? ", destinationPort=" + destinationPort : "") +
+                    (icmpType != -1 ? ", icmpType=" + icmpType : "") +
+                    '}';
+        }
+    }
+
+    /**
+     * Builder for {@link TunFilter}s. {@link #accept()} and {@link #drop()} start a new rule, the
+     * remaining methods add conditions to the current rule.
+     */
+    public static final class Builder {
+        private final List<Rule> rules = new ArrayList<>();
+        private boolean acceptByDefault = true;
+
+        private Builder() {
+        }
+
+        /**
+         * Starts a new rule accepting matching packets.
+         */
+        public Builder accept() {
+            rules.add(new Rule(true));
+            return this;
+        }
+
+        /**
+         * Starts a new rule dropping matching packets.
+         */
+        public Builder drop() {
+            rules.add(new Rule(false));
+            return this;
+        }
+
+        public Builder version(final int version) {
+            if (version != 4 && version != 6) {
+                throw new IllegalArgumentException("version must be 4 or 6.");
+            }
+            final Rule rule = current();
+            if (rule.version != 0 && rule.version != version) {
+                throw new IllegalArgumentException("rule has already been restricted to IPv" + rule.version + ".");
+            }
+            rule.version = version;
+            return this;
+        }
+
+        public Builder protocol(final int protocol) {
+            if (protocol < 0 || protocol > 255) {
+                throw new IllegalArgumentException("protocol must be within 0 and 255.");
+            }
+            current().protocol = protocol;
+            return this;
+        }
+
+        /**
+         * Matches packets sent from the given prefix.
+         *
+         * @param cidr prefix in CIDR notation (e.g. {@code 10.0.0.0/8}). Without prefix length, only
+         *             the given address is matched.
+         */
+        public Builder source(final String cidr) {
+            final InetPrefix prefix = InetPrefix.parse(cidr);
+            return source(prefix.address(), prefix.prefixLength());
+        }
+
+        public Builder source(final InetAddress address, final int prefixLength) {
+            checkPrefix(address, prefixLength);
+            final Rule rule = current();
+            version(address instanceof Inet4Address ? 4 : 6);
+            rule.source = address;
+            rule.sourcePrefixLength = prefixLength;
+            return this;
+        }
+
+        /**
+         * Matches packets sent to the given prefix.
+         *
+         * @param cidr prefix in CIDR notation (e.g. {@code ff00::/8}). Without prefix length, only
+         *             the given address is matched.
+         */
+        public Builder destination(final String cidr) {
+            final InetPrefix prefix = InetPrefix.parse(cidr);
+            return destination(prefix.address(), prefix.prefixLength());
+        }
+
+        public Builder destination(final InetAddress address, final int prefixLength) {
+            checkPrefix(address, prefixLength);
+            final Rule rule = current();
+            version(address instanceof Inet4Address ? 4 : 6);
+            rule.destination = address;
+            rule.destinationPrefixLength = prefixLength;
+            return this;
+        }
+
+        public Builder sourcePort(final int port) {
+            current().sourcePort = checkPort(port);
+            return this;
+        }
+
+        public Builder destinationPort(final int port) {
+            current().destinationPort = checkPort(port);
+            return this;
+        }
+
+        /**
+         * Matches ICMP/ICMPv6 packets of the given type. Should be combined with {@link
+         * #protocol(int)}.
+         */
+        public Builder icmpType(final int type) {
+            if (type < 0 || type > 255) {
+                throw new IllegalArgumentException("type must be within 0 and 255.");
+            }
+            current().icmpType = type;
+            return this;
+        }
+
+        /**
+         * Sets whether packets not matching any rule are accepted (default) or dropped.
+         */
+        public Builder acceptByDefault(final boolean acceptByDefault) {
+            this.acceptByDefault = acceptByDefault;
+            return this;
+        }
+
+        public TunFilter build() {
+            return new TunFilter(rules, acceptByDefault);
+        }
+
+        private Rule current() {
+            if (rules.isEmpty()) {
+                throw new IllegalStateException("accept() or drop() must be called first.");
+            }
+            return rules.get(rules.size() - 1);
+        }
+
+        private static int checkPort(final int port) {
+            if (port < 0 || port > 65535) {
+                throw new IllegalArgumentException("port must be within 0 and 65535.");
+            }
+            return port;
+        }
+
+        private static void checkPrefix(final InetAddress address, final int prefixLength) {
+            requireNonNull(address);
+            if (prefixLength < 0 || prefixLength > address.getAddress().length * 8) {
+                throw new IllegalArgumentException("Invalid prefix length: " + prefixLength);
+            }
+        }
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2021-2022 Heiko Bornholdt and Kevin Röbert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.drasyl.channel.tun;
+
+/**
+ * What a {@link TunChannel} does with packets read from the device while its inbound queue is
+ * full (see {@link TunChannelOption#TUN_INBOUND_PACKETS} and {@link
+ * TunChannelOption#TUN_INBOUND_BYTES}).
+ */
+public enum TunOverflowPolicy {
+    /**
+     * Stops reading until the event loop has processed queued packets. Further packets then pile
+     * up in the device and are dropped by the kernel once its transmit queue is full.
+     */
+    STOP_READING,
+    /**
+     * Keeps reading and drops the newly read packets.
+     */
+    DROP_TAIL,
+    /**
+     * Keeps reading and drops the oldest queued packets in favor of the newly read ones.
+     */
+    DROP_HEAD
+}
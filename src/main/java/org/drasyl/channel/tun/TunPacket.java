@@ -26,6 +26,8 @@ import io.netty.buffer.DefaultByteBufHolder;
 
 import java.net.InetAddress;
 
+import static java.util.Objects.requireNonNull;
+
 /**
  * Envelope class for IPv4 and IPv6 packets received from/sent to TUN devices.
  *
@@ -34,8 +36,26 @@ import java.net.InetAddress;
  */
 @SuppressWarnings("java:S118")
 public abstract class TunPacket extends DefaultByteBufHolder {
-    protected TunPacket(final ByteBuf data) {
+    private final VirtioNetHeader virtioNetHeader;
+
+    protected TunPacket(final ByteBuf data, final VirtioNetHeader virtioNetHeader) {
         super(data);
+        this.virtioNetHeader = requireNonNull(virtioNetHeader);
+    }
+
+    protected TunPacket(final ByteBuf data) {
+        this(data, VirtioNetHeader.NONE);
+    }
+
+    /**
+     * Returns the offload information of this packet. Only devices opened with {@code
+     * IFF_VNET_HDR} provide this information, all other packets return {@link
+     * VirtioNetHeader#NONE}.
+     *
+     * @return the offload information of this packet
+     */
+    public VirtioNetHeader virtioNetHeader() {
+        return virtioNetHeader;
     }
 
     /**
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2021-2022 Heiko Bornholdt and Kevin Röbert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.drasyl.channel.tun;
+
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.concurrent.Future;
+import org.drasyl.channel.tun.jna.linux.EpollPoller;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.netty.util.internal.ObjectUtil.checkPositive;
+
+/**
+ * Fixed number of threads waiting via epoll for the queues of many {@link TunChannel}s to become
+ * readable. Channels sharing a group (see {@link TunChannelOption#TUN_READER_GROUP}) do not create
+ * reader threads of their own, their packets are read on their event loops. This allows many,
+ * mostly idle channels to be served by a few threads.
+ * <p>
+ * The group must outlive its channels and be closed by {@link #shutdownGracefully()} once they
+ * have been closed (only supported on Linux).
+ * <pre>
+ * TunReaderGroup readerGroup = new TunReaderGroup(1);
+ * Bootstrap b = new Bootstrap()
+ *         .group(group)
+ *         .channel(TunChannel.class)
+ *         .option(TunChannelOption.TUN_READER_GROUP, readerGroup)
+ *         ...
+ * </pre>
+ */
+public final class TunReaderGroup {
+    private final EventLoopGroup threads;
+    private final EpollPoller[] pollers;
+    private final AtomicInteger index = new AtomicInteger();
+
+    /**
+     * Creates a group of {@code threads} threads created by {@code threadFactory}.
+     *
+     * @param threads       number of threads
+     * @param threadFactory creates the threads
+     * @throws IOException if an epoll instance could not be created
+     */
+    public TunReaderGroup(final int threads, final ThreadFactory threadFactory) throws IOException {
+        pollers = new EpollPoller[checkPositive(threads, "threads")];
+        try {
+            for (int i = 0; i < threads; i++) {
+                pollers[i] = new EpollPoller();
+            }
+        }
+        catch (final IOException e) {
+            for (final EpollPoller poller : pollers) {
+                if (poller != null) {
+                    // returns immediately and releases the epoll instance
+                    poller.close();
+                    poller.run();
+                }
+            }
+            throw e;
+        }
+
+        this.threads = threadFactory != null ? new DefaultEventLoopGroup(threads, threadFactory) : new DefaultEventLoopGroup(threads);
+        for (final EpollPoller poller : pollers) {
+            this.threads.execute(poller);
+        }
+    }
+
+    /**
+     * Creates a group of {@code threads} threads.
+     *
+     * @param threads number of threads
+     * @throws IOException if an epoll instance could not be created
+     */
+    public TunReaderGroup(final int threads) throws IOException {
+        this(threads, null);
+    }
+
+    /**
+     * Returns the poller the next channel's queues are registered to.
+     */
+    EpollPoller next() {
+        return pollers[Math.abs(index.getAndIncrement() % pollers.length)];
+    }
+
+    /**
+     * Stops all threads of this group. The queues of channels still registered are no longer
+     * read.
+     *
+     * @return future completed once all threads have been stopped
+     */
+    public Future<?> shutdownGracefully() {
+        for (final EpollPoller poller : pollers) {
+            poller.close();
+        }
+        return threads.shutdownGracefully();
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright (c) 2021-2022 Heiko Bornholdt and Kevin Röbert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.drasyl.channel.tun;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.internal.StringUtil;
+
+import java.nio.ByteOrder;
+import java.util.Objects;
+
+/**
+ * The <a href="https://docs.oasis-open.org/virtio/virtio/v1.1/cs01/virtio-v1.1-cs01.html#x1-2050006">virtio_net_hdr</a>
+ * that precedes each packet read from/written to a Linux tun device opened with {@code
+ * IFF_VNET_HDR}.
+ * <p>
+ * It describes segmentation and checksum offloads: If {@link #gsoType()} is not {@link
+ * #VIRTIO_NET_HDR_GSO_NONE}, the packet is a GSO super-packet that has to be split into segments
+ * carrying at most {@link #gsoSize()} bytes of payload each. For {@link
+ * #VIRTIO_NET_HDR_GSO_UDP_L4}, each segment is a separate UDP datagram of {@link #gsoSize()} bytes
+ * (except for the last one, which may be shorter). If {@link #flags()} contains {@link
+ * #VIRTIO_NET_HDR_F_NEEDS_CSUM}, the checksum starting at {@link #csumStart()} has not been
+ * completed yet and has to be stored at {@link #csumStart()} + {@link #csumOffset()}.
+ */
+@SuppressWarnings("unused")
+public final class VirtioNetHeader {
+    public static final int VIRTIO_NET_HDR_LENGTH = 10;
+    // https://github.com/torvalds/linux/blob/master/include/uapi/linux/virtio_net.h
+    public static final int VIRTIO_NET_HDR_F_NEEDS_CSUM = 1;
+    public static final int VIRTIO_NET_HDR_F_DATA_VALID = 2;
+    public static final int VIRTIO_NET_HDR_GSO_NONE = 0;
+    public static final int VIRTIO_NET_HDR_GSO_TCPV4 = 1;
+    public static final int VIRTIO_NET_HDR_GSO_UDP = 3;
+    public static final int VIRTIO_NET_HDR_GSO_TCPV6 = 4;
+    public static final int VIRTIO_NET_HDR_GSO_UDP_L4 = 5;
+    public static final int VIRTIO_NET_HDR_GSO_ECN = 0x80;
+    /**
+     * Header of a packet without any offloads.
+     */
+    public static final VirtioNetHeader NONE = new VirtioNetHeader(0, VIRTIO_NET_HDR_GSO_NONE, 0, 0, 0, 0);
+    private static final boolean LITTLE_ENDIAN = ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN;
+    private final int flags;
+    private final int gsoType;
+    private final int hdrLen;
+    private final int gsoSize;
+    private final int csumStart;
+    private final int csumOffset;
+
+    @SuppressWarnings("java:S107")
+    public VirtioNetHeader(final int flags,
+                           final int gsoType,
+                           final int hdrLen,
+                           final int gsoSize,
+                           final int csumStart,
+                           final int csumOffset) {
+        this.flags = flags;
+        this.gsoType = gsoType;
+        this.hdrLen = hdrLen;
+        this.gsoSize = gsoSize;
+        this.csumStart = csumStart;
+        this.csumOffset = csumOffset;
+    }
+
+    public int flags() {
+        return flags;
+    }
+
+    public int gsoType() {
+        return gsoType;
+    }
+
+    /**
+     * Returns the length of all headers (IP and transport) preceding the payload. This is only a
+     * hint and may be shorter than the actual headers.
+     *
+     * @return the length of all headers (IP and transport) preceding the payload
+     */
+    public int hdrLen() {
+        return hdrLen;
+    }
+
+    /**
+     * Returns the maximum payload size of each segment.
+     *
+     * @return the maximum payload size of each segment
+     */
+    public int gsoSize() {
+        return gsoSize;
+    }
+
+    public int csumStart() {
+        return csumStart;
+    }
+
+    public int csumOffset() {
+        return csumOffset;
+    }
+
+    /**
+     * Returns {@code true} if this header describes a GSO super-packet.
+     *
+     * @return {@code true} if this header describes a GSO super-packet
+     */
+    public boolean isGso() {
+        return (gsoType & ~VIRTIO_NET_HDR_GSO_ECN) != VIRTIO_NET_HDR_GSO_NONE;
+    }
+
+    /**
+     * Returns the number of segments the GSO super-packet {@code packet} consists of, or {@code 1}
+     * if this header does not describe a GSO super-packet.
+     *
+     * @param packet packet this header belongs to
+     * @return the number of segments
+     */
+    public int segments(final TunPacket packet) {
+        if (!isGso() || gsoSize == 0) {
+            return 1;
+        }
+        final int payload = packet.content().readableBytes() - headerLength(packet.content());
+        return Math.max(1, (payload + gsoSize - 1) / gsoSize);
+    }
+
+    /**
+     * Returns the length of the IP and transport header of the given super-packet. As {@link
+     * #hdrLen()} is only a hint, the length is derived from the transport header starting at {@link
+     * #csumStart()}.
+     */
+    @SuppressWarnings("java:S109")
+    private int headerLength(final ByteBuf packet) {
+        final int index = packet.readerIndex();
+        final int l4Offset;
+        if (needsCsum()) {
+            l4Offset = csumStart;
+        }
+        else if (packet.isReadable() && packet.getUnsignedByte(index) >> 4 == 4) {
+            l4Offset = (packet.getUnsignedByte(index) & 0x0f) * 4;
+        }
+        else {
+            l4Offset = 40;
+        }
+
+        switch (gsoType & ~VIRTIO_NET_HDR_GSO_ECN) {
+            case VIRTIO_NET_HDR_GSO_TCPV4:
+            case VIRTIO_NET_HDR_GSO_TCPV6:
+                if (packet.readableBytes() <= l4Offset + 12) {
+                    return hdrLen;
+                }
+                // data offset
+                return l4Offset + (packet.getUnsignedByte(index + l4Offset + 12) >> 4) * 4;
+            case VIRTIO_NET_HDR_GSO_UDP_L4:
+                return l4Offset + 8;
+            default:
+                // datagram is fragmented including its udp header
+                return l4Offset;
+        }
+    }
+
+    /**
+     * Returns {@code true} if the checksum of the packet has not been completed yet.
+     *
+     * @return {@code true} if the checksum of the packet has not been completed yet
+     */
+    public boolean needsCsum() {
+        return (flags & VIRTIO_NET_HDR_F_NEEDS_CSUM) != 0;
+    }
+
+    /**
+     * Reads a header from {@code buf} starting at {@code index}. Fields are in native byte order.
+     */
+    public static VirtioNetHeader decode(final ByteBuf buf, final int index) {
+        final int flags = buf.getUnsignedByte(index);
+        final int gsoType = buf.getUnsignedByte(index + 1);
+        if (LITTLE_ENDIAN) {
+            return new VirtioNetHeader(flags, gsoType, buf.getUnsignedShortLE(index + 2), buf.getUnsignedShortLE(index + 4), buf.getUnsignedShortLE(index + 6), buf.getUnsignedShortLE(index + 8));
+        }
+        else {
+            return new VirtioNetHeader(flags, gsoType, buf.getUnsignedShort(index + 2), buf.getUnsignedShort(index + 4), buf.getUnsignedShort(index + 6), buf.getUnsignedShort(index + 8));
+        }
+    }
+
+    /**
+     * Writes this header to {@code buf}. Fields are in native byte order.
+     */
+    public ByteBuf encode(final ByteBuf buf) {
+        buf.writeByte(flags);
+        buf.writeByte(gsoType);
+        if (LITTLE_ENDIAN) {
+            buf.writeShortLE(hdrLen);
+            buf.writeShortLE(gsoSize);
+            buf.writeShortLE(csumStart);
+            buf.writeShortLE(csumOffset);
+        }
+        else {
+            buf.writeShort(hdrLen);
+            buf.writeShort(gsoSize);
+            buf.writeShort(csumStart);
+            buf.writeShort(csumOffset);
+        }
+        return buf;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        final VirtioNetHeader that = (VirtioNetHeader) o;
+        return flags == that.flags && gsoType == that.gsoType && hdrLen == that.hdrLen && gsoSize == that.gsoSize && csumStart == that.csumStart && csumOffset == that.csumOffset;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(flags, gsoType, hdrLen, gsoSize, csumStart, csumOffset);
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuilder(StringUtil.simpleClassName(this))
+                .append('[')
+                .append("flags=").append(flags)
+                .append(", gso_type=").append(gsoType)
+                .append(", hdr_len=").append(hdrLen)
+                .append(", gso_size=").append(gsoSize)
+                .append(", csum_start=").append(csumStart)
+                .append(", csum_offset=").append(csumOffset)
+                .append(']').toString();
+    }
+}
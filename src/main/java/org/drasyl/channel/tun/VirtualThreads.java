@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2021-2022 Heiko Bornholdt and Kevin Röbert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.drasyl.channel.tun;
+
+import io.netty.channel.ChannelException;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Access to virtual threads (Java 21 and later) through reflection, as this library is compiled
+ * for Java 11.
+ */
+final class VirtualThreads {
+    private static final ThreadFactory FACTORY = newFactory();
+    private static TunReaderGroup readerGroup;
+    // channels using readerGroup
+    private static int readerGroupUsers;
+
+    private VirtualThreads() {
+        // util class
+    }
+
+    @SuppressWarnings({ "java:S1166", "java:S2658" })
+    private static ThreadFactory newFactory() {
+        try {
+            final Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, "tun-reader-", 0L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        }
+        catch (final ReflectiveOperationException e) {
+            // Java 20 or earlier
+            return null;
+        }
+    }
+
+    /**
+     * Returns a factory creating virtual threads.
+     *
+     * @return factory creating virtual threads
+     * @throws ChannelException if virtual threads are not supported by this runtime
+     */
+    static ThreadFactory factory() {
+        if (FACTORY == null) {
+            throw new ChannelException("Virtual threads require Java 21 or later.");
+        }
+        return FACTORY;
+    }
+
+    /**
+     * Returns the {@link TunReaderGroup} shared by all channels reading on virtual threads without
+     * a reader group of their own. Virtual threads must not wait in native calls, as this would pin
+     * their carrier thread, so they are woken up by this group instead. The group's single platform
+     * thread is created when the first channel acquires the group and stopped once the last channel
+     * has released it by {@link #releaseReaderGroup()}.
+     *
+     * @return the shared {@link TunReaderGroup}
+     * @throws IOException if the group could not be created
+     */
+    static synchronized TunReaderGroup acquireReaderGroup() throws IOException {
+        if (readerGroup == null) {
+            readerGroup = new TunReaderGroup(1, r -> {
+                final Thread thread = new Thread(r, "tun-poller");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        readerGroupUsers++;
+        return readerGroup;
+    }
+
+    /**
+     * Releases the group returned by {@link #acquireReaderGroup()}. The group is shut down once no
+     * channel uses it anymore.
+     */
+    static synchronized void releaseReaderGroup() {
+        if (--readerGroupUsers == 0) {
+            readerGroup.shutdownGracefully();
+            readerGroup = null;
+        }
+    }
+}
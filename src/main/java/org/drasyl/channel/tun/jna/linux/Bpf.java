@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2021-2022 Heiko Bornholdt and Kevin Röbert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.drasyl.channel.tun.jna.linux;
+
+import com.sun.jna.LastErrorException;
+import com.sun.jna.Native;
+import com.sun.jna.Platform;
+import com.sun.jna.Pointer;
+
+/**
+ * JNA mapping for <a href="https://github.com/torvalds/linux/blob/master/include/uapi/linux/bpf.h">bpf.h</a>.
+ * <p>
+ * The {@code bpf} system call is invoked directly, {@code union bpf_attr} is accessed through its
+ * offsets.
+ */
+final class Bpf {
+    // system call number
+    public static final long SYS_BPF = "aarch64".equals(Platform.ARCH) ? 280 : 321;
+    // commands
+    public static final int BPF_PROG_LOAD = 5;
+    // program types
+    public static final int BPF_PROG_TYPE_SOCKET_FILTER = 1;
+    // union bpf_attr (BPF_PROG_LOAD)
+    public static final int BPF_ATTR_SIZE = 48;
+    public static final int BPF_ATTR_PROG_TYPE = 0;
+    public static final int BPF_ATTR_INSN_CNT = 4;
+    public static final int BPF_ATTR_INSNS = 8;
+    public static final int BPF_ATTR_LICENSE = 16;
+    public static final int BPF_ATTR_LOG_LEVEL = 24;
+    public static final int BPF_ATTR_LOG_SIZE = 28;
+    public static final int BPF_ATTR_LOG_BUF = 32;
+    // struct bpf_insn
+    public static final int BPF_INSN_SIZE = 8;
+
+    static {
+        Native.register(Platform.C_LIBRARY_NAME);
+    }
+
+    private Bpf() {
+        // JNA mapping
+    }
+
+    // https://man7.org/linux/man-pages/man2/bpf.2.html
+    public static native long syscall(final long number,
+                                      final long cmd,
+                                      final Pointer attr,
+                                      final long size) throws LastErrorException;
+}
@@ -0,0 +1,259 @@
+/*
+ * Copyright (c) 2021-2022 Heiko Bornholdt and Kevin Röbert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.drasyl.channel.tun.jna.linux;
+
+import com.sun.jna.LastErrorException;
+import com.sun.jna.Memory;
+import org.drasyl.channel.tun.TunFilter;
+import org.drasyl.channel.tun.TunFilter.Rule;
+
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.drasyl.channel.tun.Tun4Packet.INET4_DESTINATION_ADDRESS;
+import static org.drasyl.channel.tun.Tun4Packet.INET4_FLAGS_AND_FRAGMENT_OFFSET;
+import static org.drasyl.channel.tun.Tun4Packet.INET4_PROTOCOL;
+import static org.drasyl.channel.tun.Tun4Packet.INET4_SOURCE_ADDRESS;
+import static org.drasyl.channel.tun.Tun4Packet.INET4_VERSION_AND_INTERNET_HEADER_LENGTH;
+import static org.drasyl.channel.tun.Tun6Packet.INET6_DESTINATION_ADDRESS;
+import static org.drasyl.channel.tun.Tun6Packet.INET6_HEADER_LENGTH;
+import static org.drasyl.channel.tun.Tun6Packet.INET6_NEXT_HEADER;
+import static org.drasyl.channel.tun.Tun6Packet.INET6_SOURCE_ADDRESS;
+import static org.drasyl.channel.tun.jna.linux.Bpf.BPF_ATTR_INSNS;
+import static org.drasyl.channel.tun.jna.linux.Bpf.BPF_ATTR_INSN_CNT;
+import static org.drasyl.channel.tun.jna.linux.Bpf.BPF_ATTR_LICENSE;
+import static org.drasyl.channel.tun.jna.linux.Bpf.BPF_ATTR_LOG_BUF;
+import static org.drasyl.channel.tun.jna.linux.Bpf.BPF_ATTR_LOG_LEVEL;
+import static org.drasyl.channel.tun.jna.linux.Bpf.BPF_ATTR_LOG_SIZE;
+import static org.drasyl.channel.tun.jna.linux.Bpf.BPF_ATTR_PROG_TYPE;
+import static org.drasyl.channel.tun.jna.linux.Bpf.BPF_ATTR_SIZE;
+import static org.drasyl.channel.tun.jna.linux.Bpf.BPF_INSN_SIZE;
+import static org.drasyl.channel.tun.jna.linux.Bpf.BPF_PROG_LOAD;
+import static org.drasyl.channel.tun.jna.linux.Bpf.BPF_PROG_TYPE_SOCKET_FILTER;
+import static org.drasyl.channel.tun.jna.linux.Bpf.SYS_BPF;
+
+/**
+ * Compiles {@link TunFilter}s to eBPF socket filter programs.
+ * <p>
+ * The program is attached to the device with {@code TUNSETFILTEREBPF} and executed for each
+ * packet before it is queued for reading. It returns the number of bytes to keep, so {@code 0}
+ * drops the packet. Packet data is accessed through {@code LD_ABS}/{@code LD_IND} instructions,
+ * which return {@code 0} (drop) on their own if the packet is too short.
+ * <p>
+ * Every rule is compiled to a sequence of checks. Each failed check jumps to the first instruction
+ * of the next rule. Rules not restricted to an IP version but inspecting the protocol, ports, or
+ * ICMP type are compiled twice (once for each IP version).
+ */
+final class BpfFilter {
+    // instruction classes and modes
+    private static final int LD_ABS_H = 0x28;
+    private static final int LD_ABS_B = 0x30;
+    private static final int LD_IND_H = 0x48;
+    private static final int LD_IND_B = 0x50;
+    private static final int ALU64_AND_K = 0x57;
+    private static final int ALU64_LSH_K = 0x67;
+    private static final int ALU64_RSH_K = 0x77;
+    private static final int ALU64_MOV_K = 0xb7;
+    private static final int ALU64_MOV_X = 0xbf;
+    private static final int JMP_JNE_K = 0x55;
+    private static final int JMP_EXIT = 0x95;
+    // registers
+    private static final int R0 = 0;
+    private static final int R1 = 1;
+    // context, implicit source of LD_ABS/LD_IND
+    private static final int R6 = 6;
+    // offset of the transport header (IPv4)
+    private static final int R7 = 7;
+    // return values
+    private static final int ACCEPT = 0x7fffffff;
+    private static final int DROP = 0;
+    private static final String LICENSE = "Dual MIT/GPL";
+    private static final int LOG_SIZE = 64 * 1024;
+
+    private final List<long[]> insns = new ArrayList<>();
+    // indices of jumps to the next rule
+    private final List<Integer> fixups = new ArrayList<>();
+
+    private BpfFilter() {
+    }
+
+    /**
+     * Compiles the given filter.
+     *
+     * @param filter the filter to compile
+     * @return the instructions ({@code struct bpf_insn}s in native byte order)
+     */
+    @SuppressWarnings("java:S109")
+    static byte[] compile(final TunFilter filter) {
+        final BpfFilter compiler = new BpfFilter();
+        compiler.emit(ALU64_MOV_X, R6, R1, 0, 0);
+        for (final Rule rule : filter.rules()) {
+            final boolean inspectsHeader = rule.protocol() != -1 || rule.sourcePort() != -1 || rule.destinationPort() != -1 || rule.icmpType() != -1;
+            if (rule.version() == 0 && inspectsHeader) {
+                compiler.rule(rule, 4);
+                compiler.rule(rule, 6);
+            }
+            else {
+                compiler.rule(rule, rule.version());
+            }
+        }
+        compiler.emit(ALU64_MOV_K, R0, 0, 0, filter.acceptByDefault() ? ACCEPT : DROP);
+        compiler.emit(JMP_EXIT, 0, 0, 0, 0);
+
+        final ByteBuffer buf = ByteBuffer.allocate(compiler.insns.size() * BPF_INSN_SIZE).order(ByteOrder.nativeOrder());
+        for (final long[] insn : compiler.insns) {
+            buf.put((byte) insn[0]);
+            buf.put((byte) (insn[1] | insn[2] << 4));
+            buf.putShort((short) insn[3]);
+            buf.putInt((int) insn[4]);
+        }
+        return buf.array();
+    }
+
+    /**
+     * Loads the given instructions as socket filter program.
+     *
+     * @param insns the instructions returned by {@link #compile(TunFilter)}
+     * @return file descriptor referring to the loaded program
+     * @throws LastErrorException if the program has been rejected by the kernel. If rejected by the
+     *                            verifier, the exception message contains the verifier log.
+     */
+    static int load(final byte[] insns) {
+        final Memory insnsMem = new Memory(insns.length);
+        insnsMem.write(0, insns, 0, insns.length);
+        final Memory license = new Memory(LICENSE.length() + 1L);
+        license.setString(0, LICENSE, US_ASCII.name());
+
+        final Memory attr = new Memory(BPF_ATTR_SIZE);
+        attr.clear();
+        attr.setInt(BPF_ATTR_PROG_TYPE, BPF_PROG_TYPE_SOCKET_FILTER);
+        attr.setInt(BPF_ATTR_INSN_CNT, insns.length / BPF_INSN_SIZE);
+        attr.setPointer(BPF_ATTR_INSNS, insnsMem);
+        attr.setPointer(BPF_ATTR_LICENSE, license);
+        try {
+            return (int) Bpf.syscall(SYS_BPF, BPF_PROG_LOAD, attr, BPF_ATTR_SIZE);
+        }
+        catch (final LastErrorException e) {
+            if (e.getErrorCode() != Errno.EACCES && e.getErrorCode() != Errno.EINVAL) {
+                throw e;
+            }
+        }
+
+        // load again with verifier log
+        final Memory log = new Memory(LOG_SIZE);
+        log.clear();
+        attr.setInt(BPF_ATTR_LOG_LEVEL, 1);
+        attr.setInt(BPF_ATTR_LOG_SIZE, LOG_SIZE);
+        attr.setPointer(BPF_ATTR_LOG_BUF, log);
+        try {
+            return (int) Bpf.syscall(SYS_BPF, BPF_PROG_LOAD, attr, BPF_ATTR_SIZE);
+        }
+        catch (final LastErrorException e) {
+            throw new LastErrorException("[" + e.getErrorCode() + "] Filter rejected: " + log.getString(0, US_ASCII.name()));
+        }
+    }
+
+    @SuppressWarnings("java:S109")
+    private void rule(final Rule rule, final int version) {
+        fixups.clear();
+
+        if (version != 0) {
+            emit(LD_ABS_B, 0, 0, 0, INET4_VERSION_AND_INTERNET_HEADER_LENGTH);
+            emit(ALU64_RSH_K, R0, 0, 0, 4);
+            jumpIfNotEqual(version);
+        }
+
+        if (version == 4) {
+            loadAndCompare(LD_ABS_B, INET4_PROTOCOL, 0xff, rule.protocol());
+            prefix(INET4_SOURCE_ADDRESS, rule.source(), rule.sourcePrefixLength());
+            prefix(INET4_DESTINATION_ADDRESS, rule.destination(), rule.destinationPrefixLength());
+            if (rule.sourcePort() != -1 || rule.destinationPort() != -1 || rule.icmpType() != -1) {
+                // first fragment only
+                loadAndCompare(LD_ABS_H, INET4_FLAGS_AND_FRAGMENT_OFFSET, 0x1fff, 0);
+                // r7 = internet header length * 4
+                emit(LD_ABS_B, 0, 0, 0, INET4_VERSION_AND_INTERNET_HEADER_LENGTH);
+                emit(ALU64_AND_K, R0, 0, 0, 0x0f);
+                emit(ALU64_LSH_K, R0, 0, 0, 2);
+                emit(ALU64_MOV_X, R7, R0, 0, 0);
+                loadAndCompare(LD_IND_H, 0, 0xffff, rule.sourcePort());
+                loadAndCompare(LD_IND_H, 2, 0xffff, rule.destinationPort());
+                loadAndCompare(LD_IND_B, 0, 0xff, rule.icmpType());
+            }
+        }
+        else if (version == 6) {
+            loadAndCompare(LD_ABS_B, INET6_NEXT_HEADER, 0xff, rule.protocol());
+            prefix(INET6_SOURCE_ADDRESS, rule.source(), rule.sourcePrefixLength());
+            prefix(INET6_DESTINATION_ADDRESS, rule.destination(), rule.destinationPrefixLength());
+            loadAndCompare(LD_ABS_H, INET6_HEADER_LENGTH, 0xffff, rule.sourcePort());
+            loadAndCompare(LD_ABS_H, INET6_HEADER_LENGTH + 2, 0xffff, rule.destinationPort());
+            loadAndCompare(LD_ABS_B, INET6_HEADER_LENGTH, 0xff, rule.icmpType());
+        }
+
+        emit(ALU64_MOV_K, R0, 0, 0, rule.accept() ? ACCEPT : DROP);
+        emit(JMP_EXIT, 0, 0, 0, 0);
+
+        // let failed checks jump to the next rule
+        for (final int fixup : fixups) {
+            insns.get(fixup)[3] = insns.size() - fixup - 1L;
+        }
+    }
+
+    /**
+     * Compares the given prefix 16 bits at a time, so that all immediates are positive.
+     */
+    @SuppressWarnings("java:S109")
+    private void prefix(final int offset, final InetAddress address, final int prefixLength) {
+        if (address == null) {
+            return;
+        }
+        final byte[] bytes = address.getAddress();
+        for (int i = 0; i < prefixLength; i += 16) {
+            final int mask = 0xffff << (16 - Math.min(16, prefixLength - i)) & 0xffff;
+            final int value = ((bytes[i / 8] & 0xff) << 8 | (bytes[i / 8 + 1] & 0xff)) & mask;
+            loadAndCompare(LD_ABS_H, offset + i / 8, mask, value);
+        }
+    }
+
+    private void loadAndCompare(final int load, final int offset, final int mask, final int value) {
+        if (value == -1) {
+            return;
+        }
+        emit(load, 0, load == LD_IND_H || load == LD_IND_B ? R7 : 0, 0, offset);
+        if (mask != (load == LD_ABS_B || load == LD_IND_B ? 0xff : 0xffff)) {
+            emit(ALU64_AND_K, R0, 0, 0, mask);
+        }
+        jumpIfNotEqual(value);
+    }
+
+    private void jumpIfNotEqual(final int value) {
+        fixups.add(insns.size());
+        emit(JMP_JNE_K, R0, 0, 0, value);
+    }
+
+    private void emit(final int code, final int dst, final int src, final int off, final int imm) {
+        insns.add(new long[]{ code, dst, src, off, imm });
+    }
+}
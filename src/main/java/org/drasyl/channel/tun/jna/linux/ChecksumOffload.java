@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2021-2022 Heiko Bornholdt and Kevin Röbert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.drasyl.channel.tun.jna.linux;
+
+import io.netty.buffer.ByteBuf;
+import org.drasyl.channel.tun.VirtioNetHeader;
+
+import static org.drasyl.channel.tun.InetProtocol.TCP;
+import static org.drasyl.channel.tun.InetProtocol.UDP;
+import static org.drasyl.channel.tun.Tun4Packet.INET4_DESTINATION_ADDRESS;
+import static org.drasyl.channel.tun.Tun4Packet.INET4_FLAGS_AND_FRAGMENT_OFFSET;
+import static org.drasyl.channel.tun.Tun4Packet.INET4_HEADER_LENGTH;
+import static org.drasyl.channel.tun.Tun4Packet.INET4_PROTOCOL;
+import static org.drasyl.channel.tun.Tun4Packet.INET4_SOURCE_ADDRESS;
+import static org.drasyl.channel.tun.Tun4Packet.INET4_TOTAL_LENGTH;
+import static org.drasyl.channel.tun.Tun6Packet.INET6_HEADER_LENGTH;
+import static org.drasyl.channel.tun.Tun6Packet.INET6_NEXT_HEADER;
+import static org.drasyl.channel.tun.Tun6Packet.INET6_PAYLOAD_LENGTH;
+import static org.drasyl.channel.tun.Tun6Packet.INET6_SOURCE_ADDRESS;
+import static org.drasyl.channel.tun.VirtioNetHeader.VIRTIO_NET_HDR_F_NEEDS_CSUM;
+import static org.drasyl.channel.tun.VirtioNetHeader.VIRTIO_NET_HDR_GSO_NONE;
+
+/**
+ * Prepares TCP/UDP packets for checksum offloading: Instead of the full checksum, only the sum of
+ * the pseudo header is stored in the checksum field, and a {@link VirtioNetHeader} with {@link
+ * VirtioNetHeader#VIRTIO_NET_HDR_F_NEEDS_CSUM} tells the kernel to sum up the remaining bytes.
+ */
+final class ChecksumOffload {
+    static final int TCP_CHECKSUM_OFFSET = 16;
+    static final int UDP_CHECKSUM_OFFSET = 6;
+    // more fragments flag and fragment offset
+    private static final int INET4_FRAGMENT_MASK = 0x3fff;
+
+    private ChecksumOffload() {
+        // util class
+    }
+
+    /**
+     * Stores the pseudo header sum in the checksum field of the given TCP/UDP packet and returns
+     * the matching header. Returns {@link VirtioNetHeader#NONE} and leaves the packet untouched if
+     * the packet is neither TCP nor UDP or if it is fragmented. The packet is modified in place and
+     * must therefore not be shared.
+     *
+     * @param packet IP packet
+     * @return header requesting the kernel to complete the checksum
+     */
+    static VirtioNetHeader prepare(final ByteBuf packet) {
+        final VirtioNetHeader header = header(packet);
+        if (header != VirtioNetHeader.NONE) {
+            packet.setShort(packet.readerIndex() + header.csumStart() + header.csumOffset(), pseudoHeaderSum(packet));
+        }
+        return header;
+    }
+
+    /**
+     * Returns the header requesting the kernel to complete the checksum of the given TCP/UDP
+     * packet, or {@link VirtioNetHeader#NONE} if the packet is neither TCP nor UDP or if it is
+     * fragmented. The packet is not modified.
+     *
+     * @param packet IP packet
+     * @return header requesting the kernel to complete the checksum
+     */
+    @SuppressWarnings("java:S109")
+    static VirtioNetHeader header(final ByteBuf packet) {
+        final int index = packet.readerIndex();
+        final int length = packet.readableBytes();
+        if (length < 1) {
+            return VirtioNetHeader.NONE;
+        }
+
+        final int version = packet.getUnsignedByte(index) >> 4;
+        final int protocol;
+        final int l4Offset;
+        final int l4Length;
+        if (version == 4 && length >= INET4_HEADER_LENGTH) {
+            if ((packet.getUnsignedShort(index + INET4_FLAGS_AND_FRAGMENT_OFFSET) & INET4_FRAGMENT_MASK) != 0) {
+                // checksum spans all fragments
+                return VirtioNetHeader.NONE;
+            }
+            protocol = packet.getUnsignedByte(index + INET4_PROTOCOL);
+            l4Offset = (packet.getUnsignedByte(index) & 0x0f) * 4;
+            l4Length = packet.getUnsignedShort(index + INET4_TOTAL_LENGTH) - l4Offset;
+        }
+        else if (version == 6 && length >= INET6_HEADER_LENGTH) {
+            protocol = packet.getUnsignedByte(index + INET6_NEXT_HEADER);
+            l4Offset = INET6_HEADER_LENGTH;
+            l4Length = packet.getUnsignedShort(index + INET6_PAYLOAD_LENGTH);
+        }
+        else {
+            return VirtioNetHeader.NONE;
+        }
+
+        final int csumOffset;
+        if (protocol == TCP.decimal) {
+            csumOffset = TCP_CHECKSUM_OFFSET;
+        }
+        else if (protocol == UDP.decimal) {
+            csumOffset = UDP_CHECKSUM_OFFSET;
+        }
+        else {
+            return VirtioNetHeader.NONE;
+        }
+        if (l4Length < csumOffset + 2 || length < l4Offset + l4Length) {
+            return VirtioNetHeader.NONE;
+        }
+
+        return new VirtioNetHeader(VIRTIO_NET_HDR_F_NEEDS_CSUM, VIRTIO_NET_HDR_GSO_NONE, 0, 0, l4Offset, csumOffset);
+    }
+
+    /**
+     * Returns the folded sum of the pseudo header of the given packet, which has to be accepted by
+     * {@link #header(ByteBuf)}.
+     *
+     * @param packet IP packet
+     * @return the pseudo header sum to be stored in the checksum field
+     */
+    @SuppressWarnings("java:S109")
+    static int pseudoHeaderSum(final ByteBuf packet) {
+        final int index = packet.readerIndex();
+        long sum = 0;
+        if (packet.getUnsignedByte(index) >> 4 == 4) {
+            for (int i = INET4_SOURCE_ADDRESS; i < INET4_DESTINATION_ADDRESS + 4; i += 2) {
+                sum += packet.getUnsignedShort(index + i);
+            }
+            sum += packet.getUnsignedByte(index + INET4_PROTOCOL);
+            sum += packet.getUnsignedShort(index + INET4_TOTAL_LENGTH) - (packet.getUnsignedByte(index) & 0x0f) * 4;
+        }
+        else {
+            for (int i = INET6_SOURCE_ADDRESS; i < INET6_HEADER_LENGTH; i += 2) {
+                sum += packet.getUnsignedShort(index + i);
+            }
+            sum += packet.getUnsignedByte(index + INET6_NEXT_HEADER);
+            sum += packet.getUnsignedShort(index + INET6_PAYLOAD_LENGTH);
+        }
+        return fold(sum);
+    }
+
+    /**
+     * Folds the given sum to 16 bits using one's complement addition (without complementing the
+     * result).
+     */
+    @SuppressWarnings("java:S109")
+    static int fold(long sum) {
+        while ((sum >>> 16) != 0) {
+            sum = (sum & 0xffff) + (sum >>> 16);
+        }
+        return (int) sum;
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2021-2022 Heiko Bornholdt and Kevin Röbert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.drasyl.channel.tun.jna.linux;
+
+import com.sun.jna.LastErrorException;
+import com.sun.jna.Memory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Collection;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.drasyl.channel.tun.jna.linux.Sched.CPU_SETSIZE;
+import static org.drasyl.channel.tun.jna.linux.Sched.sched_setaffinity;
+
+/**
+ * Pins threads to cpus.
+ */
+public final class CpuAffinity {
+    private static final int POSSIBLE_CPUS = possibleCpus0();
+
+    private CpuAffinity() {
+        // util class
+    }
+
+    @SuppressWarnings("java:S1166")
+    private static int possibleCpus0() {
+        try {
+            // e.g. "0-63" or "0,2-5"
+            final String possible = new String(Files.readAllBytes(Paths.get("/sys/devices/system/cpu/possible")), US_ASCII).trim();
+            return Integer.parseInt(possible.substring(Math.max(possible.lastIndexOf('-'), possible.lastIndexOf(',')) + 1)) + 1;
+        }
+        catch (final IOException | NumberFormatException e) {
+            // not on Linux
+            return -1;
+        }
+    }
+
+    /**
+     * Returns the number of cpus the kernel supports, i.e. the highest index a cpu of this host may
+     * have plus one.
+     *
+     * @return the number of possible cpus or {@code -1} if unknown, e.g. not on Linux
+     */
+    public static int possibleCpus() {
+        return POSSIBLE_CPUS;
+    }
+
+    /**
+     * Restricts the calling thread to the given cpus.
+     *
+     * @param cpus indices of the cpus the calling thread may run on
+     * @throws IOException if the affinity could not be set, e.g. because none of the given cpus
+     *                     is online
+     */
+    @SuppressWarnings("java:S109")
+    public static void pinCurrentThread(final Collection<Integer> cpus) throws IOException {
+        int maxCpu = 0;
+        for (final int cpu : cpus) {
+            if (cpu < 0) {
+                throw new IllegalArgumentException("cpu must be non-negative.");
+            }
+            maxCpu = Math.max(maxCpu, cpu);
+        }
+
+        // hosts may have more cpus than cpu_set_t can hold, the mask is a multiple of 64 bits
+        final Memory mask = new Memory(Math.max(CPU_SETSIZE, (maxCpu / 64 + 1) * 64) / 8);
+        mask.clear();
+        for (final int cpu : cpus) {
+            mask.setByte(cpu / 8, (byte) (mask.getByte(cpu / 8) | 1 << (cpu % 8)));
+        }
+
+        try {
+            // pid 0 is the calling thread
+            sched_setaffinity(0, mask.size(), mask);
+        }
+        catch (final LastErrorException e) {
+            throw new IOException("Set cpu affinity " + cpus + " failed.", e);
+        }
+    }
+}
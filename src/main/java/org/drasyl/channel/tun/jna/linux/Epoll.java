@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2021-2022 Heiko Bornholdt and Kevin Röbert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.drasyl.channel.tun.jna.linux;
+
+import com.sun.jna.LastErrorException;
+import com.sun.jna.Native;
+import com.sun.jna.Platform;
+import com.sun.jna.Pointer;
+
+/**
+ * JNA mapping for <a href="https://github.com/torvalds/linux/blob/master/include/uapi/linux/eventpoll.h">eventpoll.h</a>.
+ * <p>
+ * {@code struct epoll_event} is packed on x86-64 only, so instead of a {@link
+ * com.sun.jna.Structure} the events are accessed through {@link #EPOLL_EVENT_SIZE} and {@link
+ * #EPOLL_EVENT_DATA_OFFSET}.
+ */
+final class Epoll {
+    // there is data to read
+    public static final int EPOLLIN = 0x001;
+    // writing is now possible
+    public static final int EPOLLOUT = 0x004;
+    // error condition
+    public static final int EPOLLERR = 0x008;
+    // hang up
+    public static final int EPOLLHUP = 0x010;
+    // disable file descriptor after one event
+    public static final int EPOLLONESHOT = 1 << 30;
+    public static final int EPOLL_CTL_ADD = 1;
+    public static final int EPOLL_CTL_DEL = 2;
+    public static final int EPOLL_CTL_MOD = 3;
+    public static final int EPOLL_CLOEXEC = 02000000;
+    public static final int EPOLL_EVENT_SIZE = Platform.isIntel() && Platform.is64Bit() ? 12 : 16;
+    public static final int EPOLL_EVENT_DATA_OFFSET = Platform.isIntel() && Platform.is64Bit() ? 4 : 8;
+
+    static {
+        Native.register(Platform.C_LIBRARY_NAME);
+    }
+
+    private Epoll() {
+        // JNA mapping
+    }
+
+    // https://man7.org/linux/man-pages/man2/epoll_create1.2.html
+    public static native int epoll_create1(final int flags) throws LastErrorException;
+
+    // https://man7.org/linux/man-pages/man2/epoll_ctl.2.html
+    public static native int epoll_ctl(final int epfd,
+                                       final int op,
+                                       final int fd,
+                                       final Pointer event) throws LastErrorException;
+
+    // https://man7.org/linux/man-pages/man2/epoll_wait.2.html
+    public static native int epoll_wait(final int epfd,
+                                        final Pointer events,
+                                        final int maxevents,
+                                        final int timeout) throws LastErrorException;
+}
@@ -0,0 +1,263 @@
+/*
+ * Copyright (c) 2021-2022 Heiko Bornholdt and Kevin Röbert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.drasyl.channel.tun.jna.linux;
+
+import com.sun.jna.LastErrorException;
+import com.sun.jna.Memory;
+import com.sun.jna.NativeLong;
+import org.drasyl.channel.tun.jna.shared.LibC;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.drasyl.channel.tun.jna.linux.Epoll.EPOLLERR;
+import static org.drasyl.channel.tun.jna.linux.Epoll.EPOLLHUP;
+import static org.drasyl.channel.tun.jna.linux.Epoll.EPOLLIN;
+import static org.drasyl.channel.tun.jna.linux.Epoll.EPOLLONESHOT;
+import static org.drasyl.channel.tun.jna.linux.Epoll.EPOLLOUT;
+import static org.drasyl.channel.tun.jna.linux.Epoll.EPOLL_CLOEXEC;
+import static org.drasyl.channel.tun.jna.linux.Epoll.EPOLL_CTL_ADD;
+import static org.drasyl.channel.tun.jna.linux.Epoll.EPOLL_CTL_DEL;
+import static org.drasyl.channel.tun.jna.linux.Epoll.EPOLL_CTL_MOD;
+import static org.drasyl.channel.tun.jna.linux.Epoll.EPOLL_EVENT_DATA_OFFSET;
+import static org.drasyl.channel.tun.jna.linux.Epoll.EPOLL_EVENT_SIZE;
+import static org.drasyl.channel.tun.jna.linux.Epoll.epoll_create1;
+import static org.drasyl.channel.tun.jna.linux.Epoll.epoll_ctl;
+import static org.drasyl.channel.tun.jna.linux.Epoll.epoll_wait;
+import static org.drasyl.channel.tun.jna.linux.Errno.EINTR;
+import static org.drasyl.channel.tun.jna.linux.Eventfd.EFD_CLOEXEC;
+import static org.drasyl.channel.tun.jna.linux.Eventfd.EFD_NONBLOCK;
+import static org.drasyl.channel.tun.jna.linux.Eventfd.eventfd;
+
+/**
+ * Waits for non-blocking file descriptors to become readable (or writable) and notifies the
+ * callbacks registered for them.
+ * <p>
+ * File descriptors are registered in one-shot mode: after a callback has been notified, the file
+ * descriptor stays disarmed until {@link #arm(int)} (or {@link #armWrite(int)}) is called again. This allows the notified
+ * party to drain the file descriptor on another thread without receiving further notifications in
+ * the meantime.
+ * <p>
+ * {@link #run()} blocks in {@code epoll_wait} and has to be called by a dedicated thread.
+ */
+public final class EpollPoller implements Runnable, Closeable {
+    private static final int MAX_EVENTS = 64;
+    private static final NativeLong EVENTFD_VALUE_SIZE = new NativeLong(8);
+    private static final ThreadLocal<Memory> CTL_EVENT = ThreadLocal.withInitial(() -> new Memory(EPOLL_EVENT_SIZE));
+    private final int epfd;
+    private final int wakeupFd;
+    private final Map<Integer, Registration> registrations = new ConcurrentHashMap<>();
+    private volatile boolean closed;
+
+    public EpollPoller() throws IOException {
+        try {
+            epfd = epoll_create1(EPOLL_CLOEXEC);
+            wakeupFd = eventfd(0, EFD_NONBLOCK | EFD_CLOEXEC);
+            ctl(EPOLL_CTL_ADD, wakeupFd, EPOLLIN);
+        }
+        catch (final LastErrorException e) {
+            throw new IOException("Create epoll instance failed.", e);
+        }
+    }
+
+    /**
+     * Adds {@code fd} to this poller. The file descriptor is disarmed until {@link #arm(int)} is
+     * called.
+     *
+     * @param fd       non-blocking file descriptor
+     * @param callback called by the polling thread once {@code fd} has become readable
+     * @throws IOException if {@code fd} could not be added
+     */
+    public void register(final int fd, final Runnable callback) throws IOException {
+        register(fd, callback, null);
+    }
+
+    /**
+     * Adds {@code fd} to this poller. The file descriptor is disarmed until {@link #arm(int)} or
+     * {@link #armWrite(int)} is called.
+     *
+     * @param fd            non-blocking file descriptor
+     * @param callback      called by the polling thread once {@code fd} has become readable
+     * @param writeCallback called by the polling thread once {@code fd} has become writable
+     * @throws IOException if {@code fd} could not be added
+     */
+    public void register(final int fd,
+                         final Runnable callback,
+                         final Runnable writeCallback) throws IOException {
+        registrations.put(fd, new Registration(callback, writeCallback));
+        try {
+            ctl(EPOLL_CTL_ADD, fd, EPOLLONESHOT);
+        }
+        catch (final LastErrorException e) {
+            registrations.remove(fd);
+            throw new IOException("Add file descriptor to epoll instance failed.", e);
+        }
+    }
+
+    /**
+     * Requests a single notification for the next time {@code fd} becomes readable (or
+     * immediately, if it is already readable).
+     *
+     * @param fd file descriptor previously added by {@link #register(int, Runnable)}
+     * @throws IOException if {@code fd} could not be armed
+     */
+    public void arm(final int fd) throws IOException {
+        arm(fd, EPOLLIN);
+    }
+
+    /**
+     * Requests a single notification for the next time {@code fd} becomes writable (or
+     * immediately, if it is already writable).
+     *
+     * @param fd file descriptor previously added by {@link #register(int, Runnable, Runnable)}
+     * @throws IOException if {@code fd} could not be armed
+     */
+    public void armWrite(final int fd) throws IOException {
+        arm(fd, EPOLLOUT);
+    }
+
+    private void arm(final int fd, final int events) throws IOException {
+        final Registration registration = registrations.get(fd);
+        if (registration == null) {
+            throw new IOException("File descriptor is not registered.");
+        }
+        try {
+            synchronized (registration) {
+                // one-shot mode disarms all events, so those still awaited have to be re-armed
+                registration.interest |= events;
+                ctl(EPOLL_CTL_MOD, fd, registration.interest | EPOLLONESHOT);
+            }
+        }
+        catch (final LastErrorException e) {
+            throw new IOException("Arm file descriptor failed.", e);
+        }
+    }
+
+    /**
+     * Removes {@code fd} from this poller.
+     *
+     * @param fd file descriptor previously added by {@link #register(int, Runnable)}
+     */
+    @SuppressWarnings("java:S1166")
+    public void deregister(final int fd) {
+        if (registrations.remove(fd) != null) {
+            try {
+                ctl(EPOLL_CTL_DEL, fd, 0);
+            }
+            catch (final LastErrorException e) {
+                // fd has already been closed, which removed it from the epoll instance
+            }
+        }
+    }
+
+    @SuppressWarnings("java:S3776")
+    @Override
+    public void run() {
+        final Memory events = new Memory((long) MAX_EVENTS * EPOLL_EVENT_SIZE);
+        try {
+            while (!closed) {
+                final int ready;
+                try {
+                    ready = epoll_wait(epfd, events, MAX_EVENTS, -1);
+                }
+                catch (final LastErrorException e) {
+                    if (e.getErrorCode() == EINTR) {
+                        continue;
+                    }
+                    throw e;
+                }
+
+                for (int i = 0; i < ready; i++) {
+                    final int fd = events.getInt((long) i * EPOLL_EVENT_SIZE + EPOLL_EVENT_DATA_OFFSET);
+                    if (fd != wakeupFd) {
+                        final Registration registration = registrations.get(fd);
+                        if (registration != null) {
+                            registration.notify(fd, events.getInt((long) i * EPOLL_EVENT_SIZE));
+                        }
+                    }
+                }
+            }
+        }
+        finally {
+            closed = true;
+            LibC.close(wakeupFd);
+            LibC.close(epfd);
+        }
+    }
+
+    /**
+     * Causes {@link #run()} to return. Registered file descriptors are not closed.
+     */
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            LibC.write(wakeupFd, new byte[]{ 0, 0, 0, 0, 0, 0, 0, 1 }, EVENTFD_VALUE_SIZE);
+        }
+    }
+
+    private final class Registration {
+        private final Runnable callback;
+        private final Runnable writeCallback;
+        // events armed for
+        private int interest;
+
+        Registration(final Runnable callback, final Runnable writeCallback) {
+            this.callback = callback;
+            this.writeCallback = writeCallback;
+        }
+
+        @SuppressWarnings("java:S1166")
+        void notify(final int fd, final int events) {
+            // errors and hang ups are reported to all callbacks
+            final int fired;
+            synchronized (this) {
+                fired = (events & (EPOLLERR | EPOLLHUP)) != 0 ? interest : events & interest;
+                interest &= ~fired;
+                if (interest != 0) {
+                    try {
+                        ctl(EPOLL_CTL_MOD, fd, interest | EPOLLONESHOT);
+                    }
+                    catch (final LastErrorException e) {
+                        // fd has already been closed
+                    }
+                }
+            }
+
+            if ((fired & EPOLLIN) != 0 && callback != null) {
+                callback.run();
+            }
+            if ((fired & EPOLLOUT) != 0 && writeCallback != null) {
+                writeCallback.run();
+            }
+        }
+    }
+
+    private void ctl(final int op, final int fd, final int events) {
+        final Memory event = CTL_EVENT.get();
+        event.setInt(0, events);
+        event.setLong(EPOLL_EVENT_DATA_OFFSET, fd);
+        epoll_ctl(epfd, op, fd, event);
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2021-2022 Heiko Bornholdt and Kevin Röbert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.drasyl.channel.tun.jna.linux;
+
+/**
+ * JNA mapping for <a href="https://github.com/torvalds/linux/blob/master/include/uapi/asm-generic/errno-base.h">errno-base.h</a>.
+ */
+final class Errno {
+    // interrupted system call
+    public static final int EINTR = 4;
+    // bad file number
+    public static final int EBADF = 9;
+    // try again
+    public static final int EAGAIN = 11;
+    // permission denied
+    public static final int EACCES = 13;
+    // invalid argument
+    public static final int EINVAL = 22;
+    // file descriptor in bad state
+    public static final int EBADFD = 77;
+
+    private Errno() {
+        // JNA mapping
+    }
+}
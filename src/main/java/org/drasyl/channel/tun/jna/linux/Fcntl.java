@@ -21,14 +21,30 @@
  */
 package org.drasyl.channel.tun.jna.linux;
 
+import com.sun.jna.LastErrorException;
+import com.sun.jna.Native;
+import com.sun.jna.Platform;
+
 /**
  * JNA mapping for <a href="https://github.com/torvalds/linux/blob/a8ad9a2434dc7967ab285437f443cae633b6fc1c/include/uapi/asm-generic/fcntl.h">fcntl.h</a>.
  */
 final class Fcntl {
+    // get file status flags
+    public static final int F_GETFL = 3;
+    // set file status flags
+    public static final int F_SETFL = 4;
     // open for reading and writing
     public static final int O_RDWR = 2;
+    // do not block on read/write
+    public static final int O_NONBLOCK = 04000;
+
+    static {
+        Native.register(Platform.C_LIBRARY_NAME);
+    }
 
     private Fcntl() {
         // JNA mapping
     }
+
+    public static native int fcntl(final int fd, final int cmd, final int arg) throws LastErrorException;
 }
@@ -28,10 +28,44 @@ import com.sun.jna.NativeLong;
  */
 public final class IfTun {
     static final NativeLong TUNSETIFF = new NativeLong(0x400454caL);
+    static final NativeLong TUNGETIFF = new NativeLong(0x800454d2L);
+    static final NativeLong TUNSETQUEUE = new NativeLong(0x400454d9L);
+    static final NativeLong TUNSETOFFLOAD = new NativeLong(0x400454d0L);
+    static final NativeLong TUNSETFILTEREBPF = new NativeLong(0x800454e1L);
+    static final NativeLong TUNSETSNDBUF = new NativeLong(0x400454d4L);
+    static final NativeLong TUNGETFEATURES = new NativeLong(0x800454cfL);
+    static final NativeLong TUNSETPERSIST = new NativeLong(0x400454cbL);
+    static final NativeLong TUNSETOWNER = new NativeLong(0x400454ccL);
+    static final NativeLong TUNSETGROUP = new NativeLong(0x400454ceL);
     // TUN device (no Ethernet headers)
     static final short IFF_TUN = 0x0001;
+    // pass written packets through NAPI (and therefore GRO)
+    static final short IFF_NAPI = 0x0010;
+    // like IFF_NAPI, but packets are passed as page fragments (only supported by TAP devices)
+    static final short IFF_NAPI_FRAGS = 0x0020;
+    // device with multiple queues, each accessible through its own file descriptor
+    static final short IFF_MULTI_QUEUE = 0x0100;
+    // enable queue of a multi-queue device
+    static final short IFF_ATTACH_QUEUE = 0x0200;
+    // disable queue of a multi-queue device
+    static final short IFF_DETACH_QUEUE = 0x0400;
     // do not provide packet information
     static final short IFF_NO_PI = 0x1000;
+    // prepend struct virtio_net_hdr to each packet
+    static final short IFF_VNET_HDR = 0x4000;
+    // offloads for TUNSETOFFLOAD
+    // we can handle partial checksums
+    public static final int TUN_F_CSUM = 0x01;
+    // we can handle TSO for IPv4 packets
+    public static final int TUN_F_TSO4 = 0x02;
+    // we can handle TSO for IPv6 packets
+    public static final int TUN_F_TSO6 = 0x04;
+    // we can handle TSO with ECN bits
+    public static final int TUN_F_TSO_ECN = 0x08;
+    // we can handle USO (UDP segmentation offload) for IPv4 packets
+    public static final int TUN_F_USO4 = 0x20;
+    // we can handle USO (UDP segmentation offload) for IPv6 packets
+    public static final int TUN_F_USO6 = 0x40;
 
     private IfTun() {
         // JNA mapping
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2021-2022 Heiko Bornholdt and Kevin Röbert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.drasyl.channel.tun.jna.linux;
+
+import com.sun.jna.LastErrorException;
+import com.sun.jna.Native;
+import com.sun.jna.Platform;
+import com.sun.jna.Pointer;
+
+/**
+ * JNA mapping for <a href="https://github.com/torvalds/linux/blob/master/include/uapi/linux/io_uring.h">io_uring.h</a>.
+ * <p>
+ * liburing is not required, the system calls are invoked directly. The structs are accessed
+ * through their offsets instead of {@link com.sun.jna.Structure}s, as they are shared with the
+ * kernel through {@code mmap}. As {@code syscall} is variadic and reads all arguments as {@code
+ * long}, all arguments are passed as {@code long}.
+ */
+final class IoUring {
+    // system call numbers (same on all architectures)
+    public static final long SYS_IO_URING_SETUP = 425;
+    public static final long SYS_IO_URING_ENTER = 426;
+    public static final long SYS_IO_URING_REGISTER = 427;
+    // offsets for mmap
+    public static final long IORING_OFF_SQ_RING = 0L;
+    public static final long IORING_OFF_CQ_RING = 0x8000000L;
+    public static final long IORING_OFF_SQES = 0x10000000L;
+    // io_uring_enter flags
+    public static final int IORING_ENTER_GETEVENTS = 1;
+    // io_uring_register opcodes
+    public static final int IORING_REGISTER_BUFFERS = 0;
+    // io_uring_params features
+    public static final int IORING_FEAT_SINGLE_MMAP = 1;
+    // opcodes
+    public static final int IORING_OP_NOP = 0;
+    public static final int IORING_OP_READ_FIXED = 4;
+    public static final int IORING_OP_POLL_ADD = 6;
+    public static final int IORING_OP_READ = 22;
+    public static final int IORING_OP_WRITE = 23;
+    // struct io_uring_params
+    public static final int IO_URING_PARAMS_SIZE = 120;
+    public static final int IO_URING_PARAMS_SQ_ENTRIES = 0;
+    public static final int IO_URING_PARAMS_CQ_ENTRIES = 4;
+    public static final int IO_URING_PARAMS_FEATURES = 20;
+    public static final int IO_URING_PARAMS_SQ_OFF = 40;
+    public static final int IO_URING_PARAMS_CQ_OFF = 80;
+    // struct io_sqring_offsets
+    public static final int IO_SQRING_OFFSETS_HEAD = 0;
+    public static final int IO_SQRING_OFFSETS_TAIL = 4;
+    public static final int IO_SQRING_OFFSETS_RING_MASK = 8;
+    public static final int IO_SQRING_OFFSETS_ARRAY = 24;
+    // struct io_cqring_offsets
+    public static final int IO_CQRING_OFFSETS_HEAD = 0;
+    public static final int IO_CQRING_OFFSETS_TAIL = 4;
+    public static final int IO_CQRING_OFFSETS_RING_MASK = 8;
+    public static final int IO_CQRING_OFFSETS_CQES = 20;
+    // struct io_uring_sqe
+    public static final int IO_URING_SQE_SIZE = 64;
+    public static final int IO_URING_SQE_OPCODE = 0;
+    public static final int IO_URING_SQE_FD = 4;
+    public static final int IO_URING_SQE_OFF = 8;
+    public static final int IO_URING_SQE_ADDR = 16;
+    public static final int IO_URING_SQE_LEN = 24;
+    public static final int IO_URING_SQE_OP_FLAGS = 28;
+    public static final int IO_URING_SQE_USER_DATA = 32;
+    public static final int IO_URING_SQE_BUF_INDEX = 40;
+    // struct io_uring_cqe
+    public static final int IO_URING_CQE_SIZE = 16;
+    public static final int IO_URING_CQE_USER_DATA = 0;
+    public static final int IO_URING_CQE_RES = 8;
+    // struct iovec
+    public static final int IOVEC_SIZE = Native.POINTER_SIZE * 2;
+
+    static {
+        Native.register(Platform.C_LIBRARY_NAME);
+    }
+
+    private IoUring() {
+        // JNA mapping
+    }
+
+    // https://man7.org/linux/man-pages/man2/io_uring_setup.2.html
+    public static native long syscall(final long number,
+                                      final long entries,
+                                      final Pointer params) throws LastErrorException;
+
+    // https://man7.org/linux/man-pages/man2/io_uring_enter.2.html
+    public static native long syscall(final long number,
+                                      final long fd,
+                                      final long toSubmit,
+                                      final long minComplete,
+                                      final long flags,
+                                      final Pointer sig,
+                                      final long sigsz) throws LastErrorException;
+
+    // https://man7.org/linux/man-pages/man2/io_uring_register.2.html
+    public static native long syscall(final long number,
+                                      final long fd,
+                                      final long opcode,
+                                      final Pointer arg,
+                                      final long nrArgs) throws LastErrorException;
+}
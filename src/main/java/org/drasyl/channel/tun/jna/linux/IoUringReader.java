@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2021-2022 Heiko Bornholdt and Kevin Röbert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.drasyl.channel.tun.jna.linux;
+
+import com.sun.jna.LastErrorException;
+import com.sun.jna.Memory;
+import com.sun.jna.Native;
+import com.sun.jna.NativeLong;
+import com.sun.jna.Pointer;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import org.drasyl.channel.tun.jna.shared.LibC;
+
+import java.io.Closeable;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.drasyl.channel.tun.jna.linux.Epoll.EPOLLIN;
+import static org.drasyl.channel.tun.jna.linux.Errno.EAGAIN;
+import static org.drasyl.channel.tun.jna.linux.Errno.EINTR;
+import static org.drasyl.channel.tun.jna.linux.Eventfd.EFD_CLOEXEC;
+import static org.drasyl.channel.tun.jna.linux.Eventfd.eventfd;
+import static org.drasyl.channel.tun.jna.linux.IoUring.IOVEC_SIZE;
+
+/**
+ * Reads packets from a tun queue through io_uring. Read requests for all buffers are kept in
+ * flight, so that the kernel can complete reads while previously read packets are processed.
+ * Completed buffers are handed back to the kernel with the next wait for completions, resulting in
+ * one system call per batch of packets. If possible, the buffers are registered with the kernel
+ * ({@code IORING_REGISTER_BUFFERS}) to avoid mapping them for each read.
+ */
+final class IoUringReader implements Closeable {
+    private static final long WAKEUP = -1;
+    private static final NativeLong EVENTFD_VALUE_SIZE = new NativeLong(8);
+    private final int fd;
+    private final int readBytes;
+    private final IoUringRing ring;
+    private final Memory buffers;
+    private final boolean fixedBuffers;
+    private final boolean[] idle;
+    private final int wakeupFd;
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile boolean closed;
+
+    /**
+     * @param fd        file descriptor of the tun queue
+     * @param entries   number of reads kept in flight
+     * @param readBytes size of each buffer
+     * @throws LastErrorException if io_uring is not available
+     */
+    @SuppressWarnings("java:S2095")
+    IoUringReader(final int fd, final int entries, final int readBytes) {
+        this.fd = fd;
+        this.readBytes = readBytes;
+        // one entry is required for the wakeup poll
+        ring = new IoUringRing(entries + 1);
+        try {
+            buffers = new Memory((long) entries * readBytes);
+            idle = new boolean[entries];
+            fixedBuffers = registerBuffers(entries);
+            wakeupFd = eventfd(0, EFD_CLOEXEC);
+        }
+        catch (final LastErrorException e) {
+            ring.close();
+            throw e;
+        }
+
+        ring.prepPollAdd(wakeupFd, EPOLLIN, WAKEUP);
+        for (int i = 0; i < entries; i++) {
+            prepRead(i);
+        }
+        ring.submit(0);
+    }
+
+    /**
+     * Registers the buffers with the kernel. Returns {@code false} if this is not possible (e.g.,
+     * due to {@code RLIMIT_MEMLOCK} on kernels prior to 5.12).
+     */
+    @SuppressWarnings("java:S1166")
+    private boolean registerBuffers(final int entries) {
+        try (final Memory iovecs = new Memory((long) entries * IOVEC_SIZE)) {
+            for (int i = 0; i < entries; i++) {
+                iovecs.setPointer((long) i * IOVEC_SIZE, buffers.share((long) i * readBytes));
+                iovecs.setLong((long) i * IOVEC_SIZE + Native.POINTER_SIZE, readBytes);
+            }
+            ring.registerBuffers(iovecs, entries);
+            return true;
+        }
+        catch (final LastErrorException e) {
+            return false;
+        }
+    }
+
+    private void prepRead(final int index) {
+        final long addr = Pointer.nativeValue(buffers) + (long) index * readBytes;
+        if (fixedBuffers) {
+            ring.prepReadFixed(fd, addr, readBytes, index, index);
+        }
+        else {
+            ring.prepRead(fd, addr, readBytes, index);
+        }
+        idle[index] = false;
+    }
+
+    /**
+     * Reads and blocks until a packet has been received. Returns {@code null} if this reader has
+     * been closed.
+     *
+     * @param alloc allocator for the returned buffer
+     * @return the read packet (including the virtio net header, if enabled) or {@code null}
+     * @throws LastErrorException if the read failed
+     */
+    ByteBuf read(final ByteBufAllocator alloc) {
+        lock.lock();
+        try {
+            // hand back buffers of failed reads
+            for (int i = 0; i < idle.length; i++) {
+                if (idle[i]) {
+                    prepRead(i);
+                }
+            }
+
+            while (!closed) {
+                if (!ring.peek()) {
+                    // hand back completed buffers and wait for next completion
+                    ring.submit(1);
+                    continue;
+                }
+
+                final long userData = ring.userData();
+                final int res = ring.result();
+                ring.advance();
+                if (userData == WAKEUP) {
+                    continue;
+                }
+
+                final int index = (int) userData;
+                if (res < 0) {
+                    idle[index] = true;
+                    if (-res == EAGAIN || -res == EINTR) {
+                        prepRead(index);
+                        continue;
+                    }
+                    throw new LastErrorException(-res);
+                }
+
+                final ByteBuf buf = alloc.buffer(res);
+                buf.writeBytes(buffers.getByteBuffer((long) index * readBytes, res));
+                prepRead(index);
+                return buf;
+            }
+            return null;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Closes this reader. A thread blocked in {@link #read(ByteBufAllocator)} is woken up. Pending
+     * reads are canceled.
+     */
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            LibC.write(wakeupFd, new byte[]{ 0, 0, 0, 0, 0, 0, 0, 1 }, EVENTFD_VALUE_SIZE);
+
+            // wait for reading thread to leave the ring
+            lock.lock();
+            try {
+                ring.close();
+                LibC.close(wakeupFd);
+                buffers.close();
+            }
+            finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,301 @@
+/*
+ * Copyright (c) 2021-2022 Heiko Bornholdt and Kevin Röbert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.drasyl.channel.tun.jna.linux;
+
+import com.sun.jna.LastErrorException;
+import com.sun.jna.Memory;
+import com.sun.jna.Pointer;
+import org.drasyl.channel.tun.jna.shared.LibC;
+
+import java.io.Closeable;
+import java.lang.invoke.VarHandle;
+
+import static org.drasyl.channel.tun.jna.linux.Errno.EINTR;
+import static org.drasyl.channel.tun.jna.linux.IoUring.IORING_ENTER_GETEVENTS;
+import static org.drasyl.channel.tun.jna.linux.IoUring.IORING_FEAT_SINGLE_MMAP;
+import static org.drasyl.channel.tun.jna.linux.IoUring.IORING_OFF_CQ_RING;
+import static org.drasyl.channel.tun.jna.linux.IoUring.IORING_OFF_SQES;
+import static org.drasyl.channel.tun.jna.linux.IoUring.IORING_OFF_SQ_RING;
+import static org.drasyl.channel.tun.jna.linux.IoUring.IORING_OP_POLL_ADD;
+import static org.drasyl.channel.tun.jna.linux.IoUring.IORING_OP_READ;
+import static org.drasyl.channel.tun.jna.linux.IoUring.IORING_OP_READ_FIXED;
+import static org.drasyl.channel.tun.jna.linux.IoUring.IORING_OP_WRITE;
+import static org.drasyl.channel.tun.jna.linux.IoUring.IORING_REGISTER_BUFFERS;
+import static org.drasyl.channel.tun.jna.linux.IoUring.IO_CQRING_OFFSETS_CQES;
+import static org.drasyl.channel.tun.jna.linux.IoUring.IO_CQRING_OFFSETS_HEAD;
+import static org.drasyl.channel.tun.jna.linux.IoUring.IO_CQRING_OFFSETS_RING_MASK;
+import static org.drasyl.channel.tun.jna.linux.IoUring.IO_CQRING_OFFSETS_TAIL;
+import static org.drasyl.channel.tun.jna.linux.IoUring.IO_SQRING_OFFSETS_ARRAY;
+import static org.drasyl.channel.tun.jna.linux.IoUring.IO_SQRING_OFFSETS_HEAD;
+import static org.drasyl.channel.tun.jna.linux.IoUring.IO_SQRING_OFFSETS_RING_MASK;
+import static org.drasyl.channel.tun.jna.linux.IoUring.IO_SQRING_OFFSETS_TAIL;
+import static org.drasyl.channel.tun.jna.linux.IoUring.IO_URING_CQE_RES;
+import static org.drasyl.channel.tun.jna.linux.IoUring.IO_URING_CQE_SIZE;
+import static org.drasyl.channel.tun.jna.linux.IoUring.IO_URING_CQE_USER_DATA;
+import static org.drasyl.channel.tun.jna.linux.IoUring.IO_URING_PARAMS_CQ_ENTRIES;
+import static org.drasyl.channel.tun.jna.linux.IoUring.IO_URING_PARAMS_CQ_OFF;
+import static org.drasyl.channel.tun.jna.linux.IoUring.IO_URING_PARAMS_FEATURES;
+import static org.drasyl.channel.tun.jna.linux.IoUring.IO_URING_PARAMS_SIZE;
+import static org.drasyl.channel.tun.jna.linux.IoUring.IO_URING_PARAMS_SQ_ENTRIES;
+import static org.drasyl.channel.tun.jna.linux.IoUring.IO_URING_PARAMS_SQ_OFF;
+import static org.drasyl.channel.tun.jna.linux.IoUring.IO_URING_SQE_ADDR;
+import static org.drasyl.channel.tun.jna.linux.IoUring.IO_URING_SQE_BUF_INDEX;
+import static org.drasyl.channel.tun.jna.linux.IoUring.IO_URING_SQE_FD;
+import static org.drasyl.channel.tun.jna.linux.IoUring.IO_URING_SQE_LEN;
+import static org.drasyl.channel.tun.jna.linux.IoUring.IO_URING_SQE_OPCODE;
+import static org.drasyl.channel.tun.jna.linux.IoUring.IO_URING_SQE_OP_FLAGS;
+import static org.drasyl.channel.tun.jna.linux.IoUring.IO_URING_SQE_SIZE;
+import static org.drasyl.channel.tun.jna.linux.IoUring.IO_URING_SQE_USER_DATA;
+import static org.drasyl.channel.tun.jna.linux.IoUring.SYS_IO_URING_ENTER;
+import static org.drasyl.channel.tun.jna.linux.IoUring.SYS_IO_URING_REGISTER;
+import static org.drasyl.channel.tun.jna.linux.IoUring.SYS_IO_URING_SETUP;
+import static org.drasyl.channel.tun.jna.linux.Mman.MAP_POPULATE;
+import static org.drasyl.channel.tun.jna.linux.Mman.MAP_SHARED;
+import static org.drasyl.channel.tun.jna.linux.Mman.PROT_READ;
+import static org.drasyl.channel.tun.jna.linux.Mman.PROT_WRITE;
+import static org.drasyl.channel.tun.jna.linux.Mman.mmap;
+import static org.drasyl.channel.tun.jna.linux.Mman.munmap;
+
+/**
+ * Submission and completion queue of an io_uring instance. Submission queue entries are prepared
+ * by the {@code prep*} methods and passed to the kernel by {@link #submit(int)}. Completions are
+ * consumed by {@link #peek()}, {@link #userData()}, {@link #result()}, and {@link #advance()}.
+ * <p>
+ * This class is not thread-safe.
+ */
+final class IoUringRing implements Closeable {
+    private final int ringFd;
+    private final int sqEntries;
+    private final Pointer sqRing;
+    private final long sqRingSize;
+    private final Pointer cqRing;
+    private final long cqRingSize;
+    private final Pointer sqes;
+    private final Pointer sqHead;
+    private final Pointer sqTail;
+    private final int sqMask;
+    private final Pointer cqHead;
+    private final Pointer cqTail;
+    private final int cqMask;
+    private final int cqesOffset;
+    private int sqTailLocal;
+    private int cqHeadLocal;
+    private boolean closed;
+
+    /**
+     * Creates a new io_uring instance.
+     *
+     * @param entries minimum number of submission queue entries
+     * @throws LastErrorException if the instance could not be created (e.g., on kernels prior to
+     *                            5.6 or if io_uring has been disabled)
+     */
+    @SuppressWarnings("java:S109")
+    IoUringRing(final int entries) {
+        final Memory params = new Memory(IO_URING_PARAMS_SIZE);
+        params.clear();
+        ringFd = (int) IoUring.syscall(SYS_IO_URING_SETUP, entries, params);
+        try {
+            sqEntries = params.getInt(IO_URING_PARAMS_SQ_ENTRIES);
+            final int cqEntries = params.getInt(IO_URING_PARAMS_CQ_ENTRIES);
+            final boolean singleMmap = (params.getInt(IO_URING_PARAMS_FEATURES) & IORING_FEAT_SINGLE_MMAP) != 0;
+            final int sqArray = params.getInt(IO_URING_PARAMS_SQ_OFF + IO_SQRING_OFFSETS_ARRAY);
+            cqesOffset = params.getInt(IO_URING_PARAMS_CQ_OFF + IO_CQRING_OFFSETS_CQES);
+
+            // map rings
+            long sqSize = sqArray + sqEntries * 4L;
+            long cqSize = cqesOffset + (long) cqEntries * IO_URING_CQE_SIZE;
+            if (singleMmap) {
+                sqSize = Math.max(sqSize, cqSize);
+                cqSize = 0;
+            }
+            sqRingSize = sqSize;
+            cqRingSize = cqSize;
+            sqRing = mmap(null, sqRingSize, PROT_READ | PROT_WRITE, MAP_SHARED | MAP_POPULATE, ringFd, IORING_OFF_SQ_RING);
+            cqRing = singleMmap ? sqRing : mmap(null, cqRingSize, PROT_READ | PROT_WRITE, MAP_SHARED | MAP_POPULATE, ringFd, IORING_OFF_CQ_RING);
+            sqes = mmap(null, (long) sqEntries * IO_URING_SQE_SIZE, PROT_READ | PROT_WRITE, MAP_SHARED | MAP_POPULATE, ringFd, IORING_OFF_SQES);
+
+            sqHead = sqRing.share(params.getInt(IO_URING_PARAMS_SQ_OFF + IO_SQRING_OFFSETS_HEAD));
+            sqTail = sqRing.share(params.getInt(IO_URING_PARAMS_SQ_OFF + IO_SQRING_OFFSETS_TAIL));
+            sqMask = sqRing.getInt(params.getInt(IO_URING_PARAMS_SQ_OFF + IO_SQRING_OFFSETS_RING_MASK));
+            cqHead = cqRing.share(params.getInt(IO_URING_PARAMS_CQ_OFF + IO_CQRING_OFFSETS_HEAD));
+            cqTail = cqRing.share(params.getInt(IO_URING_PARAMS_CQ_OFF + IO_CQRING_OFFSETS_TAIL));
+            cqMask = cqRing.getInt(params.getInt(IO_URING_PARAMS_CQ_OFF + IO_CQRING_OFFSETS_RING_MASK));
+            sqTailLocal = sqTail.getInt(0);
+            cqHeadLocal = cqHead.getInt(0);
+
+            // submission queue entry i is always stored at index i
+            for (int i = 0; i < sqEntries; i++) {
+                sqRing.setInt(sqArray + i * 4L, i);
+            }
+        }
+        catch (final LastErrorException e) {
+            LibC.close(ringFd);
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the number of submission queue entries.
+     *
+     * @return the number of submission queue entries
+     */
+    int entries() {
+        return sqEntries;
+    }
+
+    /**
+     * Registers the given buffers for {@link #prepReadFixed(int, long, int, int, long)}.
+     *
+     * @param iovecs array of {@code struct iovec}
+     * @param count  number of buffers
+     * @throws LastErrorException if the buffers could not be registered (e.g., due to {@code
+     *                            RLIMIT_MEMLOCK})
+     */
+    void registerBuffers(final Pointer iovecs, final int count) {
+        IoUring.syscall(SYS_IO_URING_REGISTER, ringFd, IORING_REGISTER_BUFFERS, iovecs, count);
+    }
+
+    boolean prepRead(final int fd, final long addr, final int len, final long userData) {
+        return prep(IORING_OP_READ, fd, addr, len, 0, -1, userData);
+    }
+
+    boolean prepReadFixed(final int fd,
+                          final long addr,
+                          final int len,
+                          final int bufIndex,
+                          final long userData) {
+        return prep(IORING_OP_READ_FIXED, fd, addr, len, 0, bufIndex, userData);
+    }
+
+    boolean prepWrite(final int fd, final long addr, final int len, final long userData) {
+        return prep(IORING_OP_WRITE, fd, addr, len, 0, -1, userData);
+    }
+
+    boolean prepPollAdd(final int fd, final int events, final long userData) {
+        return prep(IORING_OP_POLL_ADD, fd, 0, 0, events, -1, userData);
+    }
+
+    /**
+     * Prepares a submission queue entry. Returns {@code false} if the submission queue is full.
+     */
+    private boolean prep(final int opcode,
+                         final int fd,
+                         final long addr,
+                         final int len,
+                         final int opFlags,
+                         final int bufIndex,
+                         final long userData) {
+        final int head = sqHead.getInt(0);
+        VarHandle.acquireFence();
+        if (sqTailLocal - head == sqEntries) {
+            return false;
+        }
+
+        final long offset = (long) (sqTailLocal & sqMask) * IO_URING_SQE_SIZE;
+        sqes.setMemory(offset, IO_URING_SQE_SIZE, (byte) 0);
+        sqes.setByte(offset + IO_URING_SQE_OPCODE, (byte) opcode);
+        sqes.setInt(offset + IO_URING_SQE_FD, fd);
+        sqes.setLong(offset + IO_URING_SQE_ADDR, addr);
+        sqes.setInt(offset + IO_URING_SQE_LEN, len);
+        sqes.setInt(offset + IO_URING_SQE_OP_FLAGS, opFlags);
+        sqes.setLong(offset + IO_URING_SQE_USER_DATA, userData);
+        if (bufIndex != -1) {
+            sqes.setShort(offset + IO_URING_SQE_BUF_INDEX, (short) bufIndex);
+        }
+        sqTailLocal++;
+        return true;
+    }
+
+    /**
+     * Submits all prepared entries and waits until at least {@code minComplete} completions are
+     * available.
+     *
+     * @param minComplete number of completions to wait for
+     * @throws LastErrorException if {@code io_uring_enter} failed
+     */
+    void submit(final int minComplete) {
+        VarHandle.releaseFence();
+        sqTail.setInt(0, sqTailLocal);
+
+        while (true) {
+            final int toSubmit = sqTailLocal - sqHead.getInt(0);
+            if (toSubmit == 0 && minComplete == 0) {
+                return;
+            }
+            try {
+                IoUring.syscall(SYS_IO_URING_ENTER, ringFd, toSubmit, minComplete, minComplete > 0 ? IORING_ENTER_GETEVENTS : 0, null, 0);
+                return;
+            }
+            catch (final LastErrorException e) {
+                if (e.getErrorCode() != EINTR) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns {@code true} if a completion is available. The completion can then be inspected by
+     * {@link #userData()} and {@link #result()}, and must be consumed by {@link #advance()}.
+     *
+     * @return {@code true} if a completion is available
+     */
+    boolean peek() {
+        final int tail = cqTail.getInt(0);
+        VarHandle.acquireFence();
+        return cqHeadLocal != tail;
+    }
+
+    long userData() {
+        return cqRing.getLong(cqeOffset() + IO_URING_CQE_USER_DATA);
+    }
+
+    int result() {
+        return cqRing.getInt(cqeOffset() + IO_URING_CQE_RES);
+    }
+
+    void advance() {
+        cqHeadLocal++;
+        VarHandle.releaseFence();
+        cqHead.setInt(0, cqHeadLocal);
+    }
+
+    private long cqeOffset() {
+        return cqesOffset + (long) (cqHeadLocal & cqMask) * IO_URING_CQE_SIZE;
+    }
+
+    /**
+     * Closes the io_uring instance. All pending requests are canceled.
+     */
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            LibC.close(ringFd);
+            munmap(sqes, (long) sqEntries * IO_URING_SQE_SIZE);
+            if (cqRing != sqRing) {
+                munmap(cqRing, cqRingSize);
+            }
+            munmap(sqRing, sqRingSize);
+        }
+    }
+}
@@ -21,102 +21,685 @@
  */
 package org.drasyl.channel.tun.jna.linux;
 
+import com.sun.jna.LastErrorException;
+import com.sun.jna.Memory;
 import com.sun.jna.Native;
 import com.sun.jna.NativeLong;
+import com.sun.jna.Pointer;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
 import org.drasyl.channel.tun.Tun4Packet;
 import org.drasyl.channel.tun.Tun6Packet;
 import org.drasyl.channel.tun.TunAddress;
+import org.drasyl.channel.tun.TunFilter;
 import org.drasyl.channel.tun.TunPacket;
+import org.drasyl.channel.tun.VirtioNetHeader;
 import org.drasyl.channel.tun.jna.AbstractTunDevice;
 import org.drasyl.channel.tun.jna.TunDevice;
 import org.drasyl.channel.tun.jna.shared.If.Ifreq;
 import org.drasyl.channel.tun.jna.shared.LibC;
 
 import java.io.IOException;
-import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.drasyl.channel.tun.Tun4Packet.INET4_DESTINATION_ADDRESS;
+import static org.drasyl.channel.tun.Tun4Packet.INET4_HEADER_LENGTH;
+import static org.drasyl.channel.tun.Tun4Packet.INET4_PROTOCOL;
+import static org.drasyl.channel.tun.Tun4Packet.INET4_SOURCE_ADDRESS;
+import static org.drasyl.channel.tun.Tun6Packet.INET6_HEADER_LENGTH;
+import static org.drasyl.channel.tun.Tun6Packet.INET6_NEXT_HEADER;
+import static org.drasyl.channel.tun.Tun6Packet.INET6_SOURCE_ADDRESS;
+import static org.drasyl.channel.tun.VirtioNetHeader.VIRTIO_NET_HDR_LENGTH;
+import static org.drasyl.channel.tun.jna.linux.Errno.EAGAIN;
+import static org.drasyl.channel.tun.jna.linux.Errno.EBADFD;
+import static org.drasyl.channel.tun.jna.linux.Errno.EINTR;
+import static org.drasyl.channel.tun.jna.linux.Errno.EINVAL;
+import static org.drasyl.channel.tun.jna.linux.Fcntl.F_GETFL;
+import static org.drasyl.channel.tun.jna.linux.Fcntl.F_SETFL;
+import static org.drasyl.channel.tun.jna.linux.Fcntl.O_NONBLOCK;
 import static org.drasyl.channel.tun.jna.linux.Fcntl.O_RDWR;
+import static org.drasyl.channel.tun.jna.linux.Fcntl.fcntl;
+import static org.drasyl.channel.tun.jna.linux.IfTun.IFF_ATTACH_QUEUE;
+import static org.drasyl.channel.tun.jna.linux.IfTun.IFF_DETACH_QUEUE;
+import static org.drasyl.channel.tun.jna.linux.IfTun.IFF_MULTI_QUEUE;
+import static org.drasyl.channel.tun.jna.linux.IfTun.IFF_NAPI;
 import static org.drasyl.channel.tun.jna.linux.IfTun.IFF_NO_PI;
 import static org.drasyl.channel.tun.jna.linux.IfTun.IFF_TUN;
+import static org.drasyl.channel.tun.jna.linux.IfTun.IFF_VNET_HDR;
+import static org.drasyl.channel.tun.jna.linux.IfTun.TUNSETOFFLOAD;
+import static org.drasyl.channel.tun.jna.linux.IfTun.TUN_F_CSUM;
+import static org.drasyl.channel.tun.jna.linux.IfTun.TUNSETFILTEREBPF;
+import static org.drasyl.channel.tun.jna.linux.IfTun.TUNSETGROUP;
+import static org.drasyl.channel.tun.jna.linux.IfTun.TUNGETIFF;
 import static org.drasyl.channel.tun.jna.linux.IfTun.TUNSETIFF;
+import static org.drasyl.channel.tun.jna.linux.IfTun.TUNSETOWNER;
+import static org.drasyl.channel.tun.jna.linux.IfTun.TUNSETPERSIST;
+import static org.drasyl.channel.tun.jna.linux.IfTun.TUNSETSNDBUF;
+import static org.drasyl.channel.tun.jna.linux.IfTun.TUNSETQUEUE;
+import static org.drasyl.channel.tun.jna.linux.Poll.POLLFD_EVENTS;
+import static org.drasyl.channel.tun.jna.linux.Poll.POLLFD_FD;
+import static org.drasyl.channel.tun.jna.linux.Poll.POLLFD_SIZE;
+import static org.drasyl.channel.tun.jna.linux.Poll.POLLIN;
+import static org.drasyl.channel.tun.jna.linux.Sockios.SIOCGIFINDEX;
 import static org.drasyl.channel.tun.jna.linux.Sockios.SIOCGIFMTU;
 import static org.drasyl.channel.tun.jna.linux.Sockios.SIOCSIFMTU;
 import static org.drasyl.channel.tun.jna.shared.If.IFNAMSIZ;
 import static org.drasyl.channel.tun.jna.shared.LibC.ioctl;
-import static org.drasyl.channel.tun.jna.shared.LibC.read;
 import static org.drasyl.channel.tun.jna.shared.LibC.socket;
-import static org.drasyl.channel.tun.jna.shared.LibC.write;
 import static org.drasyl.channel.tun.jna.shared.Socket.AF_INET;
 import static org.drasyl.channel.tun.jna.shared.Socket.SOCK_DGRAM;
 
 /**
  * {@link TunDevice} implementation for Linux-based platforms.
+ * <p>
+ * The device can consist of several queues (see {@link LinuxTunDeviceOptions#queues(int)}), each
+ * with its own file descriptor. The kernel distributes received flows across the queues, while
+ * {@link #writePacket(ByteBufAllocator, TunPacket)} picks the queue by hashing the packet's flow.
+ * <p>
+ * Queues of a multi-queue device can be disabled and re-enabled at runtime using {@link
+ * #detachQueue(int)} and {@link #attachQueue(int)}. The kernel does not deliver packets to detached
+ * queues, and written packets are distributed across the attached queues only.
  */
 public final class LinuxTunDevice extends AbstractTunDevice {
     private static final IllegalArgumentException ILLEGAL_NAME_EXCEPTION = new IllegalArgumentException("Device name must be an ASCII string shorter than 16 characters or null.");
-    private final int fd;
-    private final NativeLong mtu;
+    private static final int PROTOCOL_TCP = 6;
+    private static final int PROTOCOL_UDP = 17;
+    private static final int MAX_GSO_PACKET_SIZE = 65535;
+    private static final ThreadLocal<Memory> POLLFD = ThreadLocal.withInitial(() -> new Memory(POLLFD_SIZE));
+    private final int[] fds;
+    // indexes of the attached queues, replaced on every attach/detach
+    private volatile int[] attachedQueues;
+    private final int readBytes;
+    private final boolean nonBlocking;
+    private final boolean vnetHdr;
+    private final boolean csumOffload;
+    private final boolean tcpCoalesce;
+    private final int offloads;
+    private final LinuxTunFeatures features;
+    private final int index;
+    // null if io_uring is not used
+    private final IoUringReader[] ioUringReaders;
+    private final IoUringRing ioUringWriter;
     protected boolean closed;
 
-    private LinuxTunDevice(final int fd, final int mtu, final TunAddress localAddress) {
+    // package-private for tests backing a device with other file descriptors
+    LinuxTunDevice(final int[] fds,
+                   final int mtu,
+                   final LinuxTunDeviceOptions options,
+                   final int offloads,
+                   final LinuxTunFeatures features,
+                   final int index,
+                   final TunAddress localAddress) {
         super(localAddress);
-        this.fd = fd;
-        this.mtu = new NativeLong(mtu);
+        this.fds = fds;
+        this.attachedQueues = new int[fds.length];
+        for (int i = 0; i < fds.length; i++) {
+            attachedQueues[i] = i;
+        }
+        this.nonBlocking = options.nonBlocking();
+        this.vnetHdr = options.vnetHdr();
+        this.csumOffload = options.csumOffload();
+        this.tcpCoalesce = options.tcpCoalesce();
+        this.offloads = offloads;
+        this.features = features;
+        this.index = index;
+        if (!vnetHdr) {
+            this.readBytes = mtu;
+        }
+        else if ((offloads & ~TUN_F_CSUM) != 0) {
+            // segmentation offloads result in packets larger than the mtu
+            this.readBytes = VIRTIO_NET_HDR_LENGTH + MAX_GSO_PACKET_SIZE;
+        }
+        else {
+            this.readBytes = VIRTIO_NET_HDR_LENGTH + mtu;
+        }
+        if (options.ioUring() > 0) {
+            this.ioUringReaders = new IoUringReader[fds.length];
+            try {
+                for (int i = 0; i < fds.length; i++) {
+                    ioUringReaders[i] = new IoUringReader(fds[i], options.ioUring(), readBytes);
+                }
+                this.ioUringWriter = new IoUringRing(options.ioUring());
+            }
+            catch (final LastErrorException e) {
+                for (final IoUringReader reader : ioUringReaders) {
+                    if (reader != null) {
+                        reader.close();
+                    }
+                }
+                throw e;
+            }
+        }
+        else {
+            this.ioUringReaders = null;
+            this.ioUringWriter = null;
+        }
     }
 
-    public static TunDevice open(String name, int mtu) throws IOException {
+    public static TunDevice open(final String name, final int mtu) throws IOException {
+        return open(name, new LinuxTunDeviceOptions().mtu(mtu));
+    }
+
+    /**
+     * Opens the tun device. The kernel's capabilities are probed first (see {@link
+     * #features()}).
+     *
+     * @param name    desired name of the device or {@code null}
+     * @param options options used to create the device
+     * @return the opened device
+     * @throws IOException if the device could not be opened
+     */
+    @SuppressWarnings({ "java:S1166", "java:S1226" })
+    public static LinuxTunDevice open(String name,
+                                      LinuxTunDeviceOptions options) throws IOException {
+        final int supportedFlags = LinuxTunFeatures.probeFlags();
+        if (options.autoFeatures()) {
+            options = options.withFeatures(supportedFlags);
+        }
         if (name != null && name.isEmpty()) {
             name = null;
         }
         if (name != null && (name.length() >= IFNAMSIZ || !US_ASCII.newEncoder().canEncode(name))) {
             throw ILLEGAL_NAME_EXCEPTION;
         }
+        if ((options.offloads() != 0 || options.csumOffload() || options.tcpCoalesce()) && !options.vnetHdr()) {
+            throw new IllegalArgumentException("Offloads require IFF_VNET_HDR.");
+        }
+        if (options.ioUring() > 0 && options.nonBlocking()) {
+            throw new IllegalArgumentException("io_uring requires blocking mode.");
+        }
+
+        final int queues = options.queues();
+        short flags = IFF_TUN | IFF_NO_PI;
+        if (queues > 1) {
+            flags |= IFF_MULTI_QUEUE;
+        }
+        if (options.vnetHdr()) {
+            flags |= IFF_VNET_HDR;
+        }
+        if (options.napi()) {
+            // IFF_NAPI_FRAGS is not used, as the kernel supports it only for TAP devices
+            flags |= IFF_NAPI;
+        }
+
+        final int[] fds = new int[queues];
+        int opened = 0;
+        try {
+            for (int i = 0; i < queues; i++) {
+                // open tun device
+                final int fd = LibC.open("/dev/net/tun", options.nonBlocking() ? O_RDWR | O_NONBLOCK : O_RDWR);
+
+                if (fd == -1) {
+                    throw new IOException("Create an endpoint for communication failed.");
+                }
+                fds[opened++] = fd;
+
+                // configure/create actual tun device (or attach further queue to it)
+                final Ifreq ifreq = new Ifreq(name, flags);
+                ioctl(fd, TUNSETIFF, ifreq);
+
+                name = Native.toString(ifreq.ifr_name, US_ASCII);
+            }
+
+            return configure(name, fds, options, supportedFlags);
+        }
+        catch (final IOException | LastErrorException e) {
+            for (int i = 0; i < opened; i++) {
+                LibC.close(fds[i]);
+            }
+            throw e;
+        }
+    }
 
-        // open tun device
-        final int fd = LibC.open("/dev/net/tun", O_RDWR);
+    /**
+     * Adopts already opened file descriptors of a tun device, e.g. inherited from a supervisor or
+     * received from a predecessor process by {@link TunHandoff#receive(java.nio.file.Path)}.
+     * Multiple descriptors must be queues of the same multi-queue device. Flags fixed on the
+     * device's creation, like {@code IFF_VNET_HDR}, are taken from the device and override the
+     * corresponding options. Queues detached by the predecessor (see {@link #detachQueue(int)}) are
+     * attached again. The descriptors are owned by the returned device, but are left open if
+     * adopting fails.
+     *
+     * @param name    expected name of the device or {@code null}
+     * @param fds     file descriptors of the device's queues
+     * @param options options used to configure the device
+     * @return the adopted device
+     * @throws IOException if the descriptors do not belong to a suitable device or it could not be
+     *                     configured
+     */
+    @SuppressWarnings("java:S1226")
+    public static LinuxTunDevice adopt(final String name,
+                                       final int[] fds,
+                                       LinuxTunDeviceOptions options) throws IOException {
+        if (fds.length == 0) {
+            throw new IllegalArgumentException("At least one file descriptor is required.");
+        }
+        if (options.ioUring() > 0 && options.nonBlocking()) {
+            throw new IllegalArgumentException("io_uring requires blocking mode.");
+        }
 
-        if (fd == -1) {
-            throw new IOException("Create an endpoint for communication failed.");
+        final int supportedFlags = LinuxTunFeatures.probeFlags();
+        if (options.autoFeatures()) {
+            options = options.withFeatures(supportedFlags);
         }
 
-        // configure/create actual tun device
-        final Ifreq ifreq = new Ifreq(name, (short) (IFF_TUN | IFF_NO_PI));
-        ioctl(fd, TUNSETIFF, ifreq);
+        String deviceName = null;
+        int flags = 0;
+        try {
+            for (final int fd : fds) {
+                final Ifreq ifreq = new Ifreq(null, (short) 0);
+                ioctl(fd, TUNGETIFF, ifreq);
+                final String fdName = Native.toString(ifreq.ifr_name, US_ASCII);
+                if (deviceName != null && !deviceName.equals(fdName)) {
+                    throw new IOException("File descriptors belong to different devices (" + deviceName + ", " + fdName + ").");
+                }
+                deviceName = fdName;
+                flags = ifreq.ifr_ifru.ifru_flags;
+            }
+        }
+        catch (final LastErrorException e) {
+            throw new IOException("File descriptors do not belong to an attached tun device.", e);
+        }
+        if (name != null && !name.isEmpty() && !name.equals(deviceName)) {
+            throw new IOException("File descriptors belong to device " + deviceName + " instead of " + name + ".");
+        }
+        if ((flags & IFF_TUN) == 0 || (flags & IFF_NO_PI) == 0) {
+            throw new IOException("Device " + deviceName + " must be a tun device without packet information.");
+        }
+        if (fds.length > 1 && (flags & IFF_MULTI_QUEUE) == 0) {
+            throw new IOException("Device " + deviceName + " has only a single queue.");
+        }
 
-        final String deviceName = Native.toString(ifreq.ifr_name, US_ASCII);
+        options = options.withFlags(flags, fds.length);
+        try {
+            for (final int fd : fds) {
+                if ((flags & IFF_MULTI_QUEUE) != 0) {
+                    attachAdoptedQueue(fd);
+                }
+                final int status = fcntl(fd, F_GETFL, 0);
+                fcntl(fd, F_SETFL, options.nonBlocking() ? status | O_NONBLOCK : status & ~O_NONBLOCK);
+            }
 
-        final int s = socket(AF_INET, SOCK_DGRAM, 0);
-        if (mtu != 0) {
-            // set mtu
-            final Ifreq ifreq2 = new Ifreq(deviceName, mtu);
-            ioctl(s, SIOCSIFMTU, ifreq2);
-            mtu = ifreq2.ifr_ifru.ifru_mtu;
+            return configure(deviceName, fds.clone(), options, supportedFlags);
         }
-        else {
+        catch (final LastErrorException e) {
+            throw new IOException("Configure device " + deviceName + " failed.", e);
+        }
+    }
+
+    /**
+     * Attaches the given queue if it has been detached by the predecessor, as the kernel does not
+     * steer packets to it otherwise. Attached queues are rejected with {@code EINVAL}.
+     */
+    private static void attachAdoptedQueue(final int fd) {
+        try {
+            ioctl(fd, TUNSETQUEUE, new Ifreq(null, IFF_ATTACH_QUEUE));
+        }
+        catch (final LastErrorException e) {
+            if (e.getErrorCode() != EINVAL) {
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Configures the device that has just been opened or adopted and returns it.
+     */
+    private static LinuxTunDevice configure(final String name,
+                                            final int[] fds,
+                                            final LinuxTunDeviceOptions options,
+                                            final int supportedFlags) throws IOException {
+        int offloads = options.offloads();
+        int supportedOffloads = 0;
+        if (options.vnetHdr()) {
+            // offloads apply to the whole device
+            supportedOffloads = LinuxTunFeatures.probeOffloads(fds[0]);
+            offloads &= supportedOffloads;
+            if (offloads != supportedOffloads) {
+                ioctl(fds[0], TUNSETOFFLOAD, new NativeLong(offloads));
+            }
+        }
+
+        if (options.owner() != -1) {
+            ioctl(fds[0], TUNSETOWNER, new NativeLong(options.owner()));
+        }
+        if (options.group() != -1) {
+            ioctl(fds[0], TUNSETGROUP, new NativeLong(options.group()));
+        }
+        if (options.persist()) {
+            ioctl(fds[0], TUNSETPERSIST, new NativeLong(1));
+        }
+
+        if (options.sndbuf() > 0) {
+            // send buffer applies to all queues
+            final Memory sndbuf = new Memory(Integer.BYTES);
+            sndbuf.setInt(0, options.sndbuf());
+            ioctl(fds[0], TUNSETSNDBUF, new NativeLong(Pointer.nativeValue(sndbuf)));
+        }
+
+        int mtu;
+        final int index;
+
+        final int s = socket(AF_INET, SOCK_DGRAM, 0);
+        try {
             // get mtu
-            final Ifreq ifreq2 = new Ifreq(deviceName);
+            final Ifreq ifreq2 = new Ifreq(name);
             ioctl(s, SIOCGIFMTU, ifreq2);
             mtu = ifreq2.ifr_ifru.ifru_mtu;
+            if (options.mtu() != 0 && options.mtu() != mtu) {
+                // set mtu (not required for persistent devices opened again, which would require CAP_NET_ADMIN)
+                final Ifreq ifreq3 = new Ifreq(name, options.mtu());
+                ioctl(s, SIOCSIFMTU, ifreq3);
+                mtu = ifreq3.ifr_ifru.ifru_mtu;
+            }
+
+            // get index (ifru_ifindex shares its offset with ifru_mtu)
+            final Ifreq ifreq4 = new Ifreq(name);
+            ioctl(s, SIOCGIFINDEX, ifreq4);
+            index = ifreq4.ifr_ifru.ifru_mtu;
+        }
+        finally {
+            LibC.close(s);
+        }
+
+        try {
+            return new LinuxTunDevice(fds, mtu, options, offloads, new LinuxTunFeatures(supportedFlags, supportedOffloads), index, new TunAddress(name));
+        }
+        catch (final LastErrorException e) {
+            throw new IOException("io_uring is not available.", e);
         }
+    }
 
-        return new LinuxTunDevice(fd, mtu, new TunAddress(deviceName));
+    /**
+     * Returns the capabilities of the kernel's tun driver, probed when this device was opened.
+     *
+     * @return the capabilities of the kernel's tun driver
+     */
+    public LinuxTunFeatures features() {
+        return features;
     }
 
-    @SuppressWarnings("java:S109")
+    /**
+     * Returns the interface index of this device, as required by {@link RtnetlinkClient}.
+     *
+     * @return the interface index of this device
+     */
+    public int index() {
+        return index;
+    }
+
+    /**
+     * Makes this device persistent or removes its persistence. A persistent device is not removed
+     * when it is closed, so that it can be opened again by its name, keeping its addresses and
+     * routes. A device that is no longer persistent is removed once it is closed.
+     *
+     * @param persistent {@code true} to make this device persistent
+     * @throws IOException if the persistence could not be changed
+     */
+    public void setPersistent(final boolean persistent) throws IOException {
+        if (closed) {
+            throw new IOException("Device is closed.");
+        }
+
+        try {
+            ioctl(fds[0], TUNSETPERSIST, new NativeLong(persistent ? 1 : 0));
+        }
+        catch (final LastErrorException e) {
+            throw new IOException("Set persistence failed.", e);
+        }
+    }
+
+    /**
+     * Returns the number of queues of this device.
+     *
+     * @return the number of queues of this device
+     */
+    public int queues() {
+        return fds.length;
+    }
+
+    /**
+     * Returns the file descriptor of the given queue.
+     *
+     * @param queue index of the queue
+     * @return the file descriptor of the given queue
+     */
+    public int fd(final int queue) {
+        return fds[queue];
+    }
+
+    /**
+     * Returns {@code true} if the given queue is attached to the device.
+     *
+     * @param queue index of the queue
+     * @return {@code true} if the given queue is attached to the device
+     */
+    public boolean isQueueAttached(final int queue) {
+        for (final int attachedQueue : attachedQueues) {
+            if (attachedQueue == queue) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the number of queues attached to the device.
+     *
+     * @return the number of queues attached to the device
+     */
+    public int attachedQueues() {
+        return attachedQueues.length;
+    }
+
+    /**
+     * Re-enables the given queue using {@code TUNSETQUEUE} with {@code IFF_ATTACH_QUEUE}.
+     *
+     * @param queue index of the queue
+     * @throws IOException if the queue could not be attached
+     */
+    public synchronized void attachQueue(final int queue) throws IOException {
+        if (isQueueAttached(queue)) {
+            return;
+        }
+
+        setQueue(queue, IFF_ATTACH_QUEUE);
+
+        final int[] queues = Arrays.copyOf(attachedQueues, attachedQueues.length + 1);
+        queues[queues.length - 1] = queue;
+        Arrays.sort(queues);
+        attachedQueues = queues;
+    }
+
+    /**
+     * Disables the given queue using {@code TUNSETQUEUE} with {@code IFF_DETACH_QUEUE}. The last
+     * attached queue cannot be detached.
+     *
+     * @param queue index of the queue
+     * @throws IOException if the queue could not be detached
+     */
+    public synchronized void detachQueue(final int queue) throws IOException {
+        if (!isQueueAttached(queue)) {
+            return;
+        }
+        if (attachedQueues.length == 1) {
+            throw new IOException("Last attached queue cannot be detached.");
+        }
+
+        final int[] queues = new int[attachedQueues.length - 1];
+        int i = 0;
+        for (final int attachedQueue : attachedQueues) {
+            if (attachedQueue != queue) {
+                queues[i++] = attachedQueue;
+            }
+        }
+        setQueue(queue, IFF_DETACH_QUEUE);
+
+        // published only once detached, as the kernel keeps steering flows to the queue otherwise
+        attachedQueues = queues;
+    }
+
+    private void setQueue(final int queue, final short flags) throws IOException {
+        if (closed) {
+            throw new IOException("Device is closed.");
+        }
+
+        try {
+            ioctl(fds[queue], TUNSETQUEUE, new Ifreq(null, flags));
+        }
+        catch (final LastErrorException e) {
+            throw new IOException("Set queue " + queue + " failed.", e);
+        }
+    }
+
+    /**
+     * Attaches the given filter to this device (and all its queues), replacing the current one.
+     * The filter is compiled to an eBPF program and executed by the kernel, so dropped packets are
+     * never read.
+     *
+     * @param filter the filter to attach. {@code null} detaches the current filter.
+     * @throws IOException if the filter could not be attached
+     */
+    public void setFilter(final TunFilter filter) throws IOException {
+        if (closed) {
+            throw new IOException("Device is closed.");
+        }
+
+        int progFd = -1;
+        try {
+            if (filter != null) {
+                progFd = BpfFilter.load(BpfFilter.compile(filter));
+            }
+            final Memory arg = new Memory(Integer.BYTES);
+            arg.setInt(0, progFd);
+            ioctl(fds[0], TUNSETFILTEREBPF, new NativeLong(Pointer.nativeValue(arg)));
+        }
+        catch (final LastErrorException e) {
+            throw new IOException("Set filter failed.", e);
+        }
+        finally {
+            // the device holds its own reference to the program
+            if (progFd != -1) {
+                LibC.close(progFd);
+            }
+        }
+    }
+
+    /**
+     * Returns {@code true} if this device has been created with {@code IFF_VNET_HDR}.
+     *
+     * @return {@code true} if this device has been created with {@code IFF_VNET_HDR}
+     */
+    public boolean isVnetHdr() {
+        return vnetHdr;
+    }
+
+    /**
+     * Returns the offloads ({@link IfTun#TUN_F_CSUM}, {@link IfTun#TUN_F_TSO4}, ...) that have been
+     * enabled for this device. This might be fewer than requested, if the kernel does not support
+     * all of them.
+     *
+     * @return the offloads that have been enabled for this device
+     */
+    public int offloads() {
+        return offloads;
+    }
+
+    /**
+     * Returns {@code true} if this device has been opened with {@code O_NONBLOCK}.
+     *
+     * @return {@code true} if this device has been opened with {@code O_NONBLOCK}
+     */
+    public boolean isNonBlocking() {
+        return nonBlocking;
+    }
+
+    /**
+     * Returns {@code true} if {@link #writePackets(ByteBufAllocator, List)} coalesces TCP
+     * segments.
+     *
+     * @return {@code true} if {@link #writePackets(ByteBufAllocator, List)} coalesces TCP
+     * segments
+     */
+    public boolean isTcpCoalesce() {
+        return tcpCoalesce;
+    }
+
+    /**
+     * Reads a {@link TunPacket} from the first queue.
+     * <p>
+     * If this device has been opened in non-blocking mode, {@code null} is returned if no packet is
+     * available.
+     *
+     * @see #readPacket(ByteBufAllocator, int)
+     */
     @Override
     public TunPacket readPacket(final ByteBufAllocator alloc) throws IOException {
+        return readPacket(alloc, 0);
+    }
+
+    /**
+     * Reads and blocks until a {@link TunPacket} has been received by the given queue.
+     * <p>
+     * If this device has been opened in non-blocking mode, {@code null} is returned if no packet is
+     * available. {@code null} is also returned if the queue has been detached.
+     *
+     * @param alloc
+     * @param queue index of the queue
+     * @return {@link TunPacket} received by the queue or {@code null}
+     * @throws IOException if read failed
+     */
+    @SuppressWarnings("java:S109")
+    public TunPacket readPacket(final ByteBufAllocator alloc, final int queue) throws IOException {
         if (closed) {
             throw new IOException("Device is closed.");
         }
 
         // read from socket
-        final int capacity = mtu.intValue();
-        final ByteBuf maxByteBuf = alloc.buffer(capacity).writerIndex(capacity);
-        final ByteBuffer byteBuffer = maxByteBuf.nioBuffer();
-        final int bytesRead = read(fd, byteBuffer, mtu);
+        final ByteBuf maxByteBuf;
+        final int bytesRead;
+        if (ioUringReaders != null) {
+            try {
+                maxByteBuf = ioUringReaders[queue].read(alloc);
+            }
+            catch (final LastErrorException e) {
+                if (e.getErrorCode() == EBADFD && !isQueueAttached(queue)) {
+                    return null;
+                }
+                throw e;
+            }
+            if (maxByteBuf == null) {
+                // device has been closed
+                return null;
+            }
+            bytesRead = maxByteBuf.readableBytes();
+        }
+        else {
+            maxByteBuf = alloc.buffer(readBytes).writerIndex(readBytes);
+            try {
+                bytesRead = NativeIo.read(fds[queue], maxByteBuf, 0, readBytes, !nonBlocking);
+            }
+            catch (final LastErrorException e) {
+                maxByteBuf.release();
+                if ((nonBlocking && e.getErrorCode() == EAGAIN) || (e.getErrorCode() == EBADFD && !isQueueAttached(queue))) {
+                    return null;
+                }
+                throw e;
+            }
+        }
+
+        // extract offload information
+        final VirtioNetHeader virtioNetHeader;
+        if (vnetHdr) {
+            virtioNetHeader = VirtioNetHeader.decode(maxByteBuf, 0);
+            maxByteBuf.readerIndex(VIRTIO_NET_HDR_LENGTH);
+        }
+        else {
+            virtioNetHeader = VirtioNetHeader.NONE;
+        }
 
         // shrink bytebuf to actual required size
         final ByteBuf actualByteBuf = maxByteBuf
@@ -128,27 +711,264 @@ public final class LinuxTunDevice extends AbstractTunDevice {
         final int version = Byte.toUnsignedInt(actualByteBuf.getByte(0)) >> 4;
 
         if (version == 4) {
-            return new Tun4Packet(actualByteBuf);
+            return new Tun4Packet(actualByteBuf, virtioNetHeader);
         }
         else if (version == 6) {
-            return new Tun6Packet(actualByteBuf);
+            return new Tun6Packet(actualByteBuf, virtioNetHeader);
         }
         else {
             throw new IOException("Unknown protocol: " + version);
         }
     }
 
+    /**
+     * Blocks until the given queue has become readable. Used by readers of non-blocking devices
+     * that do not wait via epoll.
+     *
+     * @param queue index of the queue
+     * @throws IOException if the wait failed
+     */
+    public void awaitReadable(final int queue) throws IOException {
+        if (closed) {
+            throw new IOException("Device is closed.");
+        }
+
+        final Memory pollfd = POLLFD.get();
+        pollfd.setInt(POLLFD_FD, fds[queue]);
+        pollfd.setShort(POLLFD_EVENTS, POLLIN);
+        while (true) {
+            try {
+                Poll.poll(pollfd, 1, -1);
+                return;
+            }
+            catch (final LastErrorException e) {
+                if (e.getErrorCode() != EINTR) {
+                    throw new IOException("Wait for queue " + queue + " failed.", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the given packet like {@link #writePacket(ByteBufAllocator, TunPacket)}, but returns
+     * {@code false} instead of failing if this device has been opened in non-blocking mode and the
+     * packet's queue (see {@link #writeQueue(TunPacket)}) is not writable. The packet is released
+     * in either case.
+     *
+     * @param alloc allocator used for the virtio net header
+     * @param msg   the packet to write
+     * @return {@code true} if the packet has been written
+     * @throws IOException if the write failed
+     */
+    public boolean tryWritePacket(final ByteBufAllocator alloc,
+                                  final TunPacket msg) throws IOException {
+        try {
+            writePacket(alloc, msg);
+            return true;
+        }
+        catch (final LastErrorException e) {
+            if (nonBlocking && e.getErrorCode() == EAGAIN) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
     @Override
     public void writePacket(final ByteBufAllocator alloc, final TunPacket msg) throws IOException {
         if (closed) {
+            msg.release();
             throw new IOException("Device is closed.");
         }
 
-        // write to socket
-        final ByteBuffer byteBuffer = msg.content().nioBuffer();
-        write(fd, byteBuffer, new NativeLong(byteBuffer.remaining()));
+        // write to socket (packets of the same flow always use the same queue)
+        final int fd;
+        final ByteBuf byteBuf;
+        try {
+            fd = writeFd(msg);
+            byteBuf = encode(alloc, msg);
+        }
+        catch (final RuntimeException e) {
+            msg.release();
+            throw e;
+        }
+        try {
+            NativeIo.write(fd, byteBuf, !nonBlocking);
+        }
+        finally {
+            byteBuf.release();
+        }
+    }
+
+    /**
+     * Returns the file descriptor of the queue the given packet should be written to. Packets of
+     * the same flow always use the same queue.
+     */
+    private int writeFd(final TunPacket msg) {
+        return fds[writeQueue(msg)];
+    }
+
+    /**
+     * Returns the queue the given packet is written to. Packets of the same flow are always written
+     * to the same queue.
+     *
+     * @param msg the packet
+     * @return index of the queue the packet is written to
+     */
+    public int writeQueue(final TunPacket msg) {
+        final int[] queues = attachedQueues;
+        return queues.length == 1 ? queues[0] : queues[Math.floorMod(flowHash(msg.content()), queues.length)];
+    }
+
+    /**
+     * Returns the bytes to be written for the given packet. The returned buffer takes ownership
+     * of the packet.
+     */
+    private ByteBuf encode(final ByteBufAllocator alloc, final TunPacket msg) {
+        if (!vnetHdr) {
+            return msg.content();
+        }
+
+        // prepend offload information
+        final VirtioNetHeader virtioNetHeader = msg.virtioNetHeader();
+        if (csumOffload && !virtioNetHeader.needsCsum() && !virtioNetHeader.isGso()) {
+            // let the kernel calculate the tcp/udp checksum
+            final VirtioNetHeader csum = ChecksumOffload.header(msg.content());
+            if (csum != VirtioNetHeader.NONE) {
+                return encodeCsumOffload(alloc, msg.content(), csum);
+            }
+        }
+        final ByteBuf header = virtioNetHeader.encode(alloc.buffer(VIRTIO_NET_HDR_LENGTH));
+        return alloc.compositeBuffer(2).addComponents(true, header, msg.content());
+    }
 
-        msg.release();
+    /**
+     * Prepends the given offload information to the packet. The pseudo header sum is stored in a
+     * copy of the packet's headers, as the packet's buffer may be shared (e.g. by a retained
+     * duplicate written to several channels).
+     */
+    private static ByteBuf encodeCsumOffload(final ByteBufAllocator alloc,
+                                             final ByteBuf content,
+                                             final VirtioNetHeader csum) {
+        final int index = content.readerIndex();
+        final int csumEnd = csum.csumStart() + csum.csumOffset() + 2;
+        final ByteBuf headers = alloc.buffer(VIRTIO_NET_HDR_LENGTH + csumEnd);
+        csum.encode(headers);
+        headers.writeBytes(content, index, csumEnd);
+        headers.setShort(VIRTIO_NET_HDR_LENGTH + csumEnd - 2, ChecksumOffload.pseudoHeaderSum(content));
+        // slice shares the reference count, so the composite takes ownership of the packet
+        final ByteBuf payload = content.slice(index + csumEnd, content.readableBytes() - csumEnd);
+        return alloc.compositeBuffer(2).addComponents(true, headers, payload);
+    }
+
+    /**
+     * Writes the given packets with a single {@code io_uring_enter} call (or several, if there are
+     * more packets than submission queue entries).
+     */
+    private void writeBatch(final ByteBufAllocator alloc,
+                            final List<TunPacket> msgs) throws IOException {
+        synchronized (ioUringWriter) {
+            if (closed) {
+                msgs.forEach(TunPacket::release);
+                throw new IOException("Device is closed.");
+            }
+
+            final ByteBuf[] bufs = new ByteBuf[Math.min(msgs.size(), ioUringWriter.entries())];
+            int error = 0;
+            for (int start = 0; start < msgs.size(); start += bufs.length) {
+                final int count = Math.min(bufs.length, msgs.size() - start);
+                try {
+                    for (int i = 0; i < count; i++) {
+                        final TunPacket msg = msgs.get(start + i);
+                        final int fd = writeFd(msg);
+                        ByteBuf buf = encode(alloc, msg);
+                        if (!buf.isDirect() || buf.nioBufferCount() != 1) {
+                            // kernel requires a contiguous native memory region
+                            final ByteBuf directBuf = alloc.directBuffer(buf.readableBytes()).writeBytes(buf);
+                            buf.release();
+                            buf = directBuf;
+                        }
+                        bufs[i] = buf;
+                        final long addr = Pointer.nativeValue(Native.getDirectBufferPointer(buf.nioBuffer()));
+                        ioUringWriter.prepWrite(fd, addr, buf.readableBytes(), i);
+                    }
+
+                    // submit all writes and wait for their completion
+                    ioUringWriter.submit(count);
+                    for (int i = 0; i < count; i++) {
+                        while (!ioUringWriter.peek()) {
+                            ioUringWriter.submit(1);
+                        }
+                        final int res = ioUringWriter.result();
+                        ioUringWriter.advance();
+                        if (res < 0 && error == 0) {
+                            error = -res;
+                        }
+                    }
+                }
+                finally {
+                    for (int i = 0; i < count; i++) {
+                        if (bufs[i] != null) {
+                            bufs[i].release();
+                            bufs[i] = null;
+                        }
+                        else {
+                            msgs.get(start + i).release();
+                        }
+                    }
+                }
+            }
+            if (error != 0) {
+                throw new LastErrorException(error);
+            }
+        }
+    }
+
+    /**
+     * Writes the given packets. If enabled, consecutive in-order TCP segments of the same flow are
+     * coalesced into a single GSO super-packet, which is written with a single system call.
+     *
+     * @param alloc allocator for the offload information and the super-packets
+     * @param msgs  packets to be written. All packets are released.
+     * @return the number of packets written. Fewer than given if this device has been opened in
+     * non-blocking mode and a queue is not writable.
+     * @throws IOException if writing fails
+     */
+    public int writePackets(final ByteBufAllocator alloc,
+                            final List<TunPacket> msgs) throws IOException {
+        // with io_uring, all packets are collected and then written at once
+        final List<TunPacket> batch = ioUringWriter != null ? new ArrayList<>(msgs.size()) : null;
+        int i = 0;
+        try {
+            while (i < msgs.size()) {
+                final int start = i;
+                i = tcpCoalesce ? TcpCoalescing.runEnd(msgs, start) : start + 1;
+                final TunPacket msg = i - start == 1 ? msgs.get(start) : TcpCoalescing.coalesce(alloc, msgs, start, i);
+                if (batch != null) {
+                    batch.add(msg);
+                }
+                else if (!tryWritePacket(alloc, msg)) {
+                    return start;
+                }
+            }
+        }
+        catch (final RuntimeException | IOException e) {
+            if (batch != null) {
+                batch.forEach(TunPacket::release);
+            }
+            throw e;
+        }
+        finally {
+            // release packets not passed to writePacket yet
+            for (int j = i; j < msgs.size(); j++) {
+                msgs.get(j).release();
+            }
+        }
+
+        if (batch != null) {
+            writeBatch(alloc, batch);
+        }
+        return msgs.size();
     }
 
     @Override
@@ -156,8 +976,68 @@ public final class LinuxTunDevice extends AbstractTunDevice {
         if (!closed) {
             closed = true;
 
+            // stop io_uring before closing the file descriptors used by it
+            if (ioUringReaders != null) {
+                for (final IoUringReader reader : ioUringReaders) {
+                    reader.close();
+                }
+                synchronized (ioUringWriter) {
+                    ioUringWriter.close();
+                }
+            }
+
             // close tun device
-            LibC.close(fd);
+            for (final int fd : fds) {
+                LibC.close(fd);
+            }
         }
     }
+
+    /**
+     * Hashes addresses, protocol, and (for TCP/UDP) ports of the given IP packet.
+     */
+    @SuppressWarnings("java:S109")
+    static int flowHash(final ByteBuf packet) {
+        final int index = packet.readerIndex();
+        final int length = packet.readableBytes();
+        if (length < 1) {
+            return 0;
+        }
+
+        final int version = packet.getUnsignedByte(index) >> 4;
+        int hash;
+        final int protocol;
+        final int l4Offset;
+        if (version == 4 && length >= INET4_HEADER_LENGTH) {
+            hash = packet.getInt(index + INET4_SOURCE_ADDRESS);
+            hash = 31 * hash + packet.getInt(index + INET4_DESTINATION_ADDRESS);
+            protocol = packet.getUnsignedByte(index + INET4_PROTOCOL);
+            l4Offset = (packet.getUnsignedByte(index) & 0x0f) * 4;
+        }
+        else if (version == 6 && length >= INET6_HEADER_LENGTH) {
+            hash = 0;
+            for (int i = INET6_SOURCE_ADDRESS; i < INET6_HEADER_LENGTH; i += 4) {
+                hash = 31 * hash + packet.getInt(index + i);
+            }
+            protocol = packet.getUnsignedByte(index + INET6_NEXT_HEADER);
+            l4Offset = INET6_HEADER_LENGTH;
+        }
+        else {
+            return 0;
+        }
+
+        hash = 31 * hash + protocol;
+        if ((protocol == PROTOCOL_TCP || protocol == PROTOCOL_UDP) && length >= l4Offset + 4) {
+            // source and destination port
+            hash = 31 * hash + packet.getInt(index + l4Offset);
+        }
+
+        // spread bits (murmur3 finalizer)
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
 }
@@ -0,0 +1,348 @@
+/*
+ * Copyright (c) 2021-2022 Heiko Bornholdt and Kevin Röbert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.drasyl.channel.tun.jna.linux;
+
+import static org.drasyl.channel.tun.jna.linux.IfTun.IFF_MULTI_QUEUE;
+import static org.drasyl.channel.tun.jna.linux.IfTun.IFF_NAPI;
+import static org.drasyl.channel.tun.jna.linux.IfTun.IFF_VNET_HDR;
+
+/**
+ * Options used by {@link LinuxTunDevice#open(String, LinuxTunDeviceOptions)} to create a tun
+ * device.
+ */
+public final class LinuxTunDeviceOptions {
+    private int mtu;
+    private boolean nonBlocking;
+    // null if not set explicitly, so that autoFeatures() may choose
+    private Integer queues;
+    private Boolean vnetHdr;
+    private int offloads;
+    private Boolean csumOffload;
+    private Boolean tcpCoalesce;
+    private Boolean napi;
+    private int ioUring;
+    private int sndbuf;
+    private boolean autoFeatures;
+    private boolean persist;
+    private int owner = -1;
+    private int group = -1;
+
+    /**
+     * Returns the desired MTU or {@code 0} to keep the system default.
+     *
+     * @return the desired MTU or {@code 0} to keep the system default
+     */
+    public int mtu() {
+        return mtu;
+    }
+
+    public LinuxTunDeviceOptions mtu(final int mtu) {
+        if (mtu < 0) {
+            throw new IllegalArgumentException("mtu must be non-negative.");
+        }
+        this.mtu = mtu;
+        return this;
+    }
+
+    /**
+     * Returns {@code true} if the device should be opened with {@code O_NONBLOCK}.
+     *
+     * @return {@code true} if the device should be opened with {@code O_NONBLOCK}
+     */
+    public boolean nonBlocking() {
+        return nonBlocking;
+    }
+
+    public LinuxTunDeviceOptions nonBlocking(final boolean nonBlocking) {
+        this.nonBlocking = nonBlocking;
+        return this;
+    }
+
+    /**
+     * Returns the number of queues. If greater than {@code 1}, the device is created with {@code
+     * IFF_MULTI_QUEUE} and each queue gets its own file descriptor.
+     *
+     * @return the number of queues
+     */
+    public int queues() {
+        return queues != null ? queues : 1;
+    }
+
+    public LinuxTunDeviceOptions queues(final int queues) {
+        if (queues < 1) {
+            throw new IllegalArgumentException("queues must be positive.");
+        }
+        this.queues = queues;
+        return this;
+    }
+
+    /**
+     * Returns {@code true} if the device should be created with {@code IFF_VNET_HDR}. Each packet
+     * is then preceded by a {@link org.drasyl.channel.tun.VirtioNetHeader}.
+     *
+     * @return {@code true} if the device should be created with {@code IFF_VNET_HDR}
+     */
+    public boolean vnetHdr() {
+        return vnetHdr != null && vnetHdr;
+    }
+
+    public LinuxTunDeviceOptions vnetHdr(final boolean vnetHdr) {
+        this.vnetHdr = vnetHdr;
+        return this;
+    }
+
+    /**
+     * Returns the offloads ({@link IfTun#TUN_F_CSUM}, {@link IfTun#TUN_F_TSO4}, ...) to be enabled
+     * by {@code TUNSETOFFLOAD}. Offloads require {@link #vnetHdr()}. Offloads not supported by the
+     * kernel (see {@link LinuxTunFeatures#offloads()}) are not enabled.
+     *
+     * @return the offloads to be enabled
+     */
+    public int offloads() {
+        return offloads;
+    }
+
+    public LinuxTunDeviceOptions offloads(final int offloads) {
+        this.offloads = offloads;
+        return this;
+    }
+
+    /**
+     * Returns {@code true} if written TCP/UDP packets without a {@link
+     * org.drasyl.channel.tun.VirtioNetHeader} should be passed to the kernel with a partial
+     * checksum. The kernel then completes the checksum, so the packets' checksum fields do not
+     * have to be calculated. Requires {@link #vnetHdr()}.
+     *
+     * @return {@code true} if written TCP/UDP packets should be passed with a partial checksum
+     */
+    public boolean csumOffload() {
+        return csumOffload != null && csumOffload;
+    }
+
+    public LinuxTunDeviceOptions csumOffload(final boolean csumOffload) {
+        this.csumOffload = csumOffload;
+        return this;
+    }
+
+    /**
+     * Returns {@code true} if consecutive in-order TCP segments of the same flow written by {@link
+     * LinuxTunDevice#writePackets(io.netty.buffer.ByteBufAllocator, java.util.List)} should be
+     * coalesced into a single GSO super-packet. Requires {@link #vnetHdr()}.
+     *
+     * @return {@code true} if consecutive TCP segments should be coalesced
+     */
+    public boolean tcpCoalesce() {
+        return tcpCoalesce != null && tcpCoalesce;
+    }
+
+    public LinuxTunDeviceOptions tcpCoalesce(final boolean tcpCoalesce) {
+        this.tcpCoalesce = tcpCoalesce;
+        return this;
+    }
+
+    /**
+     * Returns {@code true} if the device should be created with {@code IFF_NAPI}. Written packets
+     * are then passed through NAPI, allowing the kernel to apply GRO to them. Requires {@code
+     * CAP_NET_ADMIN}.
+     *
+     * @return {@code true} if the device should be created with {@code IFF_NAPI}
+     */
+    public boolean napi() {
+        return napi != null && napi;
+    }
+
+    public LinuxTunDeviceOptions napi(final boolean napi) {
+        this.napi = napi;
+        return this;
+    }
+
+    /**
+     * Returns the number of reads kept in flight per queue (and the number of writes submitted at
+     * once) if io_uring should be used, or {@code 0} to use a system call per packet. io_uring
+     * requires blocking mode and Linux 5.6 or later.
+     *
+     * @return the io_uring ring size or {@code 0}
+     */
+    public int ioUring() {
+        return ioUring;
+    }
+
+    public LinuxTunDeviceOptions ioUring(final int ioUring) {
+        if (ioUring < 0) {
+            throw new IllegalArgumentException("ioUring must be non-negative.");
+        }
+        this.ioUring = ioUring;
+        return this;
+    }
+
+    /**
+     * Returns the number of bytes written packets may occupy in the kernel before further writes
+     * block (or fail with {@code EAGAIN} in non-blocking mode), or {@code 0} to keep the system
+     * default (unlimited).
+     *
+     * @return the send buffer size or {@code 0}
+     */
+    public int sndbuf() {
+        return sndbuf;
+    }
+
+    public LinuxTunDeviceOptions sndbuf(final int sndbuf) {
+        if (sndbuf < 0) {
+            throw new IllegalArgumentException("sndbuf must be non-negative.");
+        }
+        this.sndbuf = sndbuf;
+        return this;
+    }
+
+    /**
+     * Returns {@code true} if features supported by the kernel (see {@link LinuxTunFeatures}) that
+     * speed up the device should be enabled, unless the corresponding option has been set
+     * explicitly: a queue per available processor ({@link #queues()}), {@link #vnetHdr()}, {@link
+     * #csumOffload()}, {@link #tcpCoalesce()}, and {@link #napi()}. These only affect how packets
+     * are written. {@link #offloads()} stay opt-in, as they make the kernel pass packets with
+     * partial checksums and GSO super-packets to the reader.
+     *
+     * @return {@code true} if all supported features should be enabled
+     */
+    public boolean autoFeatures() {
+        return autoFeatures;
+    }
+
+    public LinuxTunDeviceOptions autoFeatures(final boolean autoFeatures) {
+        this.autoFeatures = autoFeatures;
+        return this;
+    }
+
+    /**
+     * Returns {@code true} if the device should be made persistent ({@code TUNSETPERSIST}). A
+     * persistent device, including its addresses and routes, outlives its file descriptors and
+     * can be opened again by its name (see {@link LinuxTunDevice#setPersistent(boolean)}).
+     *
+     * @return {@code true} if the device should be made persistent
+     */
+    public boolean persist() {
+        return persist;
+    }
+
+    public LinuxTunDeviceOptions persist(final boolean persist) {
+        this.persist = persist;
+        return this;
+    }
+
+    /**
+     * Returns the user id allowed to open the device without {@code CAP_NET_ADMIN} ({@code
+     * TUNSETOWNER}), or {@code -1} to keep the current owner.
+     *
+     * @return the owning user id or {@code -1}
+     */
+    public int owner() {
+        return owner;
+    }
+
+    public LinuxTunDeviceOptions owner(final int owner) {
+        if (owner < -1) {
+            throw new IllegalArgumentException("owner must be a user id or -1.");
+        }
+        this.owner = owner;
+        return this;
+    }
+
+    /**
+     * Returns the group id allowed to open the device without {@code CAP_NET_ADMIN} ({@code
+     * TUNSETGROUP}), or {@code -1} to keep the current group.
+     *
+     * @return the owning group id or {@code -1}
+     */
+    public int group() {
+        return group;
+    }
+
+    public LinuxTunDeviceOptions group(final int group) {
+        if (group < -1) {
+            throw new IllegalArgumentException("group must be a group id or -1.");
+        }
+        this.group = group;
+        return this;
+    }
+
+    /**
+     * Returns a copy of these options with the features included in the given {@code IFF_*} flags
+     * enabled that have not been set explicitly, as described by {@link #autoFeatures()}.
+     */
+    LinuxTunDeviceOptions withFeatures(final int flags) {
+        final LinuxTunDeviceOptions options = copy();
+        if (queues == null && (flags & IFF_MULTI_QUEUE) != 0) {
+            options.queues = Runtime.getRuntime().availableProcessors();
+        }
+        if (vnetHdr == null && (flags & IFF_VNET_HDR) != 0) {
+            options.vnetHdr = true;
+        }
+        if (options.vnetHdr()) {
+            if (csumOffload == null) {
+                options.csumOffload = true;
+            }
+            if (tcpCoalesce == null) {
+                options.tcpCoalesce = true;
+            }
+        }
+        if (napi == null && (flags & IFF_NAPI) != 0) {
+            options.napi = true;
+        }
+        return options;
+    }
+
+    /**
+     * Returns a copy of these options matching the {@code IFF_*} flags of an existing device with
+     * the given number of queues, as required by {@link LinuxTunDevice#adopt(String, int[],
+     * LinuxTunDeviceOptions)}.
+     */
+    LinuxTunDeviceOptions withFlags(final int flags, final int queues) {
+        final LinuxTunDeviceOptions options = copy()
+                .queues(queues)
+                .vnetHdr((flags & IFF_VNET_HDR) != 0)
+                .napi((flags & IFF_NAPI) != 0);
+        if ((flags & IFF_VNET_HDR) == 0) {
+            options.offloads(0)
+                    .csumOffload(false)
+                    .tcpCoalesce(false);
+        }
+        return options;
+    }
+
+    private LinuxTunDeviceOptions copy() {
+        final LinuxTunDeviceOptions options = new LinuxTunDeviceOptions();
+        options.mtu = mtu;
+        options.nonBlocking = nonBlocking;
+        options.queues = queues;
+        options.vnetHdr = vnetHdr;
+        options.offloads = offloads;
+        options.csumOffload = csumOffload;
+        options.tcpCoalesce = tcpCoalesce;
+        options.napi = napi;
+        options.ioUring = ioUring;
+        options.sndbuf = sndbuf;
+        options.persist = persist;
+        options.owner = owner;
+        options.group = group;
+        return options;
+    }
+}
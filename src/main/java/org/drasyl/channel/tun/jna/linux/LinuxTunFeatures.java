@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2021-2022 Heiko Bornholdt and Kevin Röbert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.drasyl.channel.tun.jna.linux;
+
+import com.sun.jna.LastErrorException;
+import com.sun.jna.Memory;
+import com.sun.jna.NativeLong;
+import com.sun.jna.Pointer;
+import org.drasyl.channel.tun.jna.shared.LibC;
+
+import java.io.IOException;
+
+import static org.drasyl.channel.tun.jna.linux.Errno.EINVAL;
+import static org.drasyl.channel.tun.jna.linux.Fcntl.O_RDWR;
+import static org.drasyl.channel.tun.jna.linux.IfTun.IFF_MULTI_QUEUE;
+import static org.drasyl.channel.tun.jna.linux.IfTun.IFF_NAPI;
+import static org.drasyl.channel.tun.jna.linux.IfTun.IFF_VNET_HDR;
+import static org.drasyl.channel.tun.jna.linux.IfTun.TUNGETFEATURES;
+import static org.drasyl.channel.tun.jna.linux.IfTun.TUNSETOFFLOAD;
+import static org.drasyl.channel.tun.jna.linux.IfTun.TUN_F_CSUM;
+import static org.drasyl.channel.tun.jna.linux.IfTun.TUN_F_TSO4;
+import static org.drasyl.channel.tun.jna.linux.IfTun.TUN_F_TSO6;
+import static org.drasyl.channel.tun.jna.linux.IfTun.TUN_F_USO4;
+import static org.drasyl.channel.tun.jna.linux.IfTun.TUN_F_USO6;
+import static org.drasyl.channel.tun.jna.shared.LibC.ioctl;
+
+/**
+ * Capabilities of the running kernel's tun driver, as reported by {@code TUNGETFEATURES} and
+ * probed by {@code TUNSETOFFLOAD}.
+ *
+ * @see LinuxTunDevice#features()
+ */
+public final class LinuxTunFeatures {
+    // candidates for TUNSETOFFLOAD, in descending order. USO requires kernel 6.2 or later
+    private static final int[] OFFLOADS = {
+            TUN_F_CSUM | TUN_F_TSO4 | TUN_F_TSO6 | TUN_F_USO4 | TUN_F_USO6,
+            TUN_F_CSUM | TUN_F_TSO4 | TUN_F_TSO6,
+            TUN_F_CSUM
+    };
+    private final int flags;
+    private final int offloads;
+
+    LinuxTunFeatures(final int flags, final int offloads) {
+        this.flags = flags;
+        this.offloads = offloads;
+    }
+
+    /**
+     * Returns the {@code IFF_*} flags supported by {@code TUNSETIFF}.
+     */
+    static int probeFlags() throws IOException {
+        try {
+            final int fd = LibC.open("/dev/net/tun", O_RDWR);
+            try {
+                final Memory features = new Memory(Integer.BYTES);
+                ioctl(fd, TUNGETFEATURES, new NativeLong(Pointer.nativeValue(features)));
+                return features.getInt(0);
+            }
+            finally {
+                LibC.close(fd);
+            }
+        }
+        catch (final LastErrorException e) {
+            throw new IOException("Get tun features failed.", e);
+        }
+    }
+
+    /**
+     * Returns the offloads supported by the device behind {@code fd}. Leaves the device with
+     * these offloads enabled.
+     */
+    @SuppressWarnings("java:S1166")
+    static int probeOffloads(final int fd) {
+        for (final int candidate : OFFLOADS) {
+            try {
+                ioctl(fd, TUNSETOFFLOAD, new NativeLong(candidate));
+                return candidate;
+            }
+            catch (final LastErrorException e) {
+                if (e.getErrorCode() != EINVAL) {
+                    throw e;
+                }
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the {@code IFF_*} flags supported by the kernel.
+     *
+     * @return the {@code IFF_*} flags supported by the kernel
+     */
+    public int flags() {
+        return flags;
+    }
+
+    /**
+     * Returns {@code true} if devices with multiple queues are supported ({@code
+     * IFF_MULTI_QUEUE}).
+     *
+     * @return {@code true} if devices with multiple queues are supported
+     */
+    public boolean isMultiQueue() {
+        return (flags & IFF_MULTI_QUEUE) != 0;
+    }
+
+    /**
+     * Returns {@code true} if offload information can be exchanged with the kernel ({@code
+     * IFF_VNET_HDR}).
+     *
+     * @return {@code true} if offload information can be exchanged with the kernel
+     */
+    public boolean isVnetHdr() {
+        return (flags & IFF_VNET_HDR) != 0;
+    }
+
+    /**
+     * Returns {@code true} if written packets can be passed through NAPI ({@code IFF_NAPI},
+     * kernel 4.15 and later).
+     *
+     * @return {@code true} if written packets can be passed through NAPI
+     */
+    public boolean isNapi() {
+        return (flags & IFF_NAPI) != 0;
+    }
+
+    /**
+     * Returns the {@code TUN_F_*} offloads supported by the device. Only probed for devices
+     * created with {@code IFF_VNET_HDR}, as other devices cannot use any offloads.
+     *
+     * @return the supported {@code TUN_F_*} offloads
+     */
+    public int offloads() {
+        return offloads;
+    }
+
+    /**
+     * Returns {@code true} if TCP segmentation offload is supported.
+     *
+     * @return {@code true} if TCP segmentation offload is supported
+     */
+    public boolean isTso() {
+        return (offloads & (TUN_F_TSO4 | TUN_F_TSO6)) == (TUN_F_TSO4 | TUN_F_TSO6);
+    }
+
+    /**
+     * Returns {@code true} if UDP segmentation offload is supported (kernel 6.2 and later).
+     *
+     * @return {@code true} if UDP segmentation offload is supported
+     */
+    public boolean isUso() {
+        return (offloads & (TUN_F_USO4 | TUN_F_USO6)) == (TUN_F_USO4 | TUN_F_USO6);
+    }
+
+    @Override
+    public String toString() {
+        return "LinuxTunFeatures{" +
+                "multiQueue=" + isMultiQueue() +
+                ", vnetHdr=" + isVnetHdr() +
+                ", napi=" + isNapi() +
+                ", tso=" + isTso() +
+                ", uso=" + isUso() +
+                '}';
+    }
+}
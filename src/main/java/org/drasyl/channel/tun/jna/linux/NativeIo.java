@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2021-2022 Heiko Bornholdt and Kevin Röbert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.drasyl.channel.tun.jna.linux;
+
+import com.sun.jna.LastErrorException;
+import com.sun.jna.NativeLong;
+import io.netty.buffer.ByteBuf;
+
+import org.drasyl.channel.tun.jna.shared.LibC;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Reads and writes packets from/to file descriptors.
+ * <p>
+ * This implementation uses the {@link io.netty.channel.unix.FileDescriptor} of Netty's native
+ * transport if available (see {@link NettyNativeIo}) and JNA otherwise. On Java 22 and later, it is
+ * replaced by an implementation based on the Foreign Function &amp; Memory API (see {@code
+ * src/main/java22}), which also avoids the thread state transition for non-blocking calls.
+ */
+final class NativeIo {
+    private static final boolean NETTY = isNettyAvailable();
+
+    private NativeIo() {
+        // util class
+    }
+
+    /**
+     * Returns the name of this implementation.
+     *
+     * @return the name of this implementation
+     */
+    static String backend() {
+        return NETTY ? "netty" : "jna";
+    }
+
+    @SuppressWarnings("java:S1181")
+    private static boolean isNettyAvailable() {
+        try {
+            return NettyNativeIo.isAvailable();
+        }
+        catch (final LinkageError e) {
+            // netty-transport-native-epoll not on class path
+            return false;
+        }
+    }
+
+    /**
+     * Reads up to {@code length} bytes from {@code fd} into {@code buf} starting at {@code
+     * index}.
+     *
+     * @param fd       file descriptor
+     * @param buf      destination
+     * @param index    index of the first byte to be written to {@code buf}
+     * @param length   maximum number of bytes to read
+     * @param blocking {@code true} if the read may block
+     * @return the number of read bytes
+     * @throws LastErrorException if the read failed
+     */
+    static int read(final int fd,
+                    final ByteBuf buf,
+                    final int index,
+                    final int length,
+                    final boolean blocking) {
+        if (NETTY && buf.hasMemoryAddress()) {
+            return NettyNativeIo.read(fd, buf, index, length);
+        }
+        return LibC.read(fd, buf.nioBuffer(index, length), new NativeLong(length));
+    }
+
+    /**
+     * Writes the readable bytes of {@code buf} to {@code fd}.
+     *
+     * @param fd       file descriptor
+     * @param buf      source
+     * @param blocking {@code true} if the write may block
+     * @return the number of written bytes
+     * @throws LastErrorException if the write failed
+     */
+    static int write(final int fd, final ByteBuf buf, final boolean blocking) {
+        if (NETTY && buf.isDirect()) {
+            return NettyNativeIo.write(fd, buf);
+        }
+        final ByteBuffer byteBuffer = buf.nioBuffer();
+        return LibC.write(fd, byteBuffer, new NativeLong(byteBuffer.remaining()));
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2021-2022 Heiko Bornholdt and Kevin Röbert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.drasyl.channel.tun.jna.linux;
+
+/**
+ * JNA mapping for <a href="https://github.com/torvalds/linux/blob/master/include/uapi/linux/netlink.h">netlink.h</a>.
+ * <p>
+ * {@code struct nlmsghdr} is accessed through {@link #NLMSG_HDRLEN} and its offsets.
+ */
+final class Netlink {
+    public static final int AF_NETLINK = 16;
+    public static final int SOCK_RAW = 3;
+    public static final int SOCK_CLOEXEC = 02000000;
+    // routing/device hook
+    public static final int NETLINK_ROUTE = 0;
+    // struct nlmsghdr
+    public static final int NLMSG_HDRLEN = 16;
+    public static final int NLMSG_LENGTH = 0;
+    public static final int NLMSG_TYPE = 4;
+    public static final int NLMSG_FLAGS = 6;
+    public static final int NLMSG_SEQ = 8;
+    public static final int NLMSG_PID = 12;
+    // error or acknowledgement, followed by the error code and the request's header
+    public static final int NLMSG_ERROR = 2;
+    // it is request message
+    public static final short NLM_F_REQUEST = 0x01;
+    // reply with ack, with zero or error code
+    public static final short NLM_F_ACK = 0x04;
+    // replace existing matching object
+    public static final short NLM_F_REPLACE = 0x100;
+    // create, if it does not exist
+    public static final short NLM_F_CREATE = 0x400;
+    // struct nlattr/rtattr
+    public static final int NLA_HDRLEN = 4;
+
+    private Netlink() {
+        // JNA mapping
+    }
+
+    /**
+     * Rounds {@code len} up to the netlink alignment of 4 bytes.
+     */
+    static int align(final int len) {
+        return (len + 3) & ~3;
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2021-2022 Heiko Bornholdt and Kevin Röbert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.drasyl.channel.tun.jna.linux;
+
+import com.sun.jna.LastErrorException;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.unix.Errors.NativeIoException;
+import io.netty.channel.unix.FileDescriptor;
+import io.netty.channel.unix.IovArray;
+import io.netty.util.concurrent.FastThreadLocal;
+
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+
+import static org.drasyl.channel.tun.jna.linux.Errno.EAGAIN;
+import static org.drasyl.channel.tun.jna.linux.Errno.EBADF;
+import static org.drasyl.channel.tun.jna.linux.Errno.EBADFD;
+
+/**
+ * Reads and writes packets through the {@link FileDescriptor} of Netty's native transport. Memory
+ * addresses of the {@link ByteBuf}s are passed directly, so that no {@link java.nio.ByteBuffer}s
+ * have to be created. Errors are reported as {@link LastErrorException}s, just like the JNA-based
+ * implementation does.
+ * <p>
+ * Only available if Netty's native epoll transport can be loaded (Linux x86_64 and aarch64).
+ */
+final class NettyNativeIo {
+    private static final boolean AVAILABLE = isAvailable0();
+    private static final FastThreadLocal<IovArray> IOV_ARRAY = new FastThreadLocal<IovArray>() {
+        @Override
+        protected IovArray initialValue() {
+            return new IovArray();
+        }
+
+        @Override
+        protected void onRemoval(final IovArray value) {
+            value.release();
+        }
+    };
+    // FileDescriptor objects are only wrappers and therefore cached by their file descriptor
+    private static volatile FileDescriptor[] descriptors = new FileDescriptor[0];
+
+    private NettyNativeIo() {
+        // util class
+    }
+
+    @SuppressWarnings("java:S1181")
+    private static boolean isAvailable0() {
+        try {
+            // loads the native library that also contains the FileDescriptor natives
+            return Epoll.isAvailable();
+        }
+        catch (final Throwable e) {
+            return false;
+        }
+    }
+
+    static boolean isAvailable() {
+        return AVAILABLE;
+    }
+
+    private static FileDescriptor descriptor(final int fd) {
+        FileDescriptor[] cache = descriptors;
+        if (fd < cache.length && cache[fd] != null) {
+            return cache[fd];
+        }
+
+        synchronized (NettyNativeIo.class) {
+            cache = descriptors;
+            if (fd >= cache.length) {
+                final FileDescriptor[] newCache = new FileDescriptor[Math.max(fd + 1, cache.length * 2)];
+                System.arraycopy(cache, 0, newCache, 0, cache.length);
+                cache = newCache;
+            }
+            if (cache[fd] == null) {
+                cache[fd] = new FileDescriptor(fd);
+            }
+            descriptors = cache;
+            return cache[fd];
+        }
+    }
+
+    /**
+     * Reads up to {@code length} bytes from {@code fd} into {@code buf} starting at {@code index}.
+     * {@code buf} must have a memory address.
+     *
+     * @throws LastErrorException if the read failed ({@code EAGAIN} if a non-blocking {@code fd}
+     *                            is not readable, {@code EBADFD} if the end of file has been
+     *                            reached)
+     */
+    static int read(final int fd, final ByteBuf buf, final int index, final int length) {
+        try {
+            final int bytesRead = descriptor(fd).readAddress(buf.memoryAddress(), index, index + length);
+            // netty reports EAGAIN as 0 bytes and the end of file as -1 bytes read
+            if (bytesRead == 0) {
+                throw new LastErrorException(EAGAIN);
+            }
+            if (bytesRead < 0) {
+                // the device has gone away, just like a read via JNA reports it
+                throw new LastErrorException(EBADFD);
+            }
+            return bytesRead;
+        }
+        catch (final IOException e) {
+            throw lastErrorException(e);
+        }
+    }
+
+    /**
+     * Writes the readable bytes of {@code buf} to {@code fd}. {@code buf} must be direct.
+     *
+     * @throws LastErrorException if the write failed ({@code EAGAIN} if a non-blocking {@code fd}
+     *                            is not writable)
+     */
+    static int write(final int fd, final ByteBuf buf) {
+        try {
+            final int bytesWritten;
+            if (buf.hasMemoryAddress()) {
+                bytesWritten = descriptor(fd).writeAddress(buf.memoryAddress(), buf.readerIndex(), buf.writerIndex());
+            }
+            else {
+                // e.g., virtio net header and packet
+                final IovArray iovArray = IOV_ARRAY.get();
+                iovArray.clear();
+                iovArray.add(buf, buf.readerIndex(), buf.readableBytes());
+                bytesWritten = (int) descriptor(fd).writevAddresses(iovArray.memoryAddress(0), iovArray.count());
+            }
+            // netty reports EAGAIN as 0 bytes written
+            if (bytesWritten == 0 && buf.isReadable()) {
+                throw new LastErrorException(EAGAIN);
+            }
+            return bytesWritten;
+        }
+        catch (final IOException e) {
+            throw lastErrorException(e);
+        }
+    }
+
+    private static LastErrorException lastErrorException(final IOException e) {
+        if (e instanceof NativeIoException) {
+            return new LastErrorException(-((NativeIoException) e).expectedErr());
+        }
+        else if (e instanceof ClosedChannelException) {
+            return new LastErrorException(EBADF);
+        }
+        else {
+            final LastErrorException lastErrorException = new LastErrorException(e.getMessage());
+            lastErrorException.initCause(e);
+            return lastErrorException;
+        }
+    }
+}
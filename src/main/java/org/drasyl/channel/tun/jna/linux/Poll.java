@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2021-2022 Heiko Bornholdt and Kevin Röbert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.drasyl.channel.tun.jna.linux;
+
+import com.sun.jna.LastErrorException;
+import com.sun.jna.Native;
+import com.sun.jna.Platform;
+import com.sun.jna.Pointer;
+
+/**
+ * JNA mapping for <a href="https://man7.org/linux/man-pages/man2/poll.2.html">poll.h</a>.
+ * <p>
+ * {@code struct pollfd} is accessed through {@link #POLLFD_SIZE} and its offsets.
+ */
+final class Poll {
+    // there is data to read
+    public static final short POLLIN = 0x001;
+    // struct pollfd
+    public static final int POLLFD_SIZE = 8;
+    public static final int POLLFD_FD = 0;
+    public static final int POLLFD_EVENTS = 4;
+    public static final int POLLFD_REVENTS = 6;
+
+    static {
+        Native.register(Platform.C_LIBRARY_NAME);
+    }
+
+    private Poll() {
+        // JNA mapping
+    }
+
+    // https://man7.org/linux/man-pages/man2/poll.2.html
+    public static native int poll(final Pointer fds,
+                                  final long nfds,
+                                  final int timeout) throws LastErrorException;
+}
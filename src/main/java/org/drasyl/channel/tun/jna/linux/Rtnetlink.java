@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2021-2022 Heiko Bornholdt and Kevin Röbert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.drasyl.channel.tun.jna.linux;
+
+/**
+ * JNA mapping for <a href="https://github.com/torvalds/linux/blob/master/include/uapi/linux/rtnetlink.h">rtnetlink.h</a>,
+ * <a href="https://github.com/torvalds/linux/blob/master/include/uapi/linux/if_addr.h">if_addr.h</a>,
+ * and <a href="https://github.com/torvalds/linux/blob/master/include/uapi/linux/if_link.h">if_link.h</a>.
+ */
+final class Rtnetlink {
+    public static final int AF_UNSPEC = 0;
+    public static final int AF_INET = 2;
+    public static final int AF_INET6 = 10;
+    // message types
+    public static final short RTM_NEWLINK = 16;
+    public static final short RTM_NEWADDR = 20;
+    public static final short RTM_NEWROUTE = 24;
+    // struct ifinfomsg
+    public static final int IFINFOMSG_SIZE = 16;
+    // interface is up
+    public static final int IFF_UP = 0x1;
+    public static final short IFLA_MTU = 4;
+    // struct ifaddrmsg
+    public static final int IFADDRMSG_SIZE = 8;
+    public static final short IFA_ADDRESS = 1;
+    public static final short IFA_LOCAL = 2;
+    // struct rtmsg
+    public static final int RTMSG_SIZE = 12;
+    public static final byte RT_TABLE_MAIN = (byte) 254;
+    // route installed during boot (like routes added by ip route)
+    public static final byte RTPROT_BOOT = 3;
+    public static final byte RT_SCOPE_UNIVERSE = 0;
+    // destination is on the attached link
+    public static final byte RT_SCOPE_LINK = (byte) 253;
+    // gateway or direct route
+    public static final byte RTN_UNICAST = 1;
+    public static final short RTA_DST = 1;
+    public static final short RTA_OIF = 4;
+
+    private Rtnetlink() {
+        // JNA mapping
+    }
+}
@@ -0,0 +1,329 @@
+/*
+ * Copyright (c) 2021-2022 Heiko Bornholdt and Kevin Röbert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.drasyl.channel.tun.jna.linux;
+
+import com.sun.jna.LastErrorException;
+import com.sun.jna.NativeLong;
+import org.drasyl.channel.tun.jna.shared.LibC;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Objects.requireNonNull;
+import static org.drasyl.channel.tun.jna.linux.Netlink.AF_NETLINK;
+import static org.drasyl.channel.tun.jna.linux.Netlink.NETLINK_ROUTE;
+import static org.drasyl.channel.tun.jna.linux.Netlink.NLA_HDRLEN;
+import static org.drasyl.channel.tun.jna.linux.Netlink.NLMSG_ERROR;
+import static org.drasyl.channel.tun.jna.linux.Netlink.NLMSG_HDRLEN;
+import static org.drasyl.channel.tun.jna.linux.Netlink.NLMSG_LENGTH;
+import static org.drasyl.channel.tun.jna.linux.Netlink.NLMSG_SEQ;
+import static org.drasyl.channel.tun.jna.linux.Netlink.NLMSG_TYPE;
+import static org.drasyl.channel.tun.jna.linux.Netlink.NLM_F_ACK;
+import static org.drasyl.channel.tun.jna.linux.Netlink.NLM_F_CREATE;
+import static org.drasyl.channel.tun.jna.linux.Netlink.NLM_F_REPLACE;
+import static org.drasyl.channel.tun.jna.linux.Netlink.NLM_F_REQUEST;
+import static org.drasyl.channel.tun.jna.linux.Netlink.SOCK_CLOEXEC;
+import static org.drasyl.channel.tun.jna.linux.Netlink.SOCK_RAW;
+import static org.drasyl.channel.tun.jna.linux.Netlink.align;
+import static org.drasyl.channel.tun.jna.linux.Rtnetlink.AF_INET;
+import static org.drasyl.channel.tun.jna.linux.Rtnetlink.AF_INET6;
+import static org.drasyl.channel.tun.jna.linux.Rtnetlink.AF_UNSPEC;
+import static org.drasyl.channel.tun.jna.linux.Rtnetlink.IFADDRMSG_SIZE;
+import static org.drasyl.channel.tun.jna.linux.Rtnetlink.IFA_ADDRESS;
+import static org.drasyl.channel.tun.jna.linux.Rtnetlink.IFA_LOCAL;
+import static org.drasyl.channel.tun.jna.linux.Rtnetlink.IFF_UP;
+import static org.drasyl.channel.tun.jna.linux.Rtnetlink.IFINFOMSG_SIZE;
+import static org.drasyl.channel.tun.jna.linux.Rtnetlink.IFLA_MTU;
+import static org.drasyl.channel.tun.jna.linux.Rtnetlink.RTA_DST;
+import static org.drasyl.channel.tun.jna.linux.Rtnetlink.RTA_OIF;
+import static org.drasyl.channel.tun.jna.linux.Rtnetlink.RTM_NEWADDR;
+import static org.drasyl.channel.tun.jna.linux.Rtnetlink.RTM_NEWLINK;
+import static org.drasyl.channel.tun.jna.linux.Rtnetlink.RTMSG_SIZE;
+import static org.drasyl.channel.tun.jna.linux.Rtnetlink.RTM_NEWROUTE;
+import static org.drasyl.channel.tun.jna.linux.Rtnetlink.RTN_UNICAST;
+import static org.drasyl.channel.tun.jna.linux.Rtnetlink.RTPROT_BOOT;
+import static org.drasyl.channel.tun.jna.linux.Rtnetlink.RT_SCOPE_LINK;
+import static org.drasyl.channel.tun.jna.linux.Rtnetlink.RT_SCOPE_UNIVERSE;
+import static org.drasyl.channel.tun.jna.linux.Rtnetlink.RT_TABLE_MAIN;
+import static org.drasyl.channel.tun.jna.shared.LibC.socket;
+
+/**
+ * Configures network interfaces via rtnetlink ({@code NETLINK_ROUTE}), like {@code ip addr add},
+ * {@code ip link set} and {@code ip route add}, but without forking a process per change.
+ * <p>
+ * Requests are collected and sent to the kernel in a single message by {@link #commit()}. The
+ * kernel processes them in order, so e.g. routes can be added after the link has been brought up.
+ * Addresses and routes replace existing ones, so committing the same requests again succeeds.
+ * <pre>
+ * try (RtnetlinkClient rtnetlink = new RtnetlinkClient()) {
+ *     rtnetlink.addAddress(index, InetAddress.getByName("10.10.10.10"), 24)
+ *              .setUp(index)
+ *              .addRoute(index, InetAddress.getByName("10.20.0.0"), 16)
+ *              .commit();
+ * }
+ * </pre>
+ * Requires {@code CAP_NET_ADMIN}.
+ */
+public final class RtnetlinkClient implements Closeable {
+    private static final int RECEIVE_BUFFER_SIZE = 8192;
+    private final int fd;
+    private final List<String> requests = new ArrayList<>();
+    private ByteBuffer buf = ByteBuffer.allocate(1024).order(ByteOrder.nativeOrder());
+    private int seq;
+    private boolean closed;
+
+    /**
+     * Opens a {@code NETLINK_ROUTE} socket.
+     *
+     * @throws IOException if the socket could not be opened
+     */
+    public RtnetlinkClient() throws IOException {
+        try {
+            fd = socket(AF_NETLINK, SOCK_RAW | SOCK_CLOEXEC, NETLINK_ROUTE);
+        }
+        catch (final LastErrorException e) {
+            throw new IOException("Open netlink socket failed.", e);
+        }
+    }
+
+    /**
+     * Adds the given address to the interface (like {@code ip addr replace}). A prefix route is
+     * installed by the kernel.
+     *
+     * @param index        index of the interface
+     * @param address      the address
+     * @param prefixLength length of the network prefix
+     * @return this client
+     */
+    public RtnetlinkClient addAddress(final int index,
+                                      final InetAddress address,
+                                      final int prefixLength) {
+        final byte[] bytes = requireNonNull(address).getAddress();
+        checkPrefixLength(bytes, prefixLength);
+        final int start = begin(RTM_NEWADDR, NLM_F_CREATE | NLM_F_REPLACE, IFADDRMSG_SIZE + 2 * align(NLA_HDRLEN + bytes.length), "Add address " + address.getHostAddress() + "/" + prefixLength + " to interface " + index);
+        // struct ifaddrmsg
+        buf.put((byte) family(address))
+                .put((byte) prefixLength)
+                .put((byte) 0)
+                .put(RT_SCOPE_UNIVERSE)
+                .putInt(index);
+        attribute(IFA_LOCAL, bytes);
+        attribute(IFA_ADDRESS, bytes);
+        end(start);
+        return this;
+    }
+
+    /**
+     * Brings the interface up (like {@code ip link set up}).
+     *
+     * @param index index of the interface
+     * @return this client
+     */
+    public RtnetlinkClient setUp(final int index) {
+        final int start = begin(RTM_NEWLINK, 0, IFINFOMSG_SIZE, "Bring up interface " + index);
+        ifinfomsg(index, IFF_UP, IFF_UP);
+        end(start);
+        return this;
+    }
+
+    /**
+     * Sets the MTU of the interface (like {@code ip link set mtu}).
+     *
+     * @param index index of the interface
+     * @param mtu   the MTU
+     * @return this client
+     */
+    public RtnetlinkClient setMtu(final int index, final int mtu) {
+        if (mtu <= 0) {
+            throw new IllegalArgumentException("mtu must be positive.");
+        }
+        final int start = begin(RTM_NEWLINK, 0, IFINFOMSG_SIZE + NLA_HDRLEN + Integer.BYTES, "Set mtu " + mtu + " of interface " + index);
+        ifinfomsg(index, 0, 0);
+        attribute(IFLA_MTU, mtu);
+        end(start);
+        return this;
+    }
+
+    /**
+     * Routes the given prefix to the interface (like {@code ip route replace <prefix> dev
+     * <interface>}). The interface must be up.
+     *
+     * @param index        index of the interface
+     * @param destination  the destination prefix. Host bits are ignored
+     * @param prefixLength length of the destination prefix
+     * @return this client
+     */
+    public RtnetlinkClient addRoute(final int index,
+                                    final InetAddress destination,
+                                    final int prefixLength) {
+        final byte[] bytes = requireNonNull(destination).getAddress();
+        checkPrefixLength(bytes, prefixLength);
+        // the kernel rejects prefixes with host bits set
+        for (int i = 0; i < bytes.length; i++) {
+            final int bits = Math.max(0, Math.min(8, prefixLength - i * 8));
+            bytes[i] &= (byte) (0xff00 >> bits);
+        }
+        final int start = begin(RTM_NEWROUTE, NLM_F_CREATE | NLM_F_REPLACE, RTMSG_SIZE + align(NLA_HDRLEN + bytes.length) + NLA_HDRLEN + Integer.BYTES, "Add route " + destination.getHostAddress() + "/" + prefixLength + " to interface " + index);
+        // struct rtmsg
+        buf.put((byte) family(destination))
+                .put((byte) prefixLength)
+                .put((byte) 0)
+                .put((byte) 0)
+                .put(RT_TABLE_MAIN)
+                .put(RTPROT_BOOT)
+                .put(RT_SCOPE_LINK)
+                .put(RTN_UNICAST)
+                .putInt(0);
+        attribute(RTA_DST, bytes);
+        attribute(RTA_OIF, index);
+        end(start);
+        return this;
+    }
+
+    /**
+     * Sends all requests to the kernel and waits until they have been processed.
+     *
+     * @throws IOException if the requests could not be sent or a request has been rejected. All
+     *                     requests have been processed nonetheless
+     */
+    public void commit() throws IOException {
+        if (closed) {
+            throw new IOException("Client is closed.");
+        }
+        if (requests.isEmpty()) {
+            return;
+        }
+
+        final int firstSeq = seq - requests.size() + 1;
+        final List<String> sent = new ArrayList<>(requests);
+        final int length = buf.position();
+        requests.clear();
+        buf.clear();
+        try {
+            LibC.write(fd, buf.array(), new NativeLong(length));
+
+            // one acknowledgement per request
+            final ByteBuffer ack = ByteBuffer.allocate(RECEIVE_BUFFER_SIZE).order(ByteOrder.nativeOrder());
+            IOException exception = null;
+            int acks = 0;
+            while (acks < sent.size()) {
+                final int read = LibC.read(fd, ack.array(), new NativeLong(ack.capacity()));
+                int offset = 0;
+                while (offset + NLMSG_HDRLEN <= read) {
+                    final int messageLength = ack.getInt(offset + NLMSG_LENGTH);
+                    if (messageLength < NLMSG_HDRLEN) {
+                        break;
+                    }
+                    final int index = ack.getInt(offset + NLMSG_SEQ) - firstSeq;
+                    if (ack.getShort(offset + NLMSG_TYPE) == NLMSG_ERROR && index >= 0 && index < sent.size()) {
+                        acks++;
+                        final int error = -ack.getInt(offset + NLMSG_HDRLEN);
+                        if (error != 0 && exception == null) {
+                            exception = new IOException(sent.get(index) + " failed.", new LastErrorException(error));
+                        }
+                    }
+                    offset += align(messageLength);
+                }
+            }
+            if (exception != null) {
+                throw exception;
+            }
+        }
+        catch (final LastErrorException e) {
+            throw new IOException("Netlink communication failed.", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            LibC.close(fd);
+        }
+    }
+
+    /**
+     * Starts a message with a payload of {@code payloadLength} bytes.
+     */
+    private int begin(final short type,
+                      final int flags,
+                      final int payloadLength,
+                      final String description) {
+        if (buf.remaining() < NLMSG_HDRLEN + payloadLength) {
+            final ByteBuffer newBuf = ByteBuffer.allocate(Math.max(buf.capacity() * 2, buf.position() + NLMSG_HDRLEN + payloadLength)).order(ByteOrder.nativeOrder());
+            buf.flip();
+            newBuf.put(buf);
+            buf = newBuf;
+        }
+        final int start = buf.position();
+        // struct nlmsghdr, length is set by end
+        buf.putInt(0)
+                .putShort(type)
+                .putShort((short) (NLM_F_REQUEST | NLM_F_ACK | flags))
+                .putInt(++seq)
+                .putInt(0);
+        requests.add(description);
+        return start;
+    }
+
+    private void end(final int start) {
+        buf.putInt(start + NLMSG_LENGTH, buf.position() - start);
+    }
+
+    private void ifinfomsg(final int index, final int flags, final int change) {
+        buf.put((byte) AF_UNSPEC)
+                .put((byte) 0)
+                .putShort((short) 0)
+                .putInt(index)
+                .putInt(flags)
+                .putInt(change);
+    }
+
+    private void attribute(final short type, final byte[] value) {
+        buf.putShort((short) (NLA_HDRLEN + value.length))
+                .putShort(type)
+                .put(value);
+        buf.position(align(buf.position()));
+    }
+
+    private void attribute(final short type, final int value) {
+        buf.putShort((short) (NLA_HDRLEN + Integer.BYTES))
+                .putShort(type)
+                .putInt(value);
+    }
+
+    private static int family(final InetAddress address) {
+        return address instanceof Inet4Address ? AF_INET : AF_INET6;
+    }
+
+    private static void checkPrefixLength(final byte[] address, final int prefixLength) {
+        if (prefixLength < 0 || prefixLength > address.length * 8) {
+            throw new IllegalArgumentException("Invalid prefix length: " + prefixLength);
+        }
+    }
+}
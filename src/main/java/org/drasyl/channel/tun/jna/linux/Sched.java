@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2021-2022 Heiko Bornholdt and Kevin Röbert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.drasyl.channel.tun.jna.linux;
+
+import com.sun.jna.LastErrorException;
+import com.sun.jna.Native;
+import com.sun.jna.Platform;
+import com.sun.jna.Pointer;
+
+/**
+ * JNA mapping for <a href="https://man7.org/linux/man-pages/man2/sched_setaffinity.2.html">sched.h</a>.
+ * <p>
+ * {@code cpu_set_t} is accessed as bit mask of at least {@link #CPU_SETSIZE} bits.
+ */
+final class Sched {
+    // number of cpus in glibc's cpu_set_t, the kernel accepts larger masks
+    public static final int CPU_SETSIZE = 1024;
+
+    static {
+        Native.register(Platform.C_LIBRARY_NAME);
+    }
+
+    private Sched() {
+        // JNA mapping
+    }
+
+    // https://man7.org/linux/man-pages/man2/sched_setaffinity.2.html
+    public static native int sched_setaffinity(final int pid,
+                                               final long cpusetsize,
+                                               final Pointer mask) throws LastErrorException;
+}
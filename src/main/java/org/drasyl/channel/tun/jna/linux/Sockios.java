@@ -31,6 +31,8 @@ final class Sockios {
     public static final NativeLong SIOCGIFMTU = new NativeLong(0x8921L);
     // set MTU size
     public static final NativeLong SIOCSIFMTU = new NativeLong(0x8922L);
+    // name -> if_index mapping
+    public static final NativeLong SIOCGIFINDEX = new NativeLong(0x8933L);
 
     private Sockios() {
         // JNA mapping
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2021-2022 Heiko Bornholdt and Kevin Röbert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.drasyl.channel.tun.jna.linux;
+
+import com.sun.jna.LastErrorException;
+import com.sun.jna.Native;
+import com.sun.jna.Platform;
+import com.sun.jna.Pointer;
+import com.sun.jna.ptr.IntByReference;
+
+/**
+ * JNA mapping for <a href="https://github.com/torvalds/linux/blob/master/include/linux/socket.h">socket.h</a>
+ * and <a href="https://github.com/torvalds/linux/blob/master/include/uapi/linux/un.h">un.h</a>.
+ * <p>
+ * {@code struct msghdr} and {@code struct cmsghdr} are accessed through the offsets below, which
+ * depend on the size of pointers and {@code size_t} ({@link Native#POINTER_SIZE}).
+ */
+final class SysSocket {
+    // unix domain sockets
+    public static final int AF_UNIX = 1;
+    public static final int SOCK_STREAM = 1;
+    public static final int SOL_SOCKET = 1;
+    // transfer file descriptors
+    public static final int SCM_RIGHTS = 1;
+    // control data lost before delivery
+    public static final int MSG_CTRUNC = 0x08;
+    // set close-on-exec for file descriptors received through SCM_RIGHTS
+    public static final int MSG_CMSG_CLOEXEC = 0x40000000;
+    // maximum number of file descriptors per SCM_RIGHTS message
+    public static final int SCM_MAX_FD = 253;
+    // credentials of the connected peer, struct ucred
+    public static final int SO_PEERCRED = 17;
+    public static final int UCRED_SIZE = 12;
+    public static final int UCRED_UID = 4;
+    // struct sockaddr_un
+    public static final int SOCKADDR_UN_SIZE = 110;
+    public static final int SUN_PATH_OFFSET = 2;
+    // struct iovec
+    public static final int IOVEC_SIZE = 2 * Native.POINTER_SIZE;
+    // struct msghdr
+    public static final int MSGHDR_SIZE = 7 * Native.POINTER_SIZE;
+    public static final int MSG_NAMELEN = Native.POINTER_SIZE;
+    public static final int MSG_IOV = 2 * Native.POINTER_SIZE;
+    public static final int MSG_IOVLEN = 3 * Native.POINTER_SIZE;
+    public static final int MSG_CONTROL = 4 * Native.POINTER_SIZE;
+    public static final int MSG_CONTROLLEN = 5 * Native.POINTER_SIZE;
+    public static final int MSG_FLAGS = 6 * Native.POINTER_SIZE;
+    // struct cmsghdr
+    public static final int CMSG_LEVEL = Native.POINTER_SIZE;
+    public static final int CMSG_TYPE = Native.POINTER_SIZE + 4;
+    public static final int CMSG_HDRLEN = cmsgAlign(Native.POINTER_SIZE + 8);
+
+    static {
+        Native.register(Platform.C_LIBRARY_NAME);
+    }
+
+    private SysSocket() {
+        // JNA mapping
+    }
+
+    public static native int bind(final int sockfd,
+                                  final Pointer addr,
+                                  final int addrlen) throws LastErrorException;
+
+    public static native int listen(final int sockfd, final int backlog) throws LastErrorException;
+
+    public static native int accept(final int sockfd,
+                                    final Pointer addr,
+                                    final Pointer addrlen) throws LastErrorException;
+
+    public static native int connect(final int sockfd,
+                                     final Pointer addr,
+                                     final int addrlen) throws LastErrorException;
+
+    public static native int sendmsg(final int sockfd,
+                                     final Pointer msg,
+                                     final int flags) throws LastErrorException;
+
+    public static native int recvmsg(final int sockfd,
+                                     final Pointer msg,
+                                     final int flags) throws LastErrorException;
+
+    public static native int getsockopt(final int sockfd,
+                                        final int level,
+                                        final int optname,
+                                        final Pointer optval,
+                                        final IntByReference optlen) throws LastErrorException;
+
+    /**
+     * Rounds {@code len} up to the alignment of control messages ({@code sizeof(size_t)}).
+     */
+    static int cmsgAlign(final int len) {
+        return (len + Native.SIZE_T_SIZE - 1) & ~(Native.SIZE_T_SIZE - 1);
+    }
+}
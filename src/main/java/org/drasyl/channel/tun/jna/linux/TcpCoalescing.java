@@ -0,0 +1,290 @@
+/*
+ * Copyright (c) 2021-2022 Heiko Bornholdt and Kevin Röbert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.drasyl.channel.tun.jna.linux;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import org.drasyl.channel.tun.Tun4Packet;
+import org.drasyl.channel.tun.Tun6Packet;
+import org.drasyl.channel.tun.TunPacket;
+import org.drasyl.channel.tun.VirtioNetHeader;
+
+import java.util.List;
+
+import static org.drasyl.channel.tun.InetProtocol.TCP;
+import static org.drasyl.channel.tun.Tun4Packet.INET4_FLAGS_AND_FRAGMENT_OFFSET;
+import static org.drasyl.channel.tun.Tun4Packet.INET4_HEADER_CHECKSUM;
+import static org.drasyl.channel.tun.Tun4Packet.INET4_HEADER_LENGTH;
+import static org.drasyl.channel.tun.Tun4Packet.INET4_PROTOCOL;
+import static org.drasyl.channel.tun.Tun4Packet.INET4_SOURCE_ADDRESS;
+import static org.drasyl.channel.tun.Tun4Packet.INET4_TIME_TO_LIVE;
+import static org.drasyl.channel.tun.Tun4Packet.INET4_TOTAL_LENGTH;
+import static org.drasyl.channel.tun.Tun4Packet.INET4_TYPE_OF_SERVICE;
+import static org.drasyl.channel.tun.Tun6Packet.INET6_HEADER_LENGTH;
+import static org.drasyl.channel.tun.Tun6Packet.INET6_HOP_LIMIT;
+import static org.drasyl.channel.tun.Tun6Packet.INET6_NEXT_HEADER;
+import static org.drasyl.channel.tun.Tun6Packet.INET6_PAYLOAD_LENGTH;
+import static org.drasyl.channel.tun.Tun6Packet.INET6_SOURCE_ADDRESS;
+import static org.drasyl.channel.tun.VirtioNetHeader.VIRTIO_NET_HDR_F_NEEDS_CSUM;
+import static org.drasyl.channel.tun.VirtioNetHeader.VIRTIO_NET_HDR_GSO_TCPV4;
+import static org.drasyl.channel.tun.VirtioNetHeader.VIRTIO_NET_HDR_GSO_TCPV6;
+
+/**
+ * Coalesces consecutive in-order TCP segments of the same flow into a single GSO super-packet (like
+ * the kernel's GRO does for received packets). The kernel then either delivers the super-packet as
+ * a whole or segments it again when forwarding.
+ */
+final class TcpCoalescing {
+    private static final int TCP_SEQUENCE_NUMBER = 4;
+    private static final int TCP_ACKNOWLEDGEMENT_NUMBER = 8;
+    private static final int TCP_DATA_OFFSET = 12;
+    private static final int TCP_FLAGS = 13;
+    private static final int TCP_HEADER_LENGTH = 20;
+    private static final int TCP_FLAG_PSH = 0x08;
+    private static final int TCP_FLAG_ACK = 0x10;
+    // don't fragment flag
+    private static final int INET4_DF_MASK = 0x4000;
+    // more fragments flag and fragment offset
+    private static final int INET4_FRAGMENT_MASK = 0x3fff;
+    private static final int MAX_LENGTH = 0xffff;
+
+    private TcpCoalescing() {
+        // util class
+    }
+
+    /**
+     * Returns the (exclusive) end of the run of packets starting at {@code start} that can be
+     * coalesced into a single GSO super-packet. A run ending at {@code start + 1} can not be
+     * coalesced.
+     *
+     * @param msgs  packets to be written
+     * @param start index of the first packet of the run
+     * @return exclusive end of the run
+     */
+    @SuppressWarnings("java:S109")
+    static int runEnd(final List<TunPacket> msgs, final int start) {
+        final ByteBuf first = msgs.get(start).content();
+        final int hdrLen = headerLength(msgs.get(start));
+        if (hdrLen == -1) {
+            return start + 1;
+        }
+
+        final int gsoSize = first.readableBytes() - hdrLen;
+        int length = l3Length(first);
+        ByteBuf prev = first;
+        int end = start + 1;
+        while (end < msgs.size() && (tcpFlags(prev) & TCP_FLAG_PSH) == 0) {
+            final TunPacket msg = msgs.get(end);
+            final ByteBuf next = msg.content();
+            final int payload = next.readableBytes() - hdrLen;
+            if (headerLength(msg) != hdrLen ||
+                    prev.readableBytes() - hdrLen != gsoSize ||
+                    payload > gsoSize ||
+                    length + payload > MAX_LENGTH ||
+                    !sameFlow(first, next, hdrLen) ||
+                    sequenceNumber(next) != ((sequenceNumber(prev) + gsoSize) & 0xffffffffL)) {
+                break;
+            }
+            length += payload;
+            prev = next;
+            end++;
+        }
+        return end;
+    }
+
+    /**
+     * Coalesces the packets {@code msgs[start, end)} (as determined by {@link #runEnd(List, int)})
+     * into a single GSO super-packet. The given packets are released.
+     *
+     * @param alloc allocator for the super-packet
+     * @param msgs  packets to be written
+     * @param start index of the first packet
+     * @param end   exclusive index of the last packet
+     * @return GSO super-packet
+     */
+    @SuppressWarnings("java:S109")
+    static TunPacket coalesce(final ByteBufAllocator alloc,
+                              final List<TunPacket> msgs,
+                              final int start,
+                              final int end) {
+        ByteBuf buf = null;
+        try {
+            final ByteBuf first = msgs.get(start).content();
+            final int hdrLen = headerLength(msgs.get(start));
+            final int l4Offset = ipHeaderLength(first);
+            final int gsoSize = first.readableBytes() - hdrLen;
+            final int push = tcpFlags(msgs.get(end - 1).content()) & TCP_FLAG_PSH;
+            int length = hdrLen;
+            for (int i = start; i < end; i++) {
+                length += msgs.get(i).content().readableBytes() - hdrLen;
+            }
+
+            buf = alloc.buffer(length);
+            buf.writeBytes(first, first.readerIndex(), hdrLen);
+            for (int i = start; i < end; i++) {
+                final ByteBuf segment = msgs.get(i).content();
+                buf.writeBytes(segment, segment.readerIndex() + hdrLen, segment.readableBytes() - hdrLen);
+            }
+
+            // push flag of the last segment
+            buf.setByte(l4Offset + TCP_FLAGS, buf.getUnsignedByte(l4Offset + TCP_FLAGS) | push);
+
+            final int version = buf.getUnsignedByte(0) >> 4;
+            if (version == 4) {
+                buf.setShort(INET4_TOTAL_LENGTH, length);
+                buf.setShort(INET4_HEADER_CHECKSUM, 0);
+                long sum = 0;
+                for (int i = 0; i < l4Offset; i += 2) {
+                    sum += buf.getUnsignedShort(i);
+                }
+                buf.setShort(INET4_HEADER_CHECKSUM, ~ChecksumOffload.fold(sum));
+            }
+            else {
+                buf.setShort(INET6_PAYLOAD_LENGTH, length - INET6_HEADER_LENGTH);
+            }
+
+            // kernel completes the tcp checksum of each segment
+            final VirtioNetHeader csum = ChecksumOffload.prepare(buf);
+            final VirtioNetHeader header = new VirtioNetHeader(VIRTIO_NET_HDR_F_NEEDS_CSUM, version == 4 ? VIRTIO_NET_HDR_GSO_TCPV4 : VIRTIO_NET_HDR_GSO_TCPV6, hdrLen, gsoSize, csum.csumStart(), csum.csumOffset());
+            return version == 4 ? new Tun4Packet(buf, header) : new Tun6Packet(buf, header);
+        }
+        catch (final RuntimeException e) {
+            if (buf != null) {
+                buf.release();
+            }
+            throw e;
+        }
+        finally {
+            for (int i = start; i < end; i++) {
+                msgs.get(i).release();
+            }
+        }
+    }
+
+    /**
+     * Returns the length of the IP and TCP header of the given packet, or {@code -1} if the packet
+     * is not a coalescable TCP segment (carries no payload, has flags other than ACK/PSH set, is
+     * fragmented, has IP options or already carries offload information).
+     */
+    @SuppressWarnings("java:S109")
+    private static int headerLength(final TunPacket msg) {
+        final VirtioNetHeader virtioNetHeader = msg.virtioNetHeader();
+        if (virtioNetHeader.isGso() || virtioNetHeader.needsCsum()) {
+            return -1;
+        }
+
+        final ByteBuf packet = msg.content();
+        final int index = packet.readerIndex();
+        final int length = packet.readableBytes();
+        final int l3Length = ipHeaderLength(packet);
+        if (l3Length == -1 || length < l3Length + TCP_HEADER_LENGTH) {
+            return -1;
+        }
+        if (l3Length == INET4_HEADER_LENGTH) {
+            if (packet.getUnsignedByte(index + INET4_PROTOCOL) != TCP.decimal ||
+                    (packet.getUnsignedShort(index + INET4_FLAGS_AND_FRAGMENT_OFFSET) & INET4_FRAGMENT_MASK) != 0 ||
+                    packet.getUnsignedShort(index + INET4_TOTAL_LENGTH) != length) {
+                return -1;
+            }
+        }
+        else if (packet.getUnsignedByte(index + INET6_NEXT_HEADER) != TCP.decimal ||
+                packet.getUnsignedShort(index + INET6_PAYLOAD_LENGTH) != length - INET6_HEADER_LENGTH) {
+            return -1;
+        }
+
+        final int hdrLen = l3Length + (packet.getUnsignedByte(index + l3Length + TCP_DATA_OFFSET) >> 4) * 4;
+        final int flags = packet.getUnsignedByte(index + l3Length + TCP_FLAGS);
+        if (hdrLen < l3Length + TCP_HEADER_LENGTH || hdrLen >= length || (flags & ~TCP_FLAG_PSH) != TCP_FLAG_ACK) {
+            return -1;
+        }
+        return hdrLen;
+    }
+
+    /**
+     * Returns the IP header length of IPv4 packets without options and of IPv6 packets, or {@code
+     * -1} for all other packets.
+     */
+    @SuppressWarnings("java:S109")
+    private static int ipHeaderLength(final ByteBuf packet) {
+        if (!packet.isReadable()) {
+            return -1;
+        }
+        final int versionAndIhl = packet.getUnsignedByte(packet.readerIndex());
+        if (versionAndIhl == 0x45) {
+            return INET4_HEADER_LENGTH;
+        }
+        else if (versionAndIhl >> 4 == 6) {
+            return INET6_HEADER_LENGTH;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the value of the IPv4 total length or IPv6 payload length field.
+     */
+    private static int l3Length(final ByteBuf packet) {
+        return packet.getUnsignedShort(packet.readerIndex() + (ipHeaderLength(packet) == INET4_HEADER_LENGTH ? INET4_TOTAL_LENGTH : INET6_PAYLOAD_LENGTH));
+    }
+
+    /**
+     * Returns {@code true} if both segments belong to the same flow and only differ in fields
+     * that change from segment to segment (lengths, checksums, sequence numbers, push flag,
+     * window). The super-packet inherits the window of its first segment.
+     */
+    @SuppressWarnings("java:S109")
+    private static boolean sameFlow(final ByteBuf a, final ByteBuf b, final int hdrLen) {
+        final int indexA = a.readerIndex();
+        final int indexB = b.readerIndex();
+        final int l3Length = ipHeaderLength(a);
+        if (ipHeaderLength(b) != l3Length) {
+            return false;
+        }
+        if (l3Length == INET4_HEADER_LENGTH) {
+            if (a.getByte(indexA + INET4_TYPE_OF_SERVICE) != b.getByte(indexB + INET4_TYPE_OF_SERVICE) ||
+                    a.getByte(indexA + INET4_TIME_TO_LIVE) != b.getByte(indexB + INET4_TIME_TO_LIVE) ||
+                    (a.getUnsignedShort(indexA + INET4_FLAGS_AND_FRAGMENT_OFFSET) & INET4_DF_MASK) != (b.getUnsignedShort(indexB + INET4_FLAGS_AND_FRAGMENT_OFFSET) & INET4_DF_MASK) ||
+                    !ByteBufUtil.equals(a, indexA + INET4_SOURCE_ADDRESS, b, indexB + INET4_SOURCE_ADDRESS, 8)) {
+                return false;
+            }
+        }
+        else if (a.getInt(indexA) != b.getInt(indexB) ||
+                a.getByte(indexA + INET6_HOP_LIMIT) != b.getByte(indexB + INET6_HOP_LIMIT) ||
+                !ByteBufUtil.equals(a, indexA + INET6_SOURCE_ADDRESS, b, indexB + INET6_SOURCE_ADDRESS, 32)) {
+            return false;
+        }
+
+        // ports, acknowledgement number, flags (except push), and options
+        return ByteBufUtil.equals(a, indexA + l3Length, b, indexB + l3Length, TCP_SEQUENCE_NUMBER) &&
+                a.getInt(indexA + l3Length + TCP_ACKNOWLEDGEMENT_NUMBER) == b.getInt(indexB + l3Length + TCP_ACKNOWLEDGEMENT_NUMBER) &&
+                (tcpFlags(a) & ~TCP_FLAG_PSH) == (tcpFlags(b) & ~TCP_FLAG_PSH) &&
+                ByteBufUtil.equals(a, indexA + l3Length + TCP_HEADER_LENGTH, b, indexB + l3Length + TCP_HEADER_LENGTH, hdrLen - l3Length - TCP_HEADER_LENGTH);
+    }
+
+    private static int tcpFlags(final ByteBuf packet) {
+        return packet.getUnsignedByte(packet.readerIndex() + ipHeaderLength(packet) + TCP_FLAGS);
+    }
+
+    private static long sequenceNumber(final ByteBuf packet) {
+        return packet.getUnsignedInt(packet.readerIndex() + ipHeaderLength(packet) + TCP_SEQUENCE_NUMBER);
+    }
+}
@@ -0,0 +1,271 @@
+/*
+ * Copyright (c) 2021-2022 Heiko Bornholdt and Kevin Röbert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.drasyl.channel.tun.jna.linux;
+
+import com.sun.jna.LastErrorException;
+import com.sun.jna.Memory;
+import com.sun.jna.NativeLong;
+import com.sun.jna.Pointer;
+import com.sun.jna.ptr.IntByReference;
+import org.drasyl.channel.tun.jna.shared.LibC;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.drasyl.channel.tun.jna.linux.Netlink.SOCK_CLOEXEC;
+import static org.drasyl.channel.tun.jna.linux.Poll.POLLFD_EVENTS;
+import static org.drasyl.channel.tun.jna.linux.Poll.POLLFD_FD;
+import static org.drasyl.channel.tun.jna.linux.Poll.POLLFD_SIZE;
+import static org.drasyl.channel.tun.jna.linux.Poll.POLLIN;
+import static org.drasyl.channel.tun.jna.linux.Poll.poll;
+import static org.drasyl.channel.tun.jna.linux.SysSocket.AF_UNIX;
+import static org.drasyl.channel.tun.jna.linux.SysSocket.CMSG_HDRLEN;
+import static org.drasyl.channel.tun.jna.linux.SysSocket.CMSG_LEVEL;
+import static org.drasyl.channel.tun.jna.linux.SysSocket.CMSG_TYPE;
+import static org.drasyl.channel.tun.jna.linux.SysSocket.IOVEC_SIZE;
+import static org.drasyl.channel.tun.jna.linux.SysSocket.MSGHDR_SIZE;
+import static org.drasyl.channel.tun.jna.linux.SysSocket.MSG_CMSG_CLOEXEC;
+import static org.drasyl.channel.tun.jna.linux.SysSocket.MSG_CONTROL;
+import static org.drasyl.channel.tun.jna.linux.SysSocket.MSG_CONTROLLEN;
+import static org.drasyl.channel.tun.jna.linux.SysSocket.MSG_CTRUNC;
+import static org.drasyl.channel.tun.jna.linux.SysSocket.MSG_FLAGS;
+import static org.drasyl.channel.tun.jna.linux.SysSocket.MSG_IOV;
+import static org.drasyl.channel.tun.jna.linux.SysSocket.MSG_IOVLEN;
+import static org.drasyl.channel.tun.jna.linux.SysSocket.SCM_MAX_FD;
+import static org.drasyl.channel.tun.jna.linux.SysSocket.SCM_RIGHTS;
+import static org.drasyl.channel.tun.jna.linux.SysSocket.SOCKADDR_UN_SIZE;
+import static org.drasyl.channel.tun.jna.linux.SysSocket.SOCK_STREAM;
+import static org.drasyl.channel.tun.jna.linux.SysSocket.SOL_SOCKET;
+import static org.drasyl.channel.tun.jna.linux.SysSocket.SO_PEERCRED;
+import static org.drasyl.channel.tun.jna.linux.SysSocket.SUN_PATH_OFFSET;
+import static org.drasyl.channel.tun.jna.linux.SysSocket.UCRED_SIZE;
+import static org.drasyl.channel.tun.jna.linux.SysSocket.UCRED_UID;
+import static org.drasyl.channel.tun.jna.linux.SysSocket.accept;
+import static org.drasyl.channel.tun.jna.linux.SysSocket.bind;
+import static org.drasyl.channel.tun.jna.linux.SysSocket.cmsgAlign;
+import static org.drasyl.channel.tun.jna.linux.SysSocket.connect;
+import static org.drasyl.channel.tun.jna.linux.SysSocket.getsockopt;
+import static org.drasyl.channel.tun.jna.linux.SysSocket.listen;
+import static org.drasyl.channel.tun.jna.linux.SysSocket.recvmsg;
+import static org.drasyl.channel.tun.jna.linux.SysSocket.sendmsg;
+
+/**
+ * Passes the file descriptors of a tun device to another process over a Unix domain socket
+ * ({@code SCM_RIGHTS}), e.g. from a process being restarted to its successor. A device is only
+ * removed once all of its descriptors have been closed, so a device handed over this way keeps its
+ * addresses, routes and the packets queued by the kernel. The receiver continues using the device
+ * with {@link LinuxTunDevice#adopt(String, int[], LinuxTunDeviceOptions)}.
+ */
+public final class TunHandoff {
+    private static final long DEFAULT_RECEIVE_TIMEOUT_MILLIS = 60_000;
+
+    private TunHandoff() {
+        // util class
+    }
+
+    /**
+     * Connects to the socket at {@code path} and sends the given file descriptors to the process
+     * waiting in {@link #receive(Path)}. The descriptors may be closed afterwards.
+     *
+     * @param path path of the receiver's socket
+     * @param fds  file descriptors to send
+     * @throws IOException if the descriptors could not be sent
+     */
+    public static void send(final Path path, final int... fds) throws IOException {
+        if (fds.length == 0 || fds.length > SCM_MAX_FD) {
+            throw new IllegalArgumentException("Between 1 and " + SCM_MAX_FD + " file descriptors can be sent.");
+        }
+
+        final Memory address = address(path);
+        try {
+            final int socket = LibC.socket(AF_UNIX, SOCK_STREAM | SOCK_CLOEXEC, 0);
+            try {
+                connect(socket, address, SOCKADDR_UN_SIZE);
+
+                final Memory control = new Memory(cmsgAlign(CMSG_HDRLEN + fds.length * Integer.BYTES));
+                control.clear();
+                control.setNativeLong(0, new NativeLong(CMSG_HDRLEN + (long) fds.length * Integer.BYTES));
+                control.setInt(CMSG_LEVEL, SOL_SOCKET);
+                control.setInt(CMSG_TYPE, SCM_RIGHTS);
+                control.write(CMSG_HDRLEN, fds, 0, fds.length);
+
+                // at least one byte of data is required to carry the control message
+                sendmsg(socket, message(control), 0);
+            }
+            finally {
+                LibC.close(socket);
+            }
+        }
+        catch (final LastErrorException e) {
+            throw new IOException("Send file descriptors to " + path + " failed.", e);
+        }
+    }
+
+    /**
+     * Creates a socket at {@code path} and waits up to one minute for a process to send file
+     * descriptors by {@link #send(Path, int...)}, see {@link #receive(Path, long, TimeUnit)}.
+     *
+     * @param path path of the socket to create
+     * @return the received file descriptors
+     * @throws IOException if no descriptors could be received
+     */
+    public static int[] receive(final Path path) throws IOException {
+        return receive(path, DEFAULT_RECEIVE_TIMEOUT_MILLIS, MILLISECONDS);
+    }
+
+    /**
+     * Creates a socket at {@code path} and waits until a process has sent file descriptors by
+     * {@link #send(Path, int...)}. A file left at {@code path}, e.g. by a crashed predecessor, is
+     * replaced. The socket is removed afterwards. The received descriptors are owned by the caller.
+     * <p>
+     * Only descriptors sent by a process of the same user (or root) are accepted. As any process
+     * of that user that can reach {@code path} may send descriptors, {@code path} should be in a
+     * directory only accessible by this user.
+     *
+     * @param path    path of the socket to create
+     * @param timeout maximum time to wait for the descriptors
+     * @param unit    unit of {@code timeout}
+     * @return the received file descriptors
+     * @throws IOException if no descriptors could be received in time
+     */
+    @SuppressWarnings("java:S3776")
+    public static int[] receive(final Path path,
+                                final long timeout,
+                                final TimeUnit unit) throws IOException {
+        final Memory address = address(path);
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        boolean bound = false;
+        try {
+            final int socket = LibC.socket(AF_UNIX, SOCK_STREAM | SOCK_CLOEXEC, 0);
+            try {
+                // bind fails with EADDRINUSE as long as the socket file exists
+                Files.deleteIfExists(path);
+                bind(socket, address, SOCKADDR_UN_SIZE);
+                bound = true;
+                listen(socket, 1);
+                awaitReadable(socket, deadline, path);
+                final int connection = accept(socket, null, null);
+                try {
+                    checkPeer(connection, path);
+                    awaitReadable(connection, deadline, path);
+                    final Memory control = new Memory(cmsgAlign(CMSG_HDRLEN + SCM_MAX_FD * Integer.BYTES));
+                    control.clear();
+                    final Memory message = message(control);
+                    if (recvmsg(connection, message, MSG_CMSG_CLOEXEC) <= 0) {
+                        throw new IOException("Connection closed before file descriptors were received from " + path + ".");
+                    }
+                    if ((message.getInt(MSG_FLAGS) & MSG_CTRUNC) != 0) {
+                        throw new IOException("Too many file descriptors received from " + path + ".");
+                    }
+                    if (message.getNativeLong(MSG_CONTROLLEN).longValue() < CMSG_HDRLEN || control.getInt(CMSG_LEVEL) != SOL_SOCKET || control.getInt(CMSG_TYPE) != SCM_RIGHTS) {
+                        throw new IOException("No file descriptors received from " + path + ".");
+                    }
+                    final int count = (int) (control.getNativeLong(0).longValue() - CMSG_HDRLEN) / Integer.BYTES;
+                    return control.getIntArray(CMSG_HDRLEN, count);
+                }
+                finally {
+                    LibC.close(connection);
+                }
+            }
+            finally {
+                LibC.close(socket);
+                if (bound) {
+                    // otherwise, the file belongs to someone else
+                    Files.deleteIfExists(path);
+                }
+            }
+        }
+        catch (final LastErrorException e) {
+            throw new IOException("Receive file descriptors from " + path + " failed.", e);
+        }
+    }
+
+    /**
+     * Waits until {@code fd} is readable.
+     *
+     * @throws IOException if {@code fd} has not become readable before {@code deadline}
+     */
+    private static void awaitReadable(final int fd,
+                                      final long deadline,
+                                      final Path path) throws IOException {
+        final Memory pollfd = new Memory(POLLFD_SIZE);
+        pollfd.clear();
+        pollfd.setInt(POLLFD_FD, fd);
+        pollfd.setShort(POLLFD_EVENTS, POLLIN);
+        final long remainingMillis = NANOSECONDS.toMillis(deadline - System.nanoTime());
+        if (remainingMillis <= 0 || poll(pollfd, 1, (int) Math.min(remainingMillis, Integer.MAX_VALUE)) == 0) {
+            throw new IOException("Timed out waiting for file descriptors on " + path + ".");
+        }
+    }
+
+    /**
+     * Rejects connections from processes of other users.
+     */
+    private static void checkPeer(final int connection, final Path path) throws IOException {
+        final Memory ucred = new Memory(UCRED_SIZE);
+        getsockopt(connection, SOL_SOCKET, SO_PEERCRED, ucred, new IntByReference(UCRED_SIZE));
+        final int peerUid = ucred.getInt(UCRED_UID);
+        // /proc/self is owned by the effective user of this process
+        final int uid = (int) Files.getAttribute(Path.of("/proc/self"), "unix:uid");
+        if (peerUid != uid && peerUid != 0) {
+            throw new IOException("File descriptors from user " + peerUid + " sent to " + path + " rejected.");
+        }
+    }
+
+    /**
+     * Returns a {@code struct sockaddr_un} for the given path.
+     */
+    private static Memory address(final Path path) {
+        final byte[] bytes = path.toString().getBytes(UTF_8);
+        if (bytes.length >= SOCKADDR_UN_SIZE - SUN_PATH_OFFSET) {
+            throw new IllegalArgumentException("Socket path must be shorter than " + (SOCKADDR_UN_SIZE - SUN_PATH_OFFSET) + " bytes.");
+        }
+        final Memory address = new Memory(SOCKADDR_UN_SIZE);
+        address.clear();
+        address.setShort(0, (short) AF_UNIX);
+        address.write(SUN_PATH_OFFSET, bytes, 0, bytes.length);
+        return address;
+    }
+
+    /**
+     * Returns a {@code struct msghdr} with a single byte of data and the given control buffer. The
+     * {@code struct iovec} and the data are placed behind the header in the same memory, so that
+     * they live as long as the header.
+     */
+    private static Memory message(final Memory control) {
+        final Memory message = new Memory(MSGHDR_SIZE + IOVEC_SIZE + 1L);
+        message.clear();
+        final Pointer iov = message.share(MSGHDR_SIZE);
+        iov.setPointer(0, message.share(MSGHDR_SIZE + (long) IOVEC_SIZE));
+        iov.setNativeLong(IOVEC_SIZE / 2, new NativeLong(1));
+        message.setPointer(MSG_IOV, iov);
+        message.setNativeLong(MSG_IOVLEN, new NativeLong(1));
+        message.setPointer(MSG_CONTROL, control);
+        message.setNativeLong(MSG_CONTROLLEN, new NativeLong(control.size()));
+        return message;
+    }
+}
@@ -76,6 +76,8 @@ public final class If {
         public static class FfrIfru extends Union {
             public short ifru_flags;
             public int ifru_mtu;
+            // largest member (struct ifmap on LP64), as the kernel copies the whole struct back
+            public byte[] ifru_map = new byte[24];
         }
     }
 }
@@ -325,4 +325,12 @@ public final class LibC {
     public static native int ioctl(final int fildes,
                                    final NativeLong request,
                                    final Structure argp) throws LastErrorException;
+
+    /**
+     * Same as {@link #ioctl(int, NativeLong, Structure)}, but for requests taking an integer
+     * argument.
+     */
+    public static native int ioctl(final int fildes,
+                                   final NativeLong request,
+                                   final NativeLong arg) throws LastErrorException;
 }
@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2021-2022 Heiko Bornholdt and Kevin Röbert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.drasyl.channel.tun.jna.linux;
+
+import com.sun.jna.LastErrorException;
+import com.sun.jna.NativeLong;
+import io.netty.buffer.ByteBuf;
+import org.drasyl.channel.tun.jna.shared.LibC;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.Linker;
+import java.lang.foreign.MemoryLayout.PathElement;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.StructLayout;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+
+import static java.lang.foreign.ValueLayout.ADDRESS;
+import static java.lang.foreign.ValueLayout.JAVA_INT;
+import static java.lang.foreign.ValueLayout.JAVA_LONG;
+
+/**
+ * Reads and writes packets from/to file descriptors.
+ * <p>
+ * This implementation uses the Foreign Function &amp; Memory API and replaces the JNA-based
+ * implementation on Java 22 and later. The memory of the {@link ByteBuf}s is passed directly to
+ * {@code read}/{@code write}. Non-blocking calls use critical downcalls, which skip the thread
+ * state transition and may access heap memory. Blocking calls can not use critical downcalls, as
+ * they would prevent the garbage collector from reaching a safepoint. This includes writes, which
+ * may sleep on a blocking device once its send buffer is exhausted.
+ * <p>
+ * Use {@code --enable-native-access=ALL-UNNAMED} to suppress the JVM's warning about restricted
+ * methods.
+ */
+final class NativeIo {
+    private static final Linker LINKER = Linker.nativeLinker();
+    private static final StructLayout CAPTURE_STATE_LAYOUT = Linker.Option.captureStateLayout();
+    private static final VarHandle ERRNO = CAPTURE_STATE_LAYOUT.varHandle(PathElement.groupElement("errno"));
+    // ssize_t read(int fd, void *buf, size_t count) and ssize_t write(int fd, const void *buf, size_t count)
+    private static final FunctionDescriptor READ_WRITE = FunctionDescriptor.of(JAVA_LONG, JAVA_INT, ADDRESS, JAVA_LONG);
+    private static final MethodHandle READ = downcallHandle("read", false);
+    private static final MethodHandle READ_CRITICAL = downcallHandle("read", true);
+    private static final MethodHandle WRITE = downcallHandle("write", false);
+    private static final MethodHandle WRITE_CRITICAL = downcallHandle("write", true);
+    private static final ThreadLocal<MemorySegment> CAPTURE_STATE = ThreadLocal.withInitial(() -> Arena.ofAuto().allocate(CAPTURE_STATE_LAYOUT));
+
+    private NativeIo() {
+        // util class
+    }
+
+    private static MethodHandle downcallHandle(final String name, final boolean critical) {
+        final MemorySegment address = LINKER.defaultLookup().find(name).orElseThrow();
+        final Linker.Option captureCallState = Linker.Option.captureCallState("errno");
+        if (critical) {
+            return LINKER.downcallHandle(address, READ_WRITE, Linker.Option.critical(true), captureCallState);
+        }
+        else {
+            return LINKER.downcallHandle(address, READ_WRITE, captureCallState);
+        }
+    }
+
+    /**
+     * Returns the name of this implementation.
+     *
+     * @return the name of this implementation
+     */
+    static String backend() {
+        return "ffm";
+    }
+
+    /**
+     * Reads up to {@code length} bytes from {@code fd} into {@code buf} starting at {@code
+     * index}.
+     *
+     * @param fd       file descriptor
+     * @param buf      destination
+     * @param index    index of the first byte to be written to {@code buf}
+     * @param length   maximum number of bytes to read
+     * @param blocking {@code true} if the read may block
+     * @return the number of read bytes
+     * @throws LastErrorException if the read failed
+     */
+    @SuppressWarnings("java:S1181")
+    static int read(final int fd,
+                    final ByteBuf buf,
+                    final int index,
+                    final int length,
+                    final boolean blocking) {
+        final MemorySegment segment = segment(buf, index, length);
+        if (blocking && !segment.isNative()) {
+            // heap memory can only be passed to critical downcalls
+            return LibC.read(fd, buf.nioBuffer(index, length), new NativeLong(length));
+        }
+
+        final MemorySegment captureState = CAPTURE_STATE.get();
+        final long bytesRead;
+        try {
+            if (blocking) {
+                bytesRead = (long) READ.invokeExact(captureState, fd, segment, (long) length);
+            }
+            else {
+                bytesRead = (long) READ_CRITICAL.invokeExact(captureState, fd, segment, (long) length);
+            }
+        }
+        catch (final Throwable e) {
+            throw new IllegalStateException(e);
+        }
+        if (bytesRead == -1) {
+            throw new LastErrorException((int) ERRNO.get(captureState, 0L));
+        }
+        return (int) bytesRead;
+    }
+
+    /**
+     * Writes the readable bytes of {@code buf} to {@code fd}.
+     *
+     * @param fd       file descriptor
+     * @param buf      source
+     * @param blocking {@code true} if the write may block
+     * @return the number of written bytes
+     * @throws LastErrorException if the write failed
+     */
+    @SuppressWarnings("java:S1181")
+    static int write(final int fd, final ByteBuf buf, final boolean blocking) {
+        final int length = buf.readableBytes();
+        final MemorySegment segment = segment(buf, buf.readerIndex(), length);
+        if (blocking && !segment.isNative()) {
+            // heap memory can only be passed to critical downcalls
+            final ByteBuffer byteBuffer = buf.nioBuffer();
+            return LibC.write(fd, byteBuffer, new NativeLong(byteBuffer.remaining()));
+        }
+
+        final MemorySegment captureState = CAPTURE_STATE.get();
+        final long bytesWritten;
+        try {
+            if (blocking) {
+                bytesWritten = (long) WRITE.invokeExact(captureState, fd, segment, (long) length);
+            }
+            else {
+                bytesWritten = (long) WRITE_CRITICAL.invokeExact(captureState, fd, segment, (long) length);
+            }
+        }
+        catch (final Throwable e) {
+            throw new IllegalStateException(e);
+        }
+        if (bytesWritten == -1) {
+            throw new LastErrorException((int) ERRNO.get(captureState, 0L));
+        }
+        return (int) bytesWritten;
+    }
+
+    /**
+     * Returns a {@link MemorySegment} for {@code length} bytes of {@code buf} starting at {@code
+     * index}.
+     */
+    private static MemorySegment segment(final ByteBuf buf, final int index, final int length) {
+        if (buf.hasMemoryAddress()) {
+            return MemorySegment.ofAddress(buf.memoryAddress() + index).reinterpret(length);
+        }
+        else if (buf.hasArray()) {
+            return MemorySegment.ofArray(buf.array()).asSlice(buf.arrayOffset() + (long) index, length);
+        }
+        else {
+            // e.g., composite buffers
+            return MemorySegment.ofBuffer(buf.nioBuffer(index, length));
+        }
+    }
+}
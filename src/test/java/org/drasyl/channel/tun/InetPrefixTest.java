@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2021-2022 Heiko Bornholdt and Kevin Röbert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.drasyl.channel.tun;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class InetPrefixTest {
+    @Test
+    void shouldParsePrefix() throws UnknownHostException {
+        assertEquals(new InetPrefix(InetAddress.getByName("10.10.10.10"), 24), InetPrefix.parse("10.10.10.10/24"));
+        assertEquals(new InetPrefix(InetAddress.getByName("fd00::1"), 64), InetPrefix.parse("fd00::1/64"));
+    }
+
+    @Test
+    void shouldDefaultToHostPrefix() throws UnknownHostException {
+        assertEquals(new InetPrefix(InetAddress.getByName("10.10.10.10"), 32), InetPrefix.parse("10.10.10.10"));
+        assertEquals(new InetPrefix(InetAddress.getByName("fd00::1"), 128), InetPrefix.parse("fd00::1"));
+    }
+
+    @Test
+    void shouldRejectInvalidPrefix() {
+        assertThrows(IllegalArgumentException.class, () -> InetPrefix.parse("10.10.10.10/33"));
+        assertThrows(IllegalArgumentException.class, () -> InetPrefix.parse("fd00::1/129"));
+        assertThrows(IllegalArgumentException.class, () -> InetPrefix.parse("10.10.10.10/"));
+        assertThrows(IllegalArgumentException.class, () -> InetPrefix.parse("10.10.10.10/-1"));
+    }
+
+    @Test
+    void shouldRejectHostName() {
+        assertThrows(IllegalArgumentException.class, () -> InetPrefix.parse("localhost"));
+        assertThrows(IllegalArgumentException.class, () -> InetPrefix.parse("example.com/24"));
+        assertThrows(IllegalArgumentException.class, () -> InetPrefix.parse(""));
+    }
+}
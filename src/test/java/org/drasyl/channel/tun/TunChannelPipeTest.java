@@ -0,0 +1,283 @@
+/*
+ * Copyright (c) 2021-2022 Heiko Bornholdt and Kevin Röbert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.drasyl.channel.tun;
+
+import com.sun.jna.Platform;
+import io.netty.buffer.AbstractByteBufAllocator;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledHeapByteBuf;
+import io.netty.buffer.UnpooledUnsafeDirectByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.unix.FileDescriptor;
+import org.drasyl.channel.tun.jna.linux.LinuxTunDevice;
+import org.drasyl.channel.tun.jna.linux.LinuxTunDeviceOptions;
+import org.drasyl.channel.tun.jna.linux.PipeTunDevice;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.drasyl.channel.tun.TunChannelOption.TUN_EPOLL;
+import static org.drasyl.channel.tun.TunChannelOption.TUN_INBOUND_OVERFLOW;
+import static org.drasyl.channel.tun.TunChannelOption.TUN_INBOUND_PACKETS;
+import static org.drasyl.channel.tun.TunOverflowPolicy.DROP_HEAD;
+import static org.drasyl.channel.tun.TunOverflowPolicy.DROP_TAIL;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Backs the channel with a pipe instead of a tun device, so that a full queue and packets arriving
+ * while the event loop is busy can be provoked reliably. Packets are exactly {@link #MTU} bytes
+ * long, so that every read from the pipe returns a single packet.
+ */
+class TunChannelPipeTest {
+    private static final int MTU = 1000;
+    private static final long TIMEOUT_NANOS = SECONDS.toNanos(5);
+    private EventLoopGroup group;
+    private FileDescriptor[] pipe;
+    private TunChannel channel;
+    // end of the pipe not used by the device
+    private FileDescriptor peer;
+    // end of the pipe closed by the device
+    private FileDescriptor deviceOwned;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        assumeTrue(Platform.isLinux() && PipeTunDevice.isAvailable());
+        group = new DefaultEventLoopGroup(1);
+        pipe = FileDescriptor.pipe();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (channel != null) {
+            channel.close().awaitUninterruptibly();
+        }
+        if (group != null) {
+            group.shutdownGracefully(0, 5, SECONDS).syncUninterruptibly();
+        }
+        if (pipe != null) {
+            for (final FileDescriptor fd : pipe) {
+                if (fd != deviceOwned) {
+                    fd.close();
+                }
+            }
+        }
+    }
+
+    @Test
+    void writabilityShouldFollowWaterMarksWhileQueueIsFull() throws Exception {
+        newChannel(pipe[1]);
+        channel.config().setOption(TUN_EPOLL, true);
+        channel.config().setWriteBufferWaterMark(new WriteBufferWaterMark(4 * MTU, 8 * MTU));
+        channel.bind(new TunAddress()).sync();
+
+        // the pipe is not read, so packets remain in the outbound buffer once it is full
+        final int written = channel.eventLoop().submit(() -> {
+            int i = 0;
+            while (channel.isWritable() && i < 1_000) {
+                channel.writeAndFlush(packet(i++));
+            }
+            return i;
+        }).get();
+        assertFalse(channel.isWritable());
+        assertTrue(written < 1_000);
+
+        // reading the pipe makes the queue writable again, all packets are written eventually
+        final ByteBuffer buf = ByteBuffer.allocateDirect(MTU);
+        long read = 0;
+        final long deadline = System.nanoTime() + TIMEOUT_NANOS;
+        while (read < (long) written * MTU && System.nanoTime() < deadline) {
+            buf.clear();
+            final int bytes = peer.read(buf, 0, MTU);
+            if (bytes > 0) {
+                read += bytes;
+            }
+            else {
+                Thread.sleep(1);
+            }
+        }
+        assertEquals((long) written * MTU, read);
+        assertTrue(channel.isWritable());
+    }
+
+    @Test
+    void dropTailShouldDropNewestPacketsWhileEventLoopIsBusy() throws Exception {
+        assertEquals(List.of(0, 1, 2, 3), readWhileEventLoopIsBusy(DROP_TAIL));
+        assertEquals(6, channel.inboundDrops());
+    }
+
+    @Test
+    void dropHeadShouldDropOldestPacketsWhileEventLoopIsBusy() throws Exception {
+        assertEquals(List.of(6, 7, 8, 9), readWhileEventLoopIsBusy(DROP_HEAD));
+        assertEquals(6, channel.inboundDrops());
+    }
+
+    /**
+     * Passes ten packets to a reader thread allowed to queue four of them while the event loop is
+     * blocked, and returns the sequence numbers of the packets the pipeline receives afterwards.
+     */
+    private List<Integer> readWhileEventLoopIsBusy(final TunOverflowPolicy overflow) throws Exception {
+        newChannel(pipe[0]);
+        channel.config().setOption(TUN_INBOUND_PACKETS, 4);
+        channel.config().setOption(TUN_INBOUND_OVERFLOW, overflow);
+        final BlockingQueue<Integer> received = new LinkedBlockingQueue<>();
+        channel.pipeline().addLast(new SimpleChannelInboundHandler<TunPacket>() {
+            @Override
+            protected void channelRead0(final ChannelHandlerContext ctx, final TunPacket msg) {
+                received.add(msg.content().getInt(4));
+            }
+        });
+        channel.bind(new TunAddress()).sync();
+
+        final CountDownLatch busy = new CountDownLatch(1);
+        channel.eventLoop().submit(() -> {
+            busy.await();
+            return null;
+        });
+        try {
+            for (int i = 0; i < 10; i++) {
+                final TunPacket packet = packet(i);
+                try {
+                    assertEquals(MTU, peer.write(packet.content().nioBuffer(), 0, MTU));
+                }
+                finally {
+                    packet.release();
+                }
+            }
+            final long deadline = System.nanoTime() + TIMEOUT_NANOS;
+            while (channel.inboundDrops() < 6 && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+        }
+        finally {
+            busy.countDown();
+        }
+
+        final List<Integer> seqs = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            final Integer seq = received.poll(5, SECONDS);
+            if (seq == null) {
+                break;
+            }
+            seqs.add(seq);
+        }
+        // nothing else has been queued
+        channel.eventLoop().submit(() -> { }).sync();
+        assertTrue(received.isEmpty());
+        return seqs;
+    }
+
+    @Test
+    void packetsShouldBeReleasedIfEventLoopHasBeenShutDown() throws Exception {
+        final List<ByteBuf> allocated = new CopyOnWriteArrayList<>();
+        newChannel(pipe[0]);
+        channel.config().setAllocator(new AbstractByteBufAllocator(true) {
+            @Override
+            protected ByteBuf newHeapBuffer(final int initialCapacity, final int maxCapacity) {
+                final ByteBuf buf = new UnpooledHeapByteBuf(this, initialCapacity, maxCapacity);
+                allocated.add(buf);
+                return buf;
+            }
+
+            @Override
+            protected ByteBuf newDirectBuffer(final int initialCapacity, final int maxCapacity) {
+                final ByteBuf buf = new UnpooledUnsafeDirectByteBuf(this, initialCapacity, maxCapacity);
+                allocated.add(buf);
+                return buf;
+            }
+
+            @Override
+            public boolean isDirectBufferPooled() {
+                return false;
+            }
+        });
+        channel.bind(new TunAddress()).sync();
+        group.shutdownGracefully(0, 5, SECONDS).sync();
+
+        for (int i = 0; i < 3; i++) {
+            final TunPacket packet = packet(i);
+            try {
+                assertEquals(MTU, peer.write(packet.content().nioBuffer(), 0, MTU));
+            }
+            finally {
+                packet.release();
+            }
+        }
+
+        // the reader thread has allocated a buffer for each packet and one for the pending read
+        final long deadline = System.nanoTime() + TIMEOUT_NANOS;
+        while ((allocated.size() < 4 || unreleased(allocated) > 1) && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(4, allocated.size());
+        assertEquals(1, unreleased(allocated));
+
+        // the channel cannot be closed without event loop
+        channel.device().close();
+    }
+
+    private static long unreleased(final List<ByteBuf> bufs) {
+        return bufs.stream().filter(buf -> buf.refCnt() != 0).count();
+    }
+
+    /**
+     * Registers a channel whose device will use the given end of the pipe. The other end is left
+     * to the test and non-blocking.
+     */
+    private void newChannel(final FileDescriptor deviceEnd) throws Exception {
+        peer = deviceEnd == pipe[0] ? pipe[1] : pipe[0];
+        PipeTunDevice.setNonBlocking(peer, true);
+        channel = new TunChannel() {
+            @Override
+            LinuxTunDevice openLinuxDevice(final String name,
+                                           final LinuxTunDeviceOptions options) {
+                deviceOwned = deviceEnd;
+                return PipeTunDevice.wrap(deviceEnd, MTU, options);
+            }
+        };
+        group.register(channel).sync();
+    }
+
+    /**
+     * Returns an IPv4 packet of {@link #MTU} bytes carrying the given sequence number.
+     */
+    private static TunPacket packet(final int seq) {
+        return new Tun4Packet(Unpooled.directBuffer(MTU).writeByte(0x45).writeZero(3).writeInt(seq).writeZero(MTU - 8));
+    }
+}
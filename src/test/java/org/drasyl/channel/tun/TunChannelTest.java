@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2021-2022 Heiko Bornholdt and Kevin Röbert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.drasyl.channel.tun;
+
+import com.sun.jna.Platform;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoopGroup;
+import org.drasyl.channel.tun.jna.linux.CpuAffinity;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.drasyl.channel.tun.TunChannelOption.TUN_EPOLL;
+import static org.drasyl.channel.tun.TunChannelOption.TUN_PROVISIONING_EXECUTOR;
+import static org.drasyl.channel.tun.TunChannelOption.TUN_READER_CPUS;
+import static org.drasyl.channel.tun.TunChannelOption.TUN_READER_EXECUTOR;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assumptions.abort;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Tests that open a tun device require permission to create tun devices and are skipped otherwise.
+ */
+class TunChannelTest {
+    private EventLoopGroup group;
+    private TunChannel channel;
+
+    @BeforeEach
+    void setUp() {
+        group = new DefaultEventLoopGroup(1);
+        channel = new TunChannel();
+        group.register(channel).syncUninterruptibly();
+    }
+
+    @AfterEach
+    void tearDown() {
+        channel.close().syncUninterruptibly();
+        group.shutdownGracefully(0, 5, SECONDS).syncUninterruptibly();
+    }
+
+    @Test
+    void bindShouldFailIfReaderOptionsCannotBeCombined() {
+        final Executor executor = Runnable::run;
+        channel.config().setOption(TUN_READER_EXECUTOR, executor);
+        channel.config().setOption(TUN_READER_CPUS, List.of(0));
+
+        final ChannelFuture future = channel.bind(new TunAddress("tuntest0")).awaitUninterruptibly();
+
+        assertInstanceOf(IllegalArgumentException.class, future.cause());
+        assertFalse(channel.isActive());
+        assertNull(channel.device());
+    }
+
+    @Test
+    void bindShouldCloseDeviceIfReadersCannotBeStarted() throws IOException {
+        assumeTrue(Platform.isLinux());
+        final Executor executor = command -> {
+            throw new RejectedExecutionException();
+        };
+        channel.config().setOption(TUN_EPOLL, true);
+        channel.config().setOption(TUN_READER_EXECUTOR, executor);
+
+        final ChannelFuture future = channel.bind(new TunAddress("tuntest0")).awaitUninterruptibly();
+
+        if (future.cause() instanceof IOException) {
+            abort("Tun device could not be created: " + future.cause().getMessage());
+        }
+        assertInstanceOf(RejectedExecutionException.class, future.cause());
+        assertFalse(channel.isActive());
+        assertNull(channel.device());
+        assertFalse(exists("tuntest0"));
+    }
+
+    @Test
+    void bindShouldNotProvisionDeviceIfReaderOptionsCannotBeCombined() {
+        final AtomicBoolean provisioned = new AtomicBoolean();
+        channel.config().setOption(TUN_PROVISIONING_EXECUTOR, command -> provisioned.set(true));
+        channel.config().setOption(TUN_READER_EXECUTOR, Runnable::run);
+        channel.config().setOption(TUN_READER_CPUS, List.of(0));
+
+        final ChannelFuture future = channel.bind(new TunAddress("tuntest0")).awaitUninterruptibly();
+
+        assertInstanceOf(IllegalArgumentException.class, future.cause());
+        assertFalse(provisioned.get());
+        assertFalse(channel.isActive());
+    }
+
+    @Test
+    void bindShouldCloseProvisionedDeviceIfReadersCannotBeStarted() throws IOException {
+        assumeTrue(Platform.isLinux());
+        final ExecutorService provisioningExecutor = Executors.newSingleThreadExecutor();
+        try {
+            channel.config().setOption(TUN_PROVISIONING_EXECUTOR, provisioningExecutor);
+            channel.config().setOption(TUN_EPOLL, true);
+            channel.config().setOption(TUN_READER_EXECUTOR, command -> {
+                throw new RejectedExecutionException();
+            });
+
+            final ChannelFuture future = channel.bind(new TunAddress("tuntest0")).awaitUninterruptibly();
+
+            if (future.cause() instanceof IOException) {
+                abort("Tun device could not be created: " + future.cause().getMessage());
+            }
+            assertInstanceOf(RejectedExecutionException.class, future.cause());
+            assertFalse(channel.isActive());
+            assertFalse(exists("tuntest0"));
+        }
+        finally {
+            provisioningExecutor.shutdown();
+        }
+    }
+
+    @Test
+    void readerCpusShouldRejectCpusOutOfRange() {
+        final TunChannelConfig config = channel.config();
+        assertThrows(IllegalArgumentException.class, () -> config.setOption(TUN_READER_CPUS, List.of(-1)));
+        assumeTrue(CpuAffinity.possibleCpus() != -1);
+        assertThrows(IllegalArgumentException.class, () -> config.setOption(TUN_READER_CPUS, List.of(CpuAffinity.possibleCpus())));
+    }
+
+    /**
+     * Returns {@code true} if a network interface with the given name exists, regardless of its
+     * addresses and state.
+     */
+    private static boolean exists(final String name) {
+        return Files.exists(Path.of("/sys/class/net", name));
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2021-2022 Heiko Bornholdt and Kevin Röbert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.drasyl.channel.tun;
+
+import com.sun.jna.Platform;
+import org.drasyl.channel.tun.jna.linux.LinuxTunDeviceOptions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assumptions.abort;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Requires permission to create tun devices and is skipped otherwise.
+ */
+class TunDevicePoolTest {
+    @Test
+    void shouldRemoveCreatedDevicesIfCreatingPoolFails() throws IOException {
+        assumeTrue(Platform.isLinux());
+        open("pooltest", 1).destroy();
+
+        // 15 characters are allowed for "pooltest012345" + "9", but not for "pooltest012345" + "10"
+        assertThrows(IllegalArgumentException.class, () -> new TunDevicePool("pooltest012345", 11));
+
+        assertFalse(exists("pooltest0123450"));
+        assertFalse(exists("pooltest0123459"));
+    }
+
+    @Test
+    void acquireShouldRejectMismatchingQueues() throws IOException {
+        assumeTrue(Platform.isLinux());
+        final TunDevicePool pool = open("pooltest", 1);
+        try {
+            assertEquals(1, pool.queues());
+            assertThrows(IllegalArgumentException.class, () -> pool.acquire(null, 2));
+            assertEquals(1, pool.available());
+            assertEquals("pooltest0", pool.acquire(null, 1));
+            pool.release("pooltest0");
+        }
+        finally {
+            pool.destroy();
+        }
+    }
+
+    private static TunDevicePool open(final String namePrefix, final int size) {
+        try {
+            return new TunDevicePool(namePrefix, size, new LinuxTunDeviceOptions());
+        }
+        catch (final IOException e) {
+            return abort("Tun device could not be created: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns {@code true} if a network interface with the given name exists, regardless of its
+     * addresses and state.
+     */
+    private static boolean exists(final String name) {
+        return Files.exists(Path.of("/sys/class/net", name));
+    }
+}
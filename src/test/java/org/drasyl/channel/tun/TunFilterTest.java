@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2021-2022 Heiko Bornholdt and Kevin Röbert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.drasyl.channel.tun;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TunFilterTest {
+    @Nested
+    class Accepts {
+        @Test
+        void shouldApplyFirstMatchingRule() {
+            final TunFilter filter = TunFilter.builder()
+                    .accept().source("10.0.0.1")
+                    .drop().source("10.0.0.0/8")
+                    .drop().protocol(InetProtocol.UDP.decimal).destinationPort(53)
+                    .build();
+
+            final TunPacket fromHost = udp(10, 0, 0, 1, 53);
+            final TunPacket fromSubnet = udp(10, 1, 2, 3, 80);
+            final TunPacket dns = udp(192, 168, 0, 1, 53);
+            final TunPacket other = udp(192, 168, 0, 1, 80);
+            try {
+                assertTrue(filter.accepts(fromHost));
+                assertFalse(filter.accepts(fromSubnet));
+                assertFalse(filter.accepts(dns));
+                assertTrue(filter.accepts(other));
+            }
+            finally {
+                fromHost.release();
+                fromSubnet.release();
+                dns.release();
+                other.release();
+            }
+        }
+
+        @Test
+        void shouldApplyDefaultAction() {
+            final TunFilter filter = TunFilter.builder()
+                    .accept().version(6)
+                    .acceptByDefault(false)
+                    .build();
+
+            final TunPacket packet = udp(10, 0, 0, 1, 53);
+            try {
+                assertFalse(filter.accepts(packet));
+            }
+            finally {
+                packet.release();
+            }
+        }
+    }
+
+    @Nested
+    class Builder {
+        @Test
+        void shouldRejectConditionWithoutRule() {
+            final TunFilter.Builder builder = TunFilter.builder();
+            assertThrows(IllegalStateException.class, () -> builder.protocol(17));
+        }
+
+        @Test
+        void shouldRejectConflictingVersions() {
+            final TunFilter.Builder builder = TunFilter.builder().drop().source("10.0.0.0/8");
+            assertThrows(IllegalArgumentException.class, () -> builder.destination("ff00::/8"));
+        }
+    }
+
+    private static TunPacket udp(final int a, final int b, final int c, final int d, final int port) {
+        final ByteBuf buf = Unpooled.buffer();
+        buf.writeByte(0x45).writeByte(0).writeShort(28).writeInt(0).writeByte(64).writeByte(InetProtocol.UDP.decimal).writeShort(0);
+        buf.writeByte(a).writeByte(b).writeByte(c).writeByte(d).writeInt(0x0a000002);
+        buf.writeShort(12345).writeShort(port).writeShort(8).writeShort(0);
+        return new Tun4Packet(buf);
+    }
+}
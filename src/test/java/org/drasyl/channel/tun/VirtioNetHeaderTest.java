@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2021-2022 Heiko Bornholdt and Kevin Röbert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.drasyl.channel.tun;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.jupiter.api.Test;
+
+import static org.drasyl.channel.tun.VirtioNetHeader.VIRTIO_NET_HDR_F_NEEDS_CSUM;
+import static org.drasyl.channel.tun.VirtioNetHeader.VIRTIO_NET_HDR_GSO_ECN;
+import static org.drasyl.channel.tun.VirtioNetHeader.VIRTIO_NET_HDR_GSO_TCPV4;
+import static org.drasyl.channel.tun.VirtioNetHeader.VIRTIO_NET_HDR_GSO_UDP_L4;
+import static org.drasyl.channel.tun.VirtioNetHeader.VIRTIO_NET_HDR_LENGTH;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VirtioNetHeaderTest {
+    @Test
+    void testEncodeAndDecode() {
+        final VirtioNetHeader header = new VirtioNetHeader(VIRTIO_NET_HDR_F_NEEDS_CSUM, VIRTIO_NET_HDR_GSO_TCPV4, 52, 1448, 20, 16);
+        final ByteBuf buf = header.encode(Unpooled.buffer());
+        try {
+            assertEquals(VIRTIO_NET_HDR_LENGTH, buf.readableBytes());
+            assertEquals(header, VirtioNetHeader.decode(buf, 0));
+        }
+        finally {
+            buf.release();
+        }
+    }
+
+    @Test
+    void testIsGso() {
+        assertTrue(new VirtioNetHeader(0, VIRTIO_NET_HDR_GSO_TCPV4, 52, 1448, 20, 16).isGso());
+        assertFalse(new VirtioNetHeader(0, VIRTIO_NET_HDR_GSO_ECN, 0, 0, 0, 0).isGso());
+        assertFalse(VirtioNetHeader.NONE.isGso());
+    }
+
+    @Test
+    void testSegmentsIgnoresHdrLenHint() {
+        // ipv4 header + tcp header with 12 bytes of options + 3000 bytes of payload
+        final ByteBuf tcp = Unpooled.buffer();
+        tcp.writeByte(0x45).writeZero(19);
+        tcp.writeZero(12).writeByte(8 << 4).writeZero(19);
+        tcp.writeZero(3000);
+        final TunPacket tcpPacket = new Tun4Packet(tcp, new VirtioNetHeader(VIRTIO_NET_HDR_F_NEEDS_CSUM, VIRTIO_NET_HDR_GSO_TCPV4, 20, 1000, 20, 16));
+        try {
+            assertEquals(3, tcpPacket.virtioNetHeader().segments(tcpPacket));
+        }
+        finally {
+            tcpPacket.release();
+        }
+
+        // ipv6 header + udp header + 3000 bytes of payload
+        final ByteBuf udp = Unpooled.buffer();
+        udp.writeByte(0x60).writeZero(39);
+        udp.writeZero(8);
+        udp.writeZero(3000);
+        final TunPacket udpPacket = new Tun6Packet(udp, new VirtioNetHeader(VIRTIO_NET_HDR_F_NEEDS_CSUM, VIRTIO_NET_HDR_GSO_UDP_L4, 0, 1000, 40, 6));
+        try {
+            assertEquals(3, udpPacket.virtioNetHeader().segments(udpPacket));
+        }
+        finally {
+            udpPacket.release();
+        }
+    }
+
+    @Test
+    void testNeedsCsum() {
+        assertTrue(new VirtioNetHeader(VIRTIO_NET_HDR_F_NEEDS_CSUM, 0, 0, 0, 20, 16).needsCsum());
+        assertFalse(VirtioNetHeader.NONE.needsCsum());
+    }
+}
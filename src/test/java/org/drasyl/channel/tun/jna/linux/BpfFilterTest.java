@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2021-2022 Heiko Bornholdt and Kevin Röbert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.drasyl.channel.tun.jna.linux;
+
+import org.drasyl.channel.tun.TunFilter;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BpfFilterTest {
+    private static final int JMP_JNE_K = 0x55;
+    private static final int JMP_EXIT = 0x95;
+
+    @Test
+    void shouldJumpToNextRuleOnFailedCheck() {
+        final TunFilter filter = TunFilter.builder()
+                .drop().destination("10.0.0.0/8")
+                .drop().protocol(17)
+                .build();
+
+        final ByteBuffer insns = ByteBuffer.wrap(BpfFilter.compile(filter)).order(ByteOrder.nativeOrder());
+        // mov, rule 1 (version: 3, prefix: 3, return: 2), rule 2 twice (version: 3, protocol: 2, return: 2), default: 2
+        assertEquals(1 + 8 + 14 + 2, insns.limit() / 8);
+
+        // every failed check of the first rule continues with the second rule
+        for (int i = 1; i < 9; i++) {
+            if ((insns.get(i * 8) & 0xff) == JMP_JNE_K) {
+                assertEquals(9, i + 1 + insns.getShort(i * 8 + 2));
+            }
+        }
+        assertEquals(JMP_EXIT, insns.get(insns.limit() - 8) & 0xff);
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2021-2022 Heiko Bornholdt and Kevin Röbert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.drasyl.channel.tun.jna.linux;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import org.drasyl.channel.tun.VirtioNetHeader;
+import org.junit.jupiter.api.Test;
+
+import static org.drasyl.channel.tun.jna.linux.ChecksumOffload.TCP_CHECKSUM_OFFSET;
+import static org.drasyl.channel.tun.jna.linux.ChecksumOffload.UDP_CHECKSUM_OFFSET;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChecksumOffloadTest {
+    private static final int TCP = 6;
+    private static final int UDP = 17;
+    private static final int ICMP = 1;
+
+    @Test
+    void shouldPrepareInet4Tcp() {
+        assertPrepared(inet4(TCP, 0, 20 + 13), 20, TCP_CHECKSUM_OFFSET);
+    }
+
+    @Test
+    void shouldPrepareInet4Udp() {
+        assertPrepared(inet4(UDP, 0, 8 + 13), 20, UDP_CHECKSUM_OFFSET);
+    }
+
+    @Test
+    void shouldPrepareInet6Tcp() {
+        assertPrepared(inet6(TCP, 20 + 13), 40, TCP_CHECKSUM_OFFSET);
+    }
+
+    @Test
+    void shouldPrepareInet6Udp() {
+        assertPrepared(inet6(UDP, 8 + 13), 40, UDP_CHECKSUM_OFFSET);
+    }
+
+    @Test
+    void shouldIgnoreFragments() {
+        // more fragments flag
+        assertUntouched(inet4(UDP, 0x2000, 8 + 13));
+        // fragment offset
+        assertUntouched(inet4(UDP, 0x0010, 8 + 13));
+    }
+
+    @Test
+    void shouldIgnoreOtherProtocols() {
+        assertUntouched(inet4(ICMP, 0, 8 + 13));
+        assertUntouched(inet6(ICMP, 8 + 13));
+    }
+
+    @Test
+    void shouldNotModifyPacketWhenOnlyComputingHeader() {
+        final ByteBuf packet = inet4(TCP, 0, 20 + 13);
+        try {
+            final ByteBuf copy = packet.copy();
+            final VirtioNetHeader header = ChecksumOffload.header(packet);
+            ChecksumOffload.pseudoHeaderSum(packet);
+
+            assertTrue(header.needsCsum());
+            assertTrue(ByteBufUtil.equals(copy, packet));
+            copy.release();
+        }
+        finally {
+            packet.release();
+        }
+    }
+
+    /**
+     * Completes the checksum like the kernel does and compares it with the regular checksum.
+     */
+    private static void assertPrepared(final ByteBuf packet,
+                                       final int csumStart,
+                                       final int csumOffset) {
+        try {
+            final int expected = checksum(packet, csumStart);
+            final VirtioNetHeader header = ChecksumOffload.prepare(packet);
+
+            assertTrue(header.needsCsum());
+            assertEquals(csumStart, header.csumStart());
+            assertEquals(csumOffset, header.csumOffset());
+            final int completed = ~ChecksumOffload.fold(sum(packet, csumStart, packet.readableBytes())) & 0xffff;
+            assertEquals(expected, completed);
+        }
+        finally {
+            packet.release();
+        }
+    }
+
+    private static void assertUntouched(final ByteBuf packet) {
+        try {
+            final ByteBuf copy = packet.copy();
+            assertSame(VirtioNetHeader.NONE, ChecksumOffload.prepare(packet));
+            assertTrue(ByteBufUtil.equals(copy, packet));
+            copy.release();
+        }
+        finally {
+            packet.release();
+        }
+    }
+
+    /**
+     * Returns the regular checksum including the pseudo header.
+     */
+    private static int checksum(final ByteBuf packet, final int l4Offset) {
+        final boolean inet4 = packet.getUnsignedByte(0) >> 4 == 4;
+        long sum = inet4 ? sum(packet, 12, 20) : sum(packet, 8, 40);
+        sum += inet4 ? packet.getUnsignedByte(9) : packet.getUnsignedByte(6);
+        sum += packet.readableBytes() - l4Offset;
+        sum += sum(packet, l4Offset, packet.readableBytes());
+        return ~ChecksumOffload.fold(sum) & 0xffff;
+    }
+
+    private static long sum(final ByteBuf packet, final int from, final int to) {
+        long sum = 0;
+        for (int i = from; i < to; i += 2) {
+            sum += i + 1 < to ? packet.getUnsignedShort(i) : packet.getUnsignedByte(i) << 8;
+        }
+        return sum;
+    }
+
+    private static ByteBuf inet4(final int protocol, final int fragment, final int l4Length) {
+        final ByteBuf buf = Unpooled.buffer();
+        buf.writeByte(0x45).writeByte(0).writeShort(20 + l4Length);
+        buf.writeShort(0).writeShort(fragment);
+        buf.writeByte(64).writeByte(protocol).writeShort(0);
+        buf.writeBytes(new byte[]{ 10, 0, 0, 1 }).writeBytes(new byte[]{ (byte) 192, (byte) 168, 0, 2 });
+        writeL4(buf, l4Length);
+        return buf;
+    }
+
+    private static ByteBuf inet6(final int protocol, final int l4Length) {
+        final ByteBuf buf = Unpooled.buffer();
+        buf.writeInt(0x60000000).writeShort(l4Length).writeByte(protocol).writeByte(64);
+        for (int i = 0; i < 32; i++) {
+            buf.writeByte(0xf0 + i);
+        }
+        writeL4(buf, l4Length);
+        return buf;
+    }
+
+    private static void writeL4(final ByteBuf buf, final int l4Length) {
+        // checksum fields are zero
+        buf.writeShort(12345).writeShort(80);
+        for (int i = 4; i < l4Length; i++) {
+            buf.writeByte(i == 6 || i == 7 || i == 16 || i == 17 ? 0 : i * 31);
+        }
+    }
+}
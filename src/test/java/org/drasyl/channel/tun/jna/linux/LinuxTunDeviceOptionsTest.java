@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2021-2022 Heiko Bornholdt and Kevin Röbert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.drasyl.channel.tun.jna.linux;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import static org.drasyl.channel.tun.jna.linux.IfTun.IFF_MULTI_QUEUE;
+import static org.drasyl.channel.tun.jna.linux.IfTun.IFF_NAPI;
+import static org.drasyl.channel.tun.jna.linux.IfTun.IFF_NO_PI;
+import static org.drasyl.channel.tun.jna.linux.IfTun.IFF_TUN;
+import static org.drasyl.channel.tun.jna.linux.IfTun.IFF_VNET_HDR;
+import static org.drasyl.channel.tun.jna.linux.IfTun.TUN_F_CSUM;
+import static org.drasyl.channel.tun.jna.linux.IfTun.TUN_F_TSO4;
+import static org.drasyl.channel.tun.jna.linux.IfTun.TUN_F_TSO6;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LinuxTunDeviceOptionsTest {
+    private static final int ALL_FLAGS = IFF_TUN | IFF_NO_PI | IFF_MULTI_QUEUE | IFF_VNET_HDR | IFF_NAPI;
+
+    @Nested
+    class WithFeatures {
+        @Test
+        void shouldEnableSupportedFeaturesNotSetExplicitly() {
+            final LinuxTunDeviceOptions options = new LinuxTunDeviceOptions().withFeatures(ALL_FLAGS);
+
+            assertEquals(Runtime.getRuntime().availableProcessors(), options.queues());
+            assertTrue(options.vnetHdr());
+            assertTrue(options.csumOffload());
+            assertTrue(options.tcpCoalesce());
+            assertTrue(options.napi());
+        }
+
+        @Test
+        void shouldNotEnableReceiveOffloads() {
+            final LinuxTunDeviceOptions options = new LinuxTunDeviceOptions().withFeatures(ALL_FLAGS);
+
+            assertEquals(0, options.offloads());
+        }
+
+        @Test
+        void shouldKeepExplicitlySetOptions() {
+            final LinuxTunDeviceOptions options = new LinuxTunDeviceOptions()
+                    .queues(1)
+                    .csumOffload(false)
+                    .napi(false)
+                    .offloads(TUN_F_CSUM | TUN_F_TSO4 | TUN_F_TSO6)
+                    .withFeatures(ALL_FLAGS);
+
+            assertEquals(1, options.queues());
+            assertTrue(options.vnetHdr());
+            assertFalse(options.csumOffload());
+            assertTrue(options.tcpCoalesce());
+            assertFalse(options.napi());
+            assertEquals(TUN_F_CSUM | TUN_F_TSO4 | TUN_F_TSO6, options.offloads());
+        }
+
+        @Test
+        void shouldNotEnableFeaturesRequiringVnetHdrIfVnetHdrIsDisabled() {
+            final LinuxTunDeviceOptions options = new LinuxTunDeviceOptions()
+                    .vnetHdr(false)
+                    .withFeatures(ALL_FLAGS);
+
+            assertFalse(options.vnetHdr());
+            assertFalse(options.csumOffload());
+            assertFalse(options.tcpCoalesce());
+        }
+
+        @Test
+        void shouldNotEnableUnsupportedFeatures() {
+            final LinuxTunDeviceOptions options = new LinuxTunDeviceOptions().withFeatures(IFF_TUN | IFF_NO_PI);
+
+            assertEquals(1, options.queues());
+            assertFalse(options.vnetHdr());
+            assertFalse(options.csumOffload());
+            assertFalse(options.tcpCoalesce());
+            assertFalse(options.napi());
+        }
+
+        @Test
+        void shouldKeepOtherOptions() {
+            final LinuxTunDeviceOptions options = new LinuxTunDeviceOptions()
+                    .mtu(1400)
+                    .nonBlocking(true)
+                    .sndbuf(65536)
+                    .persist(true)
+                    .owner(1000)
+                    .group(1001)
+                    .withFeatures(ALL_FLAGS);
+
+            assertEquals(1400, options.mtu());
+            assertTrue(options.nonBlocking());
+            assertEquals(65536, options.sndbuf());
+            assertTrue(options.persist());
+            assertEquals(1000, options.owner());
+            assertEquals(1001, options.group());
+        }
+    }
+
+    @Nested
+    class WithFlags {
+        @Test
+        void shouldTakeFlagsAndQueuesFromDevice() {
+            final LinuxTunDeviceOptions options = new LinuxTunDeviceOptions()
+                    .queues(8)
+                    .tcpCoalesce(true)
+                    .withFlags(ALL_FLAGS, 2);
+
+            assertEquals(2, options.queues());
+            assertTrue(options.vnetHdr());
+            assertTrue(options.napi());
+            assertTrue(options.tcpCoalesce());
+        }
+
+        @Test
+        void shouldDisableFeaturesRequiringVnetHdrIfDeviceHasNone() {
+            final LinuxTunDeviceOptions options = new LinuxTunDeviceOptions()
+                    .vnetHdr(true)
+                    .napi(true)
+                    .offloads(TUN_F_CSUM)
+                    .csumOffload(true)
+                    .tcpCoalesce(true)
+                    .withFlags(IFF_TUN | IFF_NO_PI, 1);
+
+            assertEquals(1, options.queues());
+            assertFalse(options.vnetHdr());
+            assertFalse(options.napi());
+            assertEquals(0, options.offloads());
+            assertFalse(options.csumOffload());
+            assertFalse(options.tcpCoalesce());
+        }
+
+        @Test
+        void shouldOverrideAutoFeatures() {
+            final LinuxTunDeviceOptions options = new LinuxTunDeviceOptions()
+                    .withFeatures(ALL_FLAGS)
+                    .withFlags(IFF_TUN | IFF_NO_PI | IFF_MULTI_QUEUE, 1);
+
+            assertEquals(1, options.queues());
+            assertFalse(options.vnetHdr());
+            assertFalse(options.csumOffload());
+            assertFalse(options.tcpCoalesce());
+            assertFalse(options.napi());
+        }
+    }
+}
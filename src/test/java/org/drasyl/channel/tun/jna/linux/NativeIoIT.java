@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2021-2022 Heiko Bornholdt and Kevin Röbert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.drasyl.channel.tun.jna.linux;
+
+import com.sun.jna.LastErrorException;
+import com.sun.jna.Platform;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.unix.FileDescriptor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.drasyl.channel.tun.jna.linux.Errno.EAGAIN;
+import static org.drasyl.channel.tun.jna.linux.Fcntl.F_GETFL;
+import static org.drasyl.channel.tun.jna.linux.Fcntl.F_SETFL;
+import static org.drasyl.channel.tun.jna.linux.Fcntl.O_NONBLOCK;
+import static org.drasyl.channel.tun.jna.linux.Fcntl.fcntl;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Smoke test of the Foreign Function &amp; Memory implementation in {@code src/main/java22}, which
+ * is only selected from the multi-release jar. Run by the failsafe plugin of the {@code java22}
+ * profile.
+ */
+class NativeIoIT {
+    private static final byte[] DATA = "hello tun".getBytes(UTF_8);
+    private FileDescriptor[] pipe;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        // pipe is created by netty's native transport
+        assumeTrue(Platform.isLinux() && Runtime.version().feature() >= 22 && NettyNativeIo.isAvailable());
+        pipe = FileDescriptor.pipe();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (pipe != null) {
+            pipe[0].close();
+            pipe[1].close();
+        }
+    }
+
+    @Test
+    void shouldUseForeignFunctionAndMemoryApi() {
+        assertEquals("ffm", NativeIo.backend());
+    }
+
+    @Test
+    void shouldWriteAndReadDirectBuffers() {
+        assertRoundTrip(Unpooled.directBuffer(), Unpooled.directBuffer(DATA.length), true);
+        assertRoundTrip(Unpooled.directBuffer(), Unpooled.directBuffer(DATA.length), false);
+    }
+
+    @Test
+    void shouldWriteAndReadHeapBuffers() {
+        assertRoundTrip(Unpooled.buffer(), Unpooled.buffer(DATA.length), true);
+        assertRoundTrip(Unpooled.buffer(), Unpooled.buffer(DATA.length), false);
+    }
+
+    @Test
+    void shouldWriteCompositeBuffer() {
+        final ByteBuf src = Unpooled.compositeBuffer()
+                .addComponent(true, Unpooled.wrappedBuffer(DATA, 0, 5))
+                .addComponent(true, Unpooled.directBuffer().writeBytes(DATA, 5, DATA.length - 5));
+        assertRoundTrip(src, Unpooled.buffer(DATA.length), false);
+    }
+
+    @Test
+    void shouldReportErrno() {
+        final int readFd = pipe[0].intValue();
+        fcntl(readFd, F_SETFL, fcntl(readFd, F_GETFL, 0) | O_NONBLOCK);
+        final ByteBuf dst = Unpooled.directBuffer(DATA.length);
+        try {
+            final LastErrorException e = assertThrows(LastErrorException.class, () -> NativeIo.read(readFd, dst, 0, DATA.length, false));
+            assertEquals(EAGAIN, e.getErrorCode());
+        }
+        finally {
+            dst.release();
+        }
+    }
+
+    private void assertRoundTrip(final ByteBuf src, final ByteBuf dst, final boolean blocking) {
+        try {
+            if (!src.isReadable()) {
+                src.writeBytes(DATA);
+            }
+            assertEquals(DATA.length, NativeIo.write(pipe[1].intValue(), src, blocking));
+            assertEquals(DATA.length, NativeIo.read(pipe[0].intValue(), dst, 0, DATA.length, blocking));
+            dst.writerIndex(DATA.length);
+            assertEquals(Unpooled.wrappedBuffer(DATA), dst);
+        }
+        finally {
+            src.release();
+            dst.release();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2021-2022 Heiko Bornholdt and Kevin Röbert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.drasyl.channel.tun.jna.linux;
+
+import com.sun.jna.LastErrorException;
+import com.sun.jna.Platform;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.unix.FileDescriptor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.drasyl.channel.tun.jna.linux.Errno.EAGAIN;
+import static org.drasyl.channel.tun.jna.linux.Errno.EBADFD;
+import static org.drasyl.channel.tun.jna.linux.Fcntl.F_GETFL;
+import static org.drasyl.channel.tun.jna.linux.Fcntl.F_SETFL;
+import static org.drasyl.channel.tun.jna.linux.Fcntl.O_NONBLOCK;
+import static org.drasyl.channel.tun.jna.linux.Fcntl.fcntl;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * A full non-blocking pipe stands in for a tun queue whose send buffer is exhausted, which cannot
+ * be provoked reliably as locally delivered packets are consumed within the write.
+ */
+class NativeIoTest {
+    private FileDescriptor[] pipe;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        assumeTrue(Platform.isLinux() && NettyNativeIo.isAvailable());
+        pipe = FileDescriptor.pipe();
+        final int writeFd = pipe[1].intValue();
+        fcntl(writeFd, F_SETFL, fcntl(writeFd, F_GETFL, 0) | O_NONBLOCK);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (pipe != null) {
+            pipe[0].close();
+            pipe[1].close();
+        }
+    }
+
+    @Test
+    void nettyWriteShouldReportEagainIfNotWritable() {
+        final ByteBuf buf = Unpooled.directBuffer(4096).writeZero(4096);
+        try {
+            assertEagain(() -> NettyNativeIo.write(pipe[1].intValue(), buf.duplicate()));
+        }
+        finally {
+            buf.release();
+        }
+    }
+
+    @Test
+    void nettyWritevShouldReportEagainIfNotWritable() {
+        final ByteBuf buf = Unpooled.wrappedBuffer(Unpooled.directBuffer(16).writeZero(16), Unpooled.directBuffer(4080).writeZero(4080));
+        try {
+            assertEagain(() -> NettyNativeIo.write(pipe[1].intValue(), buf.duplicate()));
+        }
+        finally {
+            buf.release();
+        }
+    }
+
+    @Test
+    void jnaWriteShouldReportEagainIfNotWritable() {
+        final ByteBuf buf = Unpooled.buffer(4096).writeZero(4096);
+        assertEagain(() -> NativeIo.write(pipe[1].intValue(), buf.duplicate(), false));
+    }
+
+    @Test
+    void nettyReadShouldReportEbadfdAtEndOfFile() throws IOException {
+        pipe[1].close();
+        final ByteBuf buf = Unpooled.directBuffer(16);
+        try {
+            final LastErrorException e = assertThrows(LastErrorException.class, () -> NettyNativeIo.read(pipe[0].intValue(), buf, 0, 16));
+            assertEquals(EBADFD, e.getErrorCode());
+        }
+        finally {
+            buf.release();
+        }
+    }
+
+    private static void assertEagain(final Runnable write) {
+        final LastErrorException e = assertThrows(LastErrorException.class, () -> {
+            // a pipe buffers 64 KiB by default
+            for (int i = 0; i < 1024; i++) {
+                write.run();
+            }
+        });
+        assertEquals(EAGAIN, e.getErrorCode());
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2021-2022 Heiko Bornholdt and Kevin Röbert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.drasyl.channel.tun.jna.linux;
+
+import io.netty.channel.unix.FileDescriptor;
+import org.drasyl.channel.tun.TunAddress;
+
+import static org.drasyl.channel.tun.jna.linux.Fcntl.F_GETFL;
+import static org.drasyl.channel.tun.jna.linux.Fcntl.F_SETFL;
+import static org.drasyl.channel.tun.jna.linux.Fcntl.O_NONBLOCK;
+import static org.drasyl.channel.tun.jna.linux.Fcntl.fcntl;
+
+/**
+ * Creates single-queue {@link LinuxTunDevice}s backed by one end of a pipe, so that a full queue
+ * and packets arriving while the event loop is busy can be provoked reliably.
+ */
+public final class PipeTunDevice {
+    private PipeTunDevice() {
+        // util class
+    }
+
+    /**
+     * Returns {@code true} if pipes can be created, which requires Netty's native transport.
+     */
+    public static boolean isAvailable() {
+        return NettyNativeIo.isAvailable();
+    }
+
+    /**
+     * Returns a device reading from or writing to the given end of a pipe, which is closed with the
+     * device. Every read returns at most {@code mtu} bytes, so packets of exactly {@code mtu} bytes
+     * are read one at a time.
+     */
+    public static LinuxTunDevice wrap(final FileDescriptor fd,
+                                      final int mtu,
+                                      final LinuxTunDeviceOptions options) {
+        setNonBlocking(fd, options.nonBlocking());
+        return new LinuxTunDevice(new int[]{ fd.intValue() }, mtu, options, 0, new LinuxTunFeatures(0, 0), 0, new TunAddress("pipe" + fd.intValue()));
+    }
+
+    /**
+     * Puts the given end of a pipe into non-blocking or blocking mode.
+     */
+    public static void setNonBlocking(final FileDescriptor fd, final boolean nonBlocking) {
+        final int flags = fcntl(fd.intValue(), F_GETFL, 0);
+        fcntl(fd.intValue(), F_SETFL, nonBlocking ? flags | O_NONBLOCK : flags & ~O_NONBLOCK);
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2021-2022 Heiko Bornholdt and Kevin Röbert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.drasyl.channel.tun.jna.linux;
+
+import io.netty.buffer.AbstractByteBufAllocator;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import org.drasyl.channel.tun.Tun4Packet;
+import org.drasyl.channel.tun.TunPacket;
+import org.drasyl.channel.tun.VirtioNetHeader;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.drasyl.channel.tun.VirtioNetHeader.VIRTIO_NET_HDR_GSO_TCPV4;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TcpCoalescingTest {
+    private static final int ACK = 0x10;
+    private static final int PSH = 0x08;
+    private static final int SYN = 0x02;
+
+    @Test
+    void shouldCoalesceConsecutiveSegments() {
+        final List<TunPacket> msgs = new ArrayList<>();
+        msgs.add(segment(1000, 100, ACK));
+        msgs.add(segment(1100, 100, ACK));
+        msgs.add(segment(1200, 50, ACK | PSH));
+
+        assertEquals(3, TcpCoalescing.runEnd(msgs, 0));
+
+        final TunPacket packet = TcpCoalescing.coalesce(UnpooledByteBufAllocator.DEFAULT, msgs, 0, 3);
+        try {
+            final VirtioNetHeader header = packet.virtioNetHeader();
+            assertEquals(VIRTIO_NET_HDR_GSO_TCPV4, header.gsoType());
+            assertEquals(40, header.hdrLen());
+            assertEquals(100, header.gsoSize());
+            assertEquals(20, header.csumStart());
+            assertEquals(16, header.csumOffset());
+            assertTrue(header.needsCsum());
+            assertEquals(290, packet.content().readableBytes());
+            assertEquals(290, ((Tun4Packet) packet).totalLength());
+            assertEquals(ACK | PSH, packet.content().getUnsignedByte(33));
+            assertEquals(3, header.segments(packet));
+            assertTrue(msgs.stream().allMatch(msg -> msg.refCnt() == 0));
+        }
+        finally {
+            packet.release();
+        }
+    }
+
+    @Test
+    void shouldStopAtGapOrPushOrOtherFlags() {
+        final List<TunPacket> msgs = new ArrayList<>();
+        msgs.add(segment(1000, 100, ACK));
+        msgs.add(segment(1200, 100, ACK));
+        msgs.add(segment(1300, 100, ACK | PSH));
+        msgs.add(segment(1400, 100, ACK));
+        msgs.add(segment(1500, 100, SYN | ACK));
+        try {
+            assertEquals(1, TcpCoalescing.runEnd(msgs, 0));
+            assertEquals(3, TcpCoalescing.runEnd(msgs, 1));
+            assertEquals(4, TcpCoalescing.runEnd(msgs, 3));
+            assertEquals(5, TcpCoalescing.runEnd(msgs, 4));
+        }
+        finally {
+            msgs.forEach(TunPacket::release);
+        }
+    }
+
+    @Test
+    void shouldNotAppendLargerSegment() {
+        final List<TunPacket> msgs = new ArrayList<>();
+        msgs.add(segment(1000, 50, ACK));
+        msgs.add(segment(1050, 100, ACK));
+        try {
+            assertEquals(1, TcpCoalescing.runEnd(msgs, 0));
+        }
+        finally {
+            msgs.forEach(TunPacket::release);
+        }
+    }
+
+    @Test
+    void shouldReleaseSegmentsIfCoalescingFails() {
+        final List<TunPacket> msgs = new ArrayList<>();
+        msgs.add(segment(1000, 100, ACK));
+        msgs.add(segment(1100, 100, ACK | PSH));
+        final ByteBufAllocator alloc = new AbstractByteBufAllocator() {
+            @Override
+            protected ByteBuf newHeapBuffer(final int initialCapacity, final int maxCapacity) {
+                throw new IllegalStateException();
+            }
+
+            @Override
+            protected ByteBuf newDirectBuffer(final int initialCapacity, final int maxCapacity) {
+                throw new IllegalStateException();
+            }
+
+            @Override
+            public boolean isDirectBufferPooled() {
+                return false;
+            }
+        };
+
+        assertThrows(IllegalStateException.class, () -> TcpCoalescing.coalesce(alloc, msgs, 0, 2));
+        assertTrue(msgs.stream().allMatch(msg -> msg.refCnt() == 0));
+    }
+
+    private static TunPacket segment(final long seq, final int payload, final int flags) {
+        final ByteBuf buf = Unpooled.buffer();
+        // ipv4 header
+        buf.writeByte(0x45).writeByte(0).writeShort(40 + payload);
+        buf.writeShort(0).writeShort(0x4000);
+        buf.writeByte(64).writeByte(6).writeShort(0);
+        buf.writeBytes(new byte[]{ 10, 0, 0, 1 }).writeBytes(new byte[]{ 10, 0, 0, 2 });
+        // tcp header
+        buf.writeShort(12345).writeShort(80);
+        buf.writeInt((int) seq).writeInt(42);
+        buf.writeByte(5 << 4).writeByte(flags).writeShort(65535);
+        buf.writeShort(0).writeShort(0);
+        buf.writeZero(payload);
+        return new Tun4Packet(buf);
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2021-2022 Heiko Bornholdt and Kevin Röbert
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM,
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR
+ * OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.drasyl.channel.tun.jna.linux;
+
+import com.sun.jna.Platform;
+import io.netty.channel.unix.FileDescriptor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assumptions.abort;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Tests handing off a tun device require permission to create tun devices and are skipped
+ * otherwise.
+ */
+class TunHandoffTest {
+    @Test
+    void shouldHandOffDeviceWithDetachedQueue(@TempDir final Path dir) throws Exception {
+        assumeTrue(Platform.isLinux());
+        final LinuxTunDevice device = open();
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            device.detachQueue(1);
+            assertEquals(1, device.attachedQueues());
+
+            final Path path = dir.resolve("handoff.sock");
+            final Future<int[]> received = executor.submit(() -> TunHandoff.receive(path));
+            send(path, device.fd(0), device.fd(1));
+
+            final LinuxTunDevice adopted = LinuxTunDevice.adopt(device.localAddress().ifName(), received.get(10, SECONDS), new LinuxTunDeviceOptions());
+            try {
+                assertEquals(2, adopted.queues());
+                assertEquals(2, adopted.attachedQueues());
+                // fails with EINVAL if the kernel still considers the queue detached
+                assertDoesNotThrow(() -> adopted.detachQueue(1));
+            }
+            finally {
+                adopted.close();
+            }
+        }
+        finally {
+            executor.shutdownNow();
+            device.close();
+        }
+    }
+
+    @Test
+    void shouldReplaceStaleSocketFile(@TempDir final Path dir) throws Exception {
+        assumeTrue(Platform.isLinux() && NettyNativeIo.isAvailable());
+        final Path path = Files.createFile(dir.resolve("handoff.sock"));
+        final FileDescriptor[] pipe = FileDescriptor.pipe();
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final Future<int[]> received = executor.submit(() -> TunHandoff.receive(path, 10, SECONDS));
+            send(path, pipe[0].intValue());
+
+            final int[] fds = received.get(10, SECONDS);
+            assertEquals(1, fds.length);
+            new FileDescriptor(fds[0]).close();
+            assertFalse(Files.exists(path));
+        }
+        finally {
+            executor.shutdownNow();
+            pipe[0].close();
+            pipe[1].close();
+        }
+    }
+
+    @Test
+    void receiveShouldTimeOut(@TempDir final Path dir) {
+        assumeTrue(Platform.isLinux());
+        final Path path = dir.resolve("handoff.sock");
+
+        assertThrows(IOException.class, () -> TunHandoff.receive(path, 100, MILLISECONDS));
+        assertFalse(Files.exists(path));
+    }
+
+    private static LinuxTunDevice open() {
+        try {
+            return LinuxTunDevice.open(null, new LinuxTunDeviceOptions().queues(2));
+        }
+        catch (final IOException e) {
+            return abort("Tun device could not be created: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Sends the descriptors once the receiver is listening.
+     */
+    @SuppressWarnings("java:S2925")
+    private static void send(final Path path, final int... fds) throws Exception {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                TunHandoff.send(path, fds);
+                return;
+            }
+            catch (final IOException e) {
+                if (attempt == 100) {
+                    throw e;
+                }
+                Thread.sleep(50);
+            }
+        }
+    }
+}